@@ -0,0 +1,43 @@
+/**
+ * Throughput of BackingStore's file accesses across store sizes.
+ *
+ * Both scan the file from its start for the key, so their cost grows
+ * with the store; a push also rewrites the whole file. Keys are drawn
+ * uniformly from the store, and each push writes the key's own data,
+ * so the file is the same after every push.
+ */
+public class BackingStoreBenchmark {
+
+    /** The store sizes, in lines, benchmarked by default. */
+    public static final long[] SIZES = {16, 1024, 65536, 1048576, 10485760};
+
+    private static final String[] NAMES = {
+            "BackingStoreBenchmark.fetchData", "BackingStoreBenchmark.pushData"
+    };
+
+    //the number of random keys cycled through
+    private static final int KEYS = 1024;
+
+    /**
+     * Run every selected benchmark at each store size.
+     * @param runner the runner to measure with
+     * @param sizes the store sizes to benchmark, in lines
+     * @throws Exception if the store cannot be prepared or an access fails
+     */
+    public static void run(BenchmarkRunner runner, long[] sizes) throws Exception {
+        if (!runner.isAnySelected(NAMES)) {
+            return;
+        }
+        for (long param : sizes) {
+            int lines = (int) param;
+            BackingStore store = new BackingStore(Traces.prepareStore(lines));
+            int[] keys = Traces.uniform(KEYS, lines, lines);
+
+            runner.run(NAMES[0], param, i -> store.fetchData(keys[i & (KEYS - 1)]).getData());
+            runner.run(NAMES[1], param, i -> {
+                int key = keys[i & (KEYS - 1)];
+                return store.pushData(key, key).getData();
+            });
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.PrintStream;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Runs the throughput benchmarks of Cache, BackingStore and CacheSim,
+ * to be compared between revisions to catch regressions:
+ *
+ * <pre>
+ * java BenchmarkMain [-wi warmups] [-i iterations] [-r millis] [-p values] [-o file] [pattern]
+ * </pre>
+ *
+ * -wi and -i set the warmup and measured iterations of each benchmark,
+ * and -r their length in milliseconds. -p replaces the default
+ * parameters, the capacities or store sizes, with a comma-separated
+ * list. Only benchmarks whose names contain a match for the pattern
+ * are run, for example "CacheBenchmark.request". Results are printed
+ * as they are measured, and with -o also written to a file once done.
+ * Larger parameters take a while to set up; the 10M line store alone
+ * is over 100MB.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) {
+        int warmups = BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS;
+        int iterations = BenchmarkRunner.DEFAULT_ITERATIONS;
+        long millis = BenchmarkRunner.DEFAULT_ITERATION_MILLIS;
+        long[] params = null;
+        String outputFile = null;
+        Pattern filter = null;
+
+        try {
+            for (int a = 0; a < args.length; a++) {
+                switch (args[a]) {
+                    case "-wi":
+                        warmups = Integer.parseInt(args[++a]);
+                        break;
+                    case "-i":
+                        iterations = Integer.parseInt(args[++a]);
+                        break;
+                    case "-r":
+                        millis = Long.parseLong(args[++a]);
+                        break;
+                    case "-p":
+                        String[] values = args[++a].split(",");
+                        params = new long[values.length];
+                        for (int v = 0; v < values.length; v++) {
+                            params[v] = Long.parseLong(values[v].trim());
+                        }
+                        break;
+                    case "-o":
+                        outputFile = args[++a];
+                        break;
+                    default:
+                        filter = Pattern.compile(args[a]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException | PatternSyntaxException e) {
+            System.out.println("Usage: BenchmarkMain [-wi warmups] [-i iterations] [-r millis] [-p values] [-o file] [pattern]");
+            System.exit(1);
+        }
+
+        try {
+            BenchmarkRunner runner = new BenchmarkRunner(warmups, iterations, millis, filter, System.out);
+            CacheBenchmark.run(runner, params != null ? params : CacheBenchmark.CAPACITIES);
+            BackingStoreBenchmark.run(runner, params != null ? params : BackingStoreBenchmark.SIZES);
+            CacheSimBenchmark.run(runner, params != null ? params : CacheSimBenchmark.CAPACITIES);
+
+            if (outputFile != null) {
+                try (PrintStream ps = new PrintStream(outputFile)) {
+                    ps.println("Benchmark,Param,Score,Error,Units");
+                    for (BenchmarkRunner.Result r : runner.getResults()) {
+                        ps.println(r.name + "," + r.param + "," + r.getMean() + "," + r.getError() + ",ops/ms");
+                    }
+                }
+            }
+        } catch (IllegalArgumentException iae) {
+            System.out.println("Invalid benchmark settings.");
+            System.out.println(iae);
+            System.exit(1);
+        } catch (Exception e) {
+            System.out.println("Benchmark failed.");
+            System.out.println(e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Runs throughput benchmarks the way JMH does in its throughput mode:
+ * each benchmark is run for a number of timed warmup iterations, whose
+ * results are thrown away while the JIT compiles the hot paths, then
+ * for a number of timed measurement iterations, whose operation rates
+ * are reported as a mean and its error.
+ *
+ * Every operation returns an int, which is folded into a sink that is
+ * published at the end of each iteration, so that the JIT cannot drop
+ * work whose result is never used.
+ * @see BenchmarkMain
+ */
+public class BenchmarkRunner {
+
+    /**
+     * One operation of a benchmark, given its sequence number
+     * within the run. Sequence numbers wrap around on long runs,
+     * so take them modulo with Math.floorMod() or a mask.
+     */
+    public interface Operation {
+        int run(int i) throws Exception;
+    }
+
+    /**
+     * The result of one benchmark at one parameter value.
+     */
+    public static class Result {
+        public final String name;
+        public final long param;
+        //operations per millisecond, per measurement iteration
+        public final double[] scores;
+
+        Result(String name, long param, double[] scores) {
+            this.name = name;
+            this.param = param;
+            this.scores = scores;
+        }
+
+        public double getMean() {
+            double sum = 0.0;
+            for (double s : scores) {
+                sum += s;
+            }
+            return sum / scores.length;
+        }
+
+        /**
+         * Get the sample standard deviation of the iterations' scores.
+         * @return the standard deviation, or 0 for a single iteration
+         */
+        public double getError() {
+            if (scores.length < 2) {
+                return 0.0;
+            }
+            double mean = getMean();
+            double squares = 0.0;
+            for (double s : scores) {
+                squares += (s - mean) * (s - mean);
+            }
+            return Math.sqrt(squares / (scores.length - 1));
+        }
+    }
+
+    public static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    public static final int DEFAULT_ITERATIONS = 5;
+    public static final long DEFAULT_ITERATION_MILLIS = 1000;
+
+    //batches are grown until one takes at least this long,
+    //keeping the clock out of the measured operations
+    private static final long BATCH_NANOS = 100_000;
+    private static final int MAX_BATCH = 1 << 24;
+
+    private int warmupIterations;
+    private int iterations;
+    private long iterationNanos;
+    private Pattern filter;
+    private PrintStream out;
+    private ArrayList<Result> results;
+    private int sink;
+    //published after each iteration so that the sink is never dead
+    public static volatile int published;
+
+    /**
+     * Create a runner with the default iterations, running every benchmark.
+     * @param out where to report progress and results
+     */
+    public BenchmarkRunner(PrintStream out) {
+        this(DEFAULT_WARMUP_ITERATIONS, DEFAULT_ITERATIONS, DEFAULT_ITERATION_MILLIS, null, out);
+    }
+
+    /**
+     * Create a runner.
+     * @param warmupIterations the number of unmeasured iterations, non-negative
+     * @param iterations the number of measured iterations, positive
+     * @param iterationMillis the length of each iteration, positive
+     * @param filter a pattern found in the names of the benchmarks to run, or null for all
+     * @param out where to report progress and results
+     */
+    public BenchmarkRunner(int warmupIterations, int iterations, long iterationMillis,
+                           Pattern filter, PrintStream out) {
+        if (warmupIterations < 0 || iterations < 1 || iterationMillis < 1) {
+            throw new IllegalArgumentException("Iterations and their length must be positive.");
+        }
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.filter = filter;
+        this.out = out;
+        results = new ArrayList<>();
+    }
+
+    /**
+     * Check whether a benchmark is selected by the filter, so that
+     * benchmarks need not set up state for benchmarks never run.
+     * @param name the benchmark's name
+     * @return true if the benchmark should be run
+     */
+    public boolean isSelected(String name) {
+        return filter == null || filter.matcher(name).find();
+    }
+
+    /**
+     * Check whether any of a group of benchmarks is selected,
+     * so that state they share need not be set up otherwise.
+     * @param names the benchmarks' names
+     * @return true if any of them should be run
+     */
+    public boolean isAnySelected(String[] names) {
+        for (String name : names) {
+            if (isSelected(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run one benchmark at one parameter value, if it is selected.
+     * Each iteration runs at least one operation, however slow.
+     * @param name the benchmark's name, as Class.method
+     * @param param the parameter value the benchmark's state was set up for
+     * @param op the operation to measure
+     * @throws Exception if an operation fails
+     */
+    public void run(String name, long param, Operation op) throws Exception {
+        run(name, param, 1, op);
+    }
+
+    /**
+     * Run one benchmark at one parameter value, if it is selected,
+     * where each call of the operation does a batch of operations,
+     * as with JMH's OperationsPerInvocation.
+     * @param name the benchmark's name, as Class.method
+     * @param param the parameter value the benchmark's state was set up for
+     * @param operationsPerCall the operations each call does, positive
+     * @param op the operations to measure
+     * @throws Exception if an operation fails
+     */
+    public void run(String name, long param, int operationsPerCall, Operation op) throws Exception {
+        if (!isSelected(name)) {
+            return;
+        }
+        int i = 0;
+        for (int w = 0; w < warmupIterations; w++) {
+            long[] counted = iterate(op, i);
+            i = (int) counted[1];
+        }
+        double[] scores = new double[iterations];
+        for (int m = 0; m < iterations; m++) {
+            long[] counted = iterate(op, i);
+            i = (int) counted[1];
+            scores[m] = counted[0] * (double) operationsPerCall / (counted[2] / 1e6);
+        }
+        Result result = new Result(name, param, scores);
+        results.add(result);
+        out.printf("%-40s %10d %14.3f +- %.3f ops/ms%n", name, param, result.getMean(), result.getError());
+    }
+
+    /**
+     * Run operations for one iteration.
+     * @return the operations run, the next sequence number, and the nanoseconds taken
+     */
+    private long[] iterate(Operation op, int i) throws Exception {
+        long ops = 0;
+        int batch = 1;
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long now;
+        do {
+            long batchStart = System.nanoTime();
+            for (int k = 0; k < batch; k++) {
+                sink += op.run(i++);
+            }
+            ops += batch;
+            now = System.nanoTime();
+            if (now - batchStart < BATCH_NANOS && batch < MAX_BATCH) {
+                batch <<= 1;
+            }
+        } while (now < deadline);
+        published = sink;
+        return new long[] {ops, i, now - start};
+    }
+
+    /**
+     * Get the results of every benchmark run so far.
+     * @return the results, in the order run
+     */
+    public ArrayList<Result> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Throughput of the Cache's hot paths across capacities: requests
+ * that hit and that miss, writes under each write policy, lookups,
+ * and eviction of dirty data.
+ *
+ * Each cache is backed by a StoreView of a store holding twice as
+ * many keys as the cache, so that misses measure the cache's own work
+ * rather than reading a file; BackingStoreBenchmark measures the file.
+ * Every benchmark starts from a full cache holding keys 0 to capacity-1.
+ */
+public class CacheBenchmark {
+
+    /** The capacities benchmarked by default. */
+    public static final long[] CAPACITIES = {8, 64, 1024, 16384, 1048576};
+
+    private static final String[] NAMES = {
+            "CacheBenchmark.requestHit", "CacheBenchmark.requestMiss",
+            "CacheBenchmark.writeThroughHit", "CacheBenchmark.writeBackHit",
+            "CacheBenchmark.findData", "CacheBenchmark.evictDirty"
+    };
+
+    /**
+     * Run every selected benchmark at each capacity.
+     * @param runner the runner to measure with
+     * @param capacities the capacities to benchmark
+     * @throws Exception if the store cannot be prepared or a request fails
+     */
+    public static void run(BenchmarkRunner runner, long[] capacities) throws Exception {
+        if (!runner.isAnySelected(NAMES)) {
+            return;
+        }
+        for (long param : capacities) {
+            int capacity = (int) param;
+            int keys = 2 * capacity;
+            StoreImage image = new StoreImage(Traces.prepareStore(keys));
+            CacheResponse out = new CacheResponse();
+
+            if (runner.isSelected(NAMES[0])) {
+                Cache cache = filled(capacity, image, WritePolicy.WRITE_THROUGH);
+                runner.run(NAMES[0], param, i -> cache.requestData(Math.floorMod(i, capacity), out).getData().getData());
+            }
+            if (runner.isSelected(NAMES[1])) {
+                //a loop over twice the capacity misses on every request under LRU
+                Cache cache = filled(capacity, image, WritePolicy.WRITE_THROUGH);
+                runner.run(NAMES[1], param, i -> cache.requestData(Math.floorMod(capacity + i, keys), out).getData().getData());
+            }
+            if (runner.isSelected(NAMES[2])) {
+                Cache cache = filled(capacity, image, WritePolicy.WRITE_THROUGH);
+                runner.run(NAMES[2], param, i -> cache.writeData(Math.floorMod(i, capacity), i, out).getData().getData());
+            }
+            if (runner.isSelected(NAMES[3])) {
+                Cache cache = filled(capacity, image, WritePolicy.WRITE_BACK);
+                runner.run(NAMES[3], param, i -> cache.writeData(Math.floorMod(i, capacity), i, out).getData().getData());
+            }
+            if (runner.isSelected(NAMES[4])) {
+                //half of the keys looked up are in the cache
+                Cache cache = filled(capacity, image, WritePolicy.WRITE_THROUGH);
+                runner.run(NAMES[4], param, i -> cache.findData(Math.floorMod(i, keys)));
+            }
+            if (runner.isSelected(NAMES[5])) {
+                //every write misses and evicts a dirty item, writing it back
+                Cache cache = filled(capacity, image, WritePolicy.WRITE_BACK);
+                for (int k = 0; k < capacity; k++) {
+                    cache.writeData(k, k, out);
+                }
+                runner.run(NAMES[5], param, i -> cache.writeData(Math.floorMod(capacity + i, keys), i, out).getData().getData());
+            }
+        }
+    }
+
+    /**
+     * Create a cache over a new view of image, filled with
+     * keys 0 to capacity-1.
+     */
+    private static Cache filled(int capacity, StoreImage image, WritePolicy writePolicy) throws NotFoundException {
+        Cache cache = new Cache(capacity, image.newView(), writePolicy);
+        CacheResponse out = new CacheResponse();
+        for (int k = 0; k < capacity; k++) {
+            cache.requestData(k, out);
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * End-to-end throughput of CacheSim.simulate() replaying synthetic
+ * traces through an LRU cache, across cache capacities, in requests
+ * per millisecond:
+ * - zipf, requests skewed towards a few popular keys, as in YCSB;
+ * - uniform, requests spread evenly over every key;
+ * - sequential, a scan over every key, missing on every request;
+ * - looping, a loop over half as many keys again as the cache holds,
+ *   which LRU also misses on every time.
+ *
+ * Each trace draws from sixteen times as many keys as the cache holds,
+ * served by a StoreView so that the file is read only once. Traces run
+ * at least twice around the loop, so the scans touch more keys than the
+ * cache holds and still miss when the cache is kept from the previous
+ * call. History is turned off, as for any long simulation.
+ */
+public class CacheSimBenchmark {
+
+    /** The capacities benchmarked by default. */
+    public static final long[] CAPACITIES = {1024, 65536};
+
+    private static final String[] NAMES = {
+            "CacheSimBenchmark.zipf", "CacheSimBenchmark.uniform",
+            "CacheSimBenchmark.sequential", "CacheSimBenchmark.looping"
+    };
+
+    //the fewest requests replayed by each call of simulate()
+    private static final int TRACE_LENGTH = 1 << 16;
+    private static final int KEYS_PER_SLOT = 16;
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    /**
+     * Run every selected benchmark at each capacity.
+     * @param runner the runner to measure with
+     * @param capacities the capacities to benchmark
+     * @throws Exception if the store cannot be prepared
+     */
+    public static void run(BenchmarkRunner runner, long[] capacities) throws Exception {
+        if (!runner.isAnySelected(NAMES)) {
+            return;
+        }
+        for (long param : capacities) {
+            int capacity = (int) param;
+            int keys = KEYS_PER_SLOT * capacity;
+            int loop = capacity + capacity / 2;
+            int length = Math.max(TRACE_LENGTH, 2 * loop);
+            StoreImage image = new StoreImage(Traces.prepareStore(keys));
+
+            int[][] traces = {
+                    Traces.zipf(length, keys, ZIPF_EXPONENT, capacity),
+                    Traces.uniform(length, keys, capacity),
+                    Traces.sequential(length, keys),
+                    Traces.sequential(length, loop)
+            };
+            for (int t = 0; t < NAMES.length; t++) {
+                if (!runner.isSelected(NAMES[t])) {
+                    continue;
+                }
+                int[] trace = traces[t];
+                CacheSim sim = new CacheSim(new Cache(capacity, image.newView()));
+                sim.setHistoryEnabled(false);
+                runner.run(NAMES[t], param, length, i -> {
+                    sim.simulate(trace);
+                    return sim.getCacheMisses();
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic stores and request traces for the benchmarks.
+ * Traces are seeded, so every run replays the same keys.
+ */
+public class Traces {
+
+    /**
+     * Write a backing store file holding keys 0 to lines-1,
+     * where each key's data equals the key. The file is
+     * deleted when the benchmarks exit.
+     * @param lines the number of lines
+     * @return the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static String prepareStore(int lines) throws IOException {
+        File fp = File.createTempFile("store", ".txt");
+        fp.deleteOnExit();
+        try (PrintWriter pw = new PrintWriter(fp)) {
+            for (int i = 0; i < lines; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+        }
+        return fp.getPath();
+    }
+
+    /**
+     * Build a trace of keys from 0 to keys-1 following Zipf's law:
+     * the key of rank r, counting from 1, is requested with probability
+     * proportional to 1/r^exponent. Ranks are shuffled over the keys,
+     * so that popular keys are not all neighbours.
+     * @param length the number of requests
+     * @param keys the number of distinct keys
+     * @param exponent the skew, 0 for uniform
+     * @param seed the random seed
+     * @return the trace
+     */
+    public static int[] zipf(int length, int keys, double exponent, long seed) {
+        Random random = new Random(seed);
+        double[] cumulative = new double[keys];
+        double total = 0.0;
+        for (int r = 0; r < keys; r++) {
+            total += 1.0 / Math.pow(r + 1, exponent);
+            cumulative[r] = total;
+        }
+        int[] keyOfRank = permutation(keys, random);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int r = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            if (r < 0) {
+                r = -r - 1;
+            }
+            trace[i] = keyOfRank[Math.min(r, keys - 1)];
+        }
+        return trace;
+    }
+
+    /**
+     * Build a trace of keys drawn uniformly from 0 to keys-1.
+     * @param length the number of requests
+     * @param keys the number of distinct keys
+     * @param seed the random seed
+     * @return the trace
+     */
+    public static int[] uniform(int length, int keys, long seed) {
+        Random random = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = random.nextInt(keys);
+        }
+        return trace;
+    }
+
+    /**
+     * Build a trace scanning keys 0 to keys-1 in order, starting over
+     * after the last. Scanning more keys than an LRU cache holds
+     * misses on every request.
+     * @param length the number of requests
+     * @param keys the number of keys scanned
+     * @return the trace
+     */
+    public static int[] sequential(int length, int keys) {
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = i % keys;
+        }
+        return trace;
+    }
+
+    private static int[] permutation(int n, Random random) {
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = p[i];
+            p[i] = p[j];
+            p[j] = t;
+        }
+        return p;
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.Arrays;
+
+/**
+ * Adaptive Replacement Cache (ARC) replacement.
+ *
+ * Each group splits its resident items into two LRU lists:
+ * T1 for items requested once since they were installed, and T2
+ * for items requested again. It also remembers the keys it recently
+ * evicted from each, without their data, in the ghost lists B1 and B2.
+ * A request for a key remembered in B1 suggests T1 deserves more
+ * room, and one in B2 that T2 does, so the target size p of T1 adapts
+ * to the workload. Victims come from T1 when it is larger than its
+ * target and from T2 otherwise.
+ *
+ * Resident slots and ghost entries are nodes of the same primitive
+ * linked lists: nodes 0 to capacity-1 are the slots, and nodes from
+ * capacity upward are ghost entries drawn from a fixed pool. Each group
+ * remembers at most as many ghosts as it has slots, so the pool never
+ * runs out. Every operation takes constant time.
+ */
+public class ArcPolicy implements ReplacementPolicy {
+
+    private static final int NIL = -1;
+    private static final int T1 = 0;
+    private static final int T2 = 1;
+    private static final int B1 = 2;
+    private static final int B2 = 3;
+    private static final int LISTS = 4;
+
+    private int capacity;
+    private int groupSize;
+
+    //per node: its list and neighbours; ghost nodes also keep their key and group
+    private int[] list;
+    private int[] prev;
+    private int[] next;
+    private int[] slotKey;
+    private int[] ghostKey;
+    private int[] ghostGroup;
+    private int[] freeGhosts;
+    private int freeCount;
+    //maps each remembered key to its ghost node
+    private IntIntHashMap ghosts;
+
+    //per group and list: ends and length, indexed group * LISTS + list
+    private int[] head;
+    private int[] tail;
+    private int[] length;
+    //per group: the target size of T1
+    private int[] target;
+
+    //the incoming key whose ghost has already adapted the target
+    private int adaptedKey;
+    private boolean adapted;
+
+    /**
+     * Create an ARC policy.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     */
+    public ArcPolicy(int capacity, int groups) {
+        if (groups < 1 || capacity % groups != 0) {
+            throw new IllegalArgumentException("Groups must evenly divide the capacity.");
+        }
+        this.capacity = capacity;
+        groupSize = capacity / groups;
+        list = new int[2 * capacity];
+        prev = new int[2 * capacity];
+        next = new int[2 * capacity];
+        slotKey = new int[capacity];
+        ghostKey = new int[capacity];
+        ghostGroup = new int[capacity];
+        freeGhosts = new int[capacity];
+        ghosts = new IntIntHashMap(capacity);
+        head = new int[groups * LISTS];
+        tail = new int[groups * LISTS];
+        length = new int[groups * LISTS];
+        target = new int[groups];
+        clear();
+    }
+
+    @Override
+    public void insert(int slot, int key) {
+        int group = slot / groupSize;
+        if (list[slot] != NIL) {
+            unlink(slot);
+        }
+
+        int ghost = ghosts.get(key);
+        if (ghost >= 0) {
+            if (!adapted || adaptedKey != key) {
+                adapt(group, list[ghost]);
+            }
+            dropGhost(ghost);
+            push(group, T2, slot);
+        } else {
+            push(group, T1, slot);
+            //keep T1 and its ghosts within the group's size
+            if (len(group, T1) + len(group, B1) > groupSize && len(group, B1) > 0) {
+                dropGhost(tail[group * LISTS + B1]);
+            }
+        }
+        slotKey[slot] = key;
+        adapted = false;
+    }
+
+    @Override
+    public void access(int slot) {
+        if (list[slot] == NIL) {
+            return;
+        }
+        unlink(slot);
+        push(slot / groupSize, T2, slot);
+    }
+
+    /**
+     * Empty a slot, remembering its key in the ghost list
+     * matching the resident list it was in.
+     */
+    @Override
+    public void remove(int slot) {
+        int from = list[slot];
+        if (from == NIL) {
+            return;
+        }
+        int group = slot / groupSize;
+        unlink(slot);
+
+        while (len(group, B1) + len(group, B2) >= groupSize) {
+            int victimList = len(group, B1) >= len(group, B2) ? B1 : B2;
+            dropGhost(tail[group * LISTS + victimList]);
+        }
+        int ghost = freeGhosts[--freeCount];
+        ghostKey[ghost - capacity] = slotKey[slot];
+        ghostGroup[ghost - capacity] = group;
+        ghosts.put(slotKey[slot], ghost);
+        push(group, from == T1 ? B1 : B2, ghost);
+    }
+
+    @Override
+    public int selectVictim(int group, int inKey) {
+        int ghost = ghosts.get(inKey);
+        boolean inB2 = ghost >= 0 && list[ghost] == B2;
+        if (ghost >= 0) {
+            adapt(group, list[ghost]);
+            adaptedKey = inKey;
+            adapted = true;
+        }
+
+        int t1 = len(group, T1);
+        boolean fromT1 = t1 > 0 && ((inB2 && t1 == target[group]) || t1 > target[group]);
+        int victim = tail[group * LISTS + (fromT1 ? T1 : T2)];
+        if (victim == NIL) {
+            victim = tail[group * LISTS + (fromT1 ? T2 : T1)];
+        }
+        return victim;
+    }
+
+    /**
+     * Eviction would drain the list over its target first, each list
+     * from its least recently used end.
+     */
+    @Override
+    public int rankOf(int slot) {
+        if (list[slot] == NIL) {
+            return -1;
+        }
+        int group = slot / groupSize;
+        int resident = len(group, T1) + len(group, T2);
+        int first = len(group, T1) > target[group] ? T1 : T2;
+        int position = 0;
+        for (int l : new int[]{first, T1 + T2 - first}) {
+            for (int n = tail[group * LISTS + l]; n != NIL; n = prev[n]) {
+                if (n == slot) {
+                    return resident - 1 - position;
+                }
+                position++;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(list, NIL);
+        Arrays.fill(head, NIL);
+        Arrays.fill(tail, NIL);
+        Arrays.fill(length, 0);
+        Arrays.fill(target, 0);
+        ghosts.clear();
+        freeCount = capacity;
+        for (int i = 0; i < capacity; i++) {
+            freeGhosts[i] = 2 * capacity - 1 - i;
+        }
+        adapted = false;
+    }
+
+    /**
+     * Get the current target size of T1 for a group.
+     * @param group the group
+     * @return the number of slots ARC currently aims to give T1
+     */
+    public int getTarget(int group) {
+        return target[group];
+    }
+
+    /**
+     * Move the target size of T1 after a request for a key
+     * remembered in ghost list l.
+     */
+    private void adapt(int group, int l) {
+        int b1 = len(group, B1);
+        int b2 = len(group, B2);
+        if (l == B1) {
+            target[group] = Math.min(groupSize, target[group] + Math.max(b2 / b1, 1));
+        } else {
+            target[group] = Math.max(0, target[group] - Math.max(b1 / b2, 1));
+        }
+    }
+
+    private void dropGhost(int ghost) {
+        unlink(ghost);
+        ghosts.remove(ghostKey[ghost - capacity]);
+        freeGhosts[freeCount++] = ghost;
+    }
+
+    private int len(int group, int l) {
+        return length[group * LISTS + l];
+    }
+
+    private void push(int group, int l, int node) {
+        int at = group * LISTS + l;
+        list[node] = l;
+        prev[node] = NIL;
+        next[node] = head[at];
+        if (head[at] != NIL) {
+            prev[head[at]] = node;
+        } else {
+            tail[at] = node;
+        }
+        head[at] = node;
+        length[at]++;
+    }
+
+    private void unlink(int node) {
+        int group = node < capacity ? node / groupSize : ghostGroup[node - capacity];
+        int at = group * LISTS + list[node];
+        if (prev[node] != NIL) {
+            next[prev[node]] = next[node];
+        } else {
+            head[at] = next[node];
+        }
+        if (next[node] != NIL) {
+            prev[next[node]] = prev[node];
+        } else {
+            tail[at] = prev[node];
+        }
+        length[at]--;
+        list[node] = NIL;
+    }
+}
@@ -0,0 +1,329 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A backing store which loads data asynchronously, in batches,
+ * so that callers can ask for keys well before they need them.
+ *
+ * fetchAsync() and prefetch() queue a key and return at once. A single
+ * loader thread drains the queue and fetches everything queued in one
+ * call to fetchBatch() on the wrapped store: for a file-backed store,
+ * one pass over the file for the whole batch instead of one per key.
+ * Each batch's time is shared out between its keys as fetchBatch()
+ * charges it. Which keys share a batch then depends on when the loader
+ * runs, so prefetchBatch() instead queues a batch which is fetched
+ * whole and alone, for callers such as a simulation whose times must
+ * not depend on thread scheduling.
+ *
+ * fetchData() takes the result of a fetch already queued for the key,
+ * waiting for it if it is still loading, and queues one otherwise, so a
+ * Cache in front of this store is served from whatever was prefetched.
+ * Each queued result is handed to fetchData() at most once. A push to a
+ * key discards any result queued for it, so fetchData() never returns
+ * data older than the last push; since the store is only changed by
+ * pushes through this one, prefetched data can never otherwise be stale.
+ *
+ * The wrapped store is wrapped in a LockedBackingStore, since the loader
+ * reads it while pushes may be writing it. Close this store to stop the
+ * loader thread. It cannot wrap a CacheLevel, whose fetches must reach
+ * the lower cache one at a time, in order.
+ * @see CacheSim#setLookahead
+ */
+public class AsyncBackingStore extends BackingStore implements Closeable {
+
+    //the most keys fetched in one batch
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private BackingStore store;
+    private int maxBatch;
+    //the queued or loaded fetch for each key, until fetchData() takes it
+    private ConcurrentHashMap<Integer, CompletableFuture<BackingStoreResponse>> pending;
+    private LinkedBlockingQueue<Request> queue;
+    private Thread loader;
+    private volatile boolean closed;
+    private volatile long batches;
+    private volatile long batchedKeys;
+
+    /**
+     * Keys waiting to be loaded and the futures to complete with them.
+     * A whole request is fetched as one batch of its own; the others
+     * hold a single key and share a batch with whatever single keys
+     * are queued after them.
+     */
+    private static class Request {
+        final int[] keys;
+        final List<CompletableFuture<BackingStoreResponse>> futures;
+        final boolean whole;
+
+        Request(int[] keys, List<CompletableFuture<BackingStoreResponse>> futures, boolean whole) {
+            this.keys = keys;
+            this.futures = futures;
+            this.whole = whole;
+        }
+    }
+
+    /**
+     * Wrap a backing store to load asynchronously, in batches
+     * of at most DEFAULT_MAX_BATCH keys.
+     * The wrapped store must not be used except through this one.
+     * @param store the backing store to wrap
+     */
+    public AsyncBackingStore(BackingStore store) {
+        this(store, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * Wrap a backing store to load asynchronously, in batches
+     * of at most maxBatch keys.
+     * The wrapped store must not be used except through this one.
+     * @param store the backing store to wrap
+     * @param maxBatch the most keys to fetch in one batch
+     * @throws IllegalArgumentException if maxBatch is not positive,
+     *         or store is or wraps a CacheLevel
+     */
+    public AsyncBackingStore(BackingStore store, int maxBatch) {
+        super(store.getFileName());
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batches must hold at least one key.");
+        }
+        if (store.getCacheLevel() != null) {
+            throw new IllegalArgumentException("A cache level cannot be loaded asynchronously.");
+        }
+        if (!(store instanceof LockedBackingStore)) {
+            store = new LockedBackingStore(store);
+        }
+        this.store = store;
+        this.maxBatch = maxBatch;
+        pending = new ConcurrentHashMap<>();
+        queue = new LinkedBlockingQueue<>();
+        loader = new Thread(this::load, "AsyncBackingStore loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Get the number of batches fetched from the wrapped store.
+     * @return the number of batches
+     */
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * Get the number of keys fetched from the wrapped store in batches.
+     * @return the number of keys batched
+     */
+    public long getBatchedKeyCount() {
+        return batchedKeys;
+    }
+
+    /**
+     * Queue a fetch of a key, unless one is already queued or loaded,
+     * and return it without waiting. The future fails with a
+     * NotFoundException if the key is not in the store.
+     * @param key the key of the requested data item
+     * @return the future data and time taken for the key
+     */
+    public CompletableFuture<BackingStoreResponse> fetchAsync(int key) {
+        if (closed) {
+            throw new IllegalStateException("The store is closed.");
+        }
+        CompletableFuture<BackingStoreResponse> future = new CompletableFuture<>();
+        CompletableFuture<BackingStoreResponse> queued = pending.putIfAbsent(key, future);
+        if (queued != null) {
+            return queued;
+        }
+        queue.add(new Request(new int[] {key}, List.of(future), false));
+        return future;
+    }
+
+    /**
+     * Queue a fetch of a key so that a later fetchData() of it need
+     * not wait, unless one is already queued or loaded.
+     * @param key the key to load
+     */
+    public void prefetch(int key) {
+        fetchAsync(key);
+    }
+
+    /**
+     * Queue fetches of several keys to be loaded together in one batch,
+     * apart from any other keys queued, so that what each key is charged
+     * depends only on the keys passed and not on when the loader runs.
+     * Keys already queued or loaded and repeated keys are left out, and
+     * more than the batch limit are queued as several batches, in order.
+     * @param keys the keys to load
+     * @param count the number of keys, from the start of keys, to load
+     */
+    public void prefetchBatch(int[] keys, int count) {
+        if (closed) {
+            throw new IllegalStateException("The store is closed.");
+        }
+        int[] batch = new int[maxBatch];
+        List<CompletableFuture<BackingStoreResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<BackingStoreResponse> future = new CompletableFuture<>();
+            if (pending.putIfAbsent(keys[i], future) != null) {
+                continue;
+            }
+            batch[futures.size()] = keys[i];
+            futures.add(future);
+            if (futures.size() == maxBatch) {
+                queue.add(new Request(batch, futures, true));
+                batch = new int[maxBatch];
+                futures = new ArrayList<>();
+            }
+        }
+        if (!futures.isEmpty()) {
+            queue.add(new Request(Arrays.copyOf(batch, futures.size()), futures, true));
+        }
+    }
+
+    /**
+     * Fetch data for a key, taking the result of a fetch queued for
+     * it if there is one, and waiting for it if it is still loading.
+     * @param key the key of the requested data item
+     * @return the data with requested key, and its share of its batch's time
+     * @throws NotFoundException if the requested key is not found
+     */
+    @Override
+    public BackingStoreResponse fetchData(int key) throws NotFoundException {
+        CompletableFuture<BackingStoreResponse> future = pending.get(key);
+        if (future == null) {
+            future = fetchAsync(key);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof NotFoundException) {
+                throw new NotFoundException();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } finally {
+            pending.remove(key, future);
+        }
+    }
+
+    /**
+     * Write data to the wrapped store, discarding any
+     * fetch of the key queued before the write.
+     * @param key the key of the data item to update
+     * @param newData the new data to write
+     * @return the written data and the time taken to locate it
+     * @throws NotFoundException if the specified key is not found
+     */
+    @Override
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+        BackingStoreResponse response = store.pushData(key, newData);
+        pending.remove(key);
+        return response;
+    }
+
+    @Override
+    public double acceptVictim(int key, int data) {
+        return store.acceptVictim(key, data);
+    }
+
+    /**
+     * Fetch several keys in one batch straight from the
+     * wrapped store, bypassing the queue.
+     * @see BackingStore#fetchBatch
+     */
+    @Override
+    public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+        return store.fetchBatch(keys, count);
+    }
+
+    /**
+     * Stop the loader thread. Fetches still queued fail with
+     * an IllegalStateException.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        loader.interrupt();
+    }
+
+    /**
+     * The loader thread: wait for queued keys, then fetch a whole
+     * request alone, or else every single key queued, up to maxBatch
+     * keys, in one batch.
+     */
+    private void load() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        int[] keys = new int[maxBatch];
+        try {
+            while (!closed) {
+                Request head = queue.take();
+                batch.add(head);
+                int count = head.keys.length;
+                if (!head.whole) {
+                    //the only consumer, so a request peeked is the one polled
+                    Request next;
+                    while (count < maxBatch && (next = queue.peek()) != null && !next.whole) {
+                        batch.add(queue.poll());
+                        count++;
+                    }
+                }
+                int k = 0;
+                for (Request request : batch) {
+                    for (int key : request.keys) {
+                        keys[k++] = key;
+                    }
+                }
+
+                BackingStoreResponse[] responses;
+                try {
+                    responses = store.fetchBatch(keys, count);
+                } catch (RuntimeException | Error e) {
+                    fail(batch, e);
+                    batch.clear();
+                    continue;
+                }
+                batches++;
+                batchedKeys += count;
+                k = 0;
+                for (Request request : batch) {
+                    for (CompletableFuture<BackingStoreResponse> future : request.futures) {
+                        if (responses[k] != null) {
+                            future.complete(responses[k]);
+                        } else {
+                            future.completeExceptionally(new NotFoundException());
+                        }
+                        k++;
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ie) {
+            //closed
+        }
+        IllegalStateException stopped = new IllegalStateException("The store is closed.");
+        fail(batch, stopped);
+        Request request;
+        while ((request = queue.poll()) != null) {
+            fail(List.of(request), stopped);
+        }
+    }
+
+    /**
+     * Fail every future of the given requests.
+     */
+    private static void fail(List<Request> requests, Throwable cause) {
+        for (Request request : requests) {
+            for (CompletableFuture<BackingStoreResponse> future : request.futures) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+}
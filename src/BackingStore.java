@@ -1,4 +1,5 @@
 import java.io.*;
+import java.util.Arrays;
 
 public class BackingStore {
 
@@ -9,6 +10,14 @@ public class BackingStore {
         this.fileName = fileName;
     }
 
+    /**
+     * Get the path to the file acting as this backing store.
+     * @return the file path
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
 
 
     /**
@@ -19,18 +28,25 @@ public class BackingStore {
      * The order of keys in the backing store does not change.
      * If the key is not found in the backing store, throws
      * a NotFoundException.
+     * The time taken is counted the same way as for fetchData():
+     * one unit per line read up to and including the key's line.
      * @param key the key of the data item to update
      * @param newData the new data to write
+     * @return the written data and the time taken to locate it
      * @throws NotFoundException if the specified key is not found
      */
-    public void pushData(int key, int newData) throws NotFoundException {
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
         boolean found = false;
         String cmpKey = Integer.toString(key);
         StringBuilder sb = new StringBuilder();
+        double timetaken = 0.0;
         try {
             BufferedReader input = new BufferedReader(new FileReader(this.fileName));
             String line;
             while ((line = input.readLine()) != null) {
+                if (!found) {
+                    timetaken += 1.0;
+                }
                 String[] vals = line.split(" ");
                 if (vals.length == 2 && vals[0].equals(cmpKey)) {
                     found = true;
@@ -59,6 +75,7 @@ public class BackingStore {
         if (!found) {
             throw new NotFoundException();
         }
+        return new BackingStoreResponse(newData, timetaken);
     }
 
 
@@ -102,4 +119,147 @@ public class BackingStore {
         }
         return new BackingStoreResponse(data, timetaken);
     }
+
+    /**
+     * Offer this store data which a cache in front of it has just
+     * evicted, after any write back of it. A file keeps nothing
+     * but what is written to it, so this does nothing here; a
+     * store which is itself a cache level may keep the data.
+     * @see CacheLevel
+     * @param key the key of the evicted data
+     * @param data the evicted data
+     * @return the time taken to place the data
+     */
+    public double acceptVictim(int key, int data) {
+        return 0.0;
+    }
+
+    /**
+     * Get the cache level this store is, or wraps, so that a
+     * cache in front of a wrapped level still finds the level.
+     * @see CacheLevel
+     * @return the cache level, or null if this store is not one
+     */
+    public CacheLevel getCacheLevel() {
+        return null;
+    }
+
+    /**
+     * Fetch the data for several keys in a single pass over the
+     * backing store, instead of one pass per key.
+     * The pass stops as soon as every key has been found.
+     *
+     * The time taken is the number of lines the pass reads, shared
+     * out between the keys in the order their lines appear: each key
+     * is charged the lines read after the previous key's line, up to
+     * and including its own. A batch of one key therefore costs just
+     * what fetchData() would, and a repeated key costs nothing after
+     * its first appearance. Lines read only in search of missing keys
+     * are charged to no key.
+     *
+     * @param keys the keys of the requested data items
+     * @param count the number of keys, from the start of keys, to fetch
+     * @return a response for each key, in the same order,
+     *         or null for each key not found in the backing store
+     */
+    public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+        //maps each key still sought to its first index in keys
+        IntIntHashMap wanted = new IntIntHashMap(count);
+        int[] firstOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            firstOf[i] = wanted.containsKey(keys[i]) ? wanted.get(keys[i]) : i;
+            if (firstOf[i] == i) {
+                wanted.put(keys[i], i);
+            }
+        }
+        int[] lines = new int[count];
+        int[] data = new int[count];
+        int remaining = wanted.size();
+        try (BufferedReader input = new BufferedReader(new FileReader(this.fileName))) {
+            String line;
+            int lineNumber = 0;
+            while (remaining > 0 && (line = input.readLine()) != null) {
+                lineNumber++;
+                String[] vals = line.split(" ");
+                if (vals.length != 2) {
+                    continue;
+                }
+                int first;
+                try {
+                    first = wanted.get(Integer.parseInt(vals[0]));
+                } catch (NumberFormatException nfe) {
+                    continue;
+                }
+                if (first < 0 || !vals[0].equals(Integer.toString(keys[first]))) {
+                    continue;
+                }
+                wanted.remove(keys[first]);
+                remaining--;
+                try {
+                    data[first] = Integer.parseInt(vals[1]);
+                    lines[first] = lineNumber;
+                } catch (NumberFormatException nfe) {
+                    //found but unreadable, as fetchData() treats it
+                }
+            }
+        } catch (IOException ioe) {
+            //keys not reached are not found
+        }
+
+        for (int i = 0; i < count; i++) {
+            lines[i] = lines[firstOf[i]];
+            data[i] = data[firstOf[i]];
+        }
+        return chargeBatch(count, lines, data);
+    }
+
+    /**
+     * Fetch the data for several keys with one fetchData() call each,
+     * charging their times as fetchBatch() does. This suits stores
+     * that index their keys, where a fetch reads only the key's own
+     * line and reports the number of that line as its time.
+     * @param keys the keys of the requested data items
+     * @param count the number of keys, from the start of keys, to fetch
+     * @return a response for each key, in the same order,
+     *         or null for each key not found in the backing store
+     */
+    protected BackingStoreResponse[] fetchEach(int[] keys, int count) {
+        int[] lines = new int[count];
+        int[] data = new int[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                BackingStoreResponse response = fetchData(keys[i]);
+                lines[i] = (int) response.getTimeTaken();
+                data[i] = response.getData();
+            } catch (NotFoundException nfe) {
+                lines[i] = 0;
+            }
+        }
+        return chargeBatch(count, lines, data);
+    }
+
+    /**
+     * Build the responses to a batch from the line on which each key
+     * was found, 0 if it was not, charging each key the lines between
+     * the previous key's line and its own.
+     */
+    private static BackingStoreResponse[] chargeBatch(int count, int[] lines, int[] data) {
+        //sort indices by line, packed as line * 2^32 + index
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) lines[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        BackingStoreResponse[] responses = new BackingStoreResponse[count];
+        int previous = 0;
+        for (long packed : order) {
+            int i = (int) packed;
+            if (lines[i] > 0) {
+                responses[i] = new BackingStoreResponse(data[i], lines[i] - previous);
+                previous = lines[i];
+            }
+        }
+        return responses;
+    }
 }
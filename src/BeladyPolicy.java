@@ -0,0 +1,205 @@
+import java.util.Arrays;
+
+/**
+ * Belady's optimal (OPT, or MIN) replacement: evicts the item whose
+ * next request lies furthest in the future. This needs the whole
+ * trace up front, so it is only usable offline, to bound how well
+ * any other policy could do on the same trace.
+ * @see CacheSim#simulateOptimal
+ *
+ * The next use of every request is precomputed in one backward pass
+ * over the trace. Each group keeps its occupied slots in a binary
+ * max-heap keyed by next use, with each slot's position in the heap
+ * tracked so it can be re-keyed in place, so inserts, accesses and
+ * removals take logarithmic time and victim selection constant time.
+ *
+ * The policy must be told which request of the trace is about to be
+ * made, through setPosition(), before each request.
+ */
+public class BeladyPolicy implements ReplacementPolicy {
+
+    //the next use of an item which is never requested again
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    //nextUse[i] is the index of the next request for the key of request i
+    private int[] nextUse;
+    //maps each key in the trace to the index of its first request
+    private IntIntHashMap firstUse;
+    //the index of the request being made
+    private int position;
+
+    private int groupSize;
+    //per slot: the index of its key's next request, and where it sits in its group's heap
+    private int[] priority;
+    private int[] heapPos;
+    //per group: a max-heap of slots stored from index group * groupSize
+    private int[] heap;
+    private int[] heapSize;
+
+    /**
+     * Create an optimal policy for a trace of requests.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     * @param keys the keys of every request in the trace, in order
+     */
+    public BeladyPolicy(int capacity, int groups, int[] keys) {
+        if (groups < 1 || capacity % groups != 0) {
+            throw new IllegalArgumentException("Groups must evenly divide the capacity.");
+        }
+        groupSize = capacity / groups;
+        priority = new int[capacity];
+        heapPos = new int[capacity];
+        heap = new int[capacity];
+        heapSize = new int[groups];
+
+        nextUse = new int[keys.length];
+        firstUse = new IntIntHashMap(16);
+        for (int i = keys.length - 1; i >= 0; i--) {
+            int next = firstUse.put(keys[i], i);
+            nextUse[i] = next < 0 ? NEVER : next;
+        }
+        clear();
+    }
+
+    /**
+     * Set the index in the trace of the request about to be made.
+     * @param position the index of the next request, from 0
+     */
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Get the index of the next request for the key requested at a position.
+     * @param position an index in the trace
+     * @return the index of the key's next request, or NEVER
+     */
+    public int nextUseOf(int position) {
+        return nextUse[position];
+    }
+
+    /**
+     * Items installed before the trace starts are keyed by
+     * the first request for them.
+     */
+    @Override
+    public void insert(int slot, int key) {
+        int next;
+        if (position < 0) {
+            next = firstUse.get(key);
+        } else {
+            next = position < nextUse.length ? nextUse[position] : NEVER;
+        }
+        rekey(slot, next < 0 ? NEVER : next);
+    }
+
+    @Override
+    public void access(int slot) {
+        if (position >= 0 && heapPos[slot] >= 0) {
+            rekey(slot, position < nextUse.length ? nextUse[position] : NEVER);
+        }
+    }
+
+    @Override
+    public void remove(int slot) {
+        int at = heapPos[slot];
+        if (at < 0) {
+            return;
+        }
+        int group = slot / groupSize;
+        int base = group * groupSize;
+        int last = heap[base + --heapSize[group]];
+        heapPos[slot] = -1;
+        if (last != slot) {
+            heap[at] = last;
+            heapPos[last] = at;
+            siftUp(base, at);
+            siftDown(group, heapPos[last]);
+        }
+    }
+
+    @Override
+    public int selectVictim(int group, int inKey) {
+        return heap[group * groupSize];
+    }
+
+    /**
+     * Items are evicted in decreasing order of next use, so an item's rank
+     * is the number of items in its group needed sooner, with ties broken
+     * by index.
+     */
+    @Override
+    public int rankOf(int slot) {
+        if (heapPos[slot] < 0) {
+            return -1;
+        }
+        int group = slot / groupSize;
+        int base = group * groupSize;
+        int rank = 0;
+        for (int i = base; i < base + heapSize[group]; i++) {
+            int s = heap[i];
+            if (priority[s] < priority[slot] || (priority[s] == priority[slot] && s < slot)) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heapPos, -1);
+        Arrays.fill(heapSize, 0);
+        position = -1;
+    }
+
+    private void rekey(int slot, int next) {
+        int group = slot / groupSize;
+        int base = group * groupSize;
+        if (heapPos[slot] < 0) {
+            int at = base + heapSize[group]++;
+            heap[at] = slot;
+            heapPos[slot] = at;
+        }
+        priority[slot] = next;
+        siftUp(base, heapPos[slot]);
+        siftDown(group, heapPos[slot]);
+    }
+
+    private void siftUp(int base, int at) {
+        int slot = heap[at];
+        while (at > base) {
+            int parent = base + (at - base - 1) / 2;
+            if (priority[heap[parent]] >= priority[slot]) {
+                break;
+            }
+            heap[at] = heap[parent];
+            heapPos[heap[at]] = at;
+            at = parent;
+        }
+        heap[at] = slot;
+        heapPos[slot] = at;
+    }
+
+    private void siftDown(int group, int at) {
+        int base = group * groupSize;
+        int end = base + heapSize[group];
+        int slot = heap[at];
+        while (true) {
+            int child = base + 2 * (at - base) + 1;
+            if (child >= end) {
+                break;
+            }
+            if (child + 1 < end && priority[heap[child + 1]] > priority[heap[child]]) {
+                child++;
+            }
+            if (priority[heap[child]] <= priority[slot]) {
+                break;
+            }
+            heap[at] = heap[child];
+            heapPos[heap[at]] = at;
+            at = child;
+        }
+        heap[at] = slot;
+        heapPos[slot] = at;
+    }
+}
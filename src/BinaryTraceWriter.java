@@ -0,0 +1,152 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a trace in the compact binary format read by MappedTraceReader.
+ *
+ * A binary trace starts with a header: the 4 bytes "CTRC", a format
+ * version byte, the cache capacity as a varint, and the backing store
+ * path as a varint byte length followed by its UTF-8 bytes.
+ * Every request then follows as a varint holding the zigzag-encoded
+ * difference from the previous key (0 before the first) shifted left
+ * by one, with the low bit set for a write. A write is followed by its
+ * data as a zigzag-encoded varint.
+ *
+ * Varints store 7 bits per byte, least significant first, with the high
+ * bit set on every byte but the last. Zigzag encoding maps small negative
+ * and positive numbers alike to small varints, so a trace that walks
+ * through nearby keys takes one byte per read.
+ */
+public class BinaryTraceWriter implements Closeable {
+
+    //the first bytes of every binary trace
+    public static final byte[] MAGIC = {'C', 'T', 'R', 'C'};
+    public static final int VERSION = 1;
+
+    private DataOutputStream output;
+    private int previousKey;
+
+    /**
+     * Create a binary trace file and write its header.
+     * @param filePath the path of the file to create
+     * @param capacity the cache capacity the trace is meant for
+     * @param storeFile the backing store path the trace is meant for
+     * @throws IOException if the file cannot be written
+     */
+    public BinaryTraceWriter(String filePath, int capacity, String storeFile) throws IOException {
+        this(new FileOutputStream(filePath), capacity, storeFile);
+    }
+
+    /**
+     * Write a binary trace to a stream, starting with its header.
+     * @param output the stream to write to
+     * @param capacity the cache capacity the trace is meant for
+     * @param storeFile the backing store path the trace is meant for
+     * @throws IOException if the stream cannot be written
+     */
+    public BinaryTraceWriter(OutputStream output, int capacity, String storeFile) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        this.output.write(MAGIC);
+        this.output.write(VERSION);
+        writeVarint(capacity & 0xFFFFFFFFL);
+        byte[] path = storeFile.getBytes(StandardCharsets.UTF_8);
+        writeVarint(path.length);
+        this.output.write(path);
+        previousKey = 0;
+    }
+
+    /**
+     * Append a read request.
+     * @param key the key to read
+     * @throws IOException if the trace cannot be written
+     */
+    public void writeRead(int key) throws IOException {
+        writeVarint(zigzag(key - previousKey) << 1);
+        previousKey = key;
+    }
+
+    /**
+     * Append a write request.
+     * @param key the key to write
+     * @param data the data to write
+     * @throws IOException if the trace cannot be written
+     */
+    public void writeWrite(int key, int data) throws IOException {
+        writeVarint((zigzag(key - previousKey) << 1) | 1);
+        writeVarint(zigzag(data));
+        previousKey = key;
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    /**
+     * Convert a text trace, as read by TraceReader, to a binary trace.
+     * @param textFile the path to the text trace
+     * @param binaryFile the path of the binary trace to create
+     * @return the number of requests converted
+     * @throws IOException if either file cannot be read or written
+     * @throws NumberFormatException if the text trace is malformed
+     */
+    public static long convert(String textFile, String binaryFile) throws IOException {
+        long total = 0;
+        try (TraceReader reader = new TraceReader(textFile);
+             BinaryTraceWriter writer = new BinaryTraceWriter(binaryFile, reader.getCapacity(), reader.getStoreFile())) {
+            int[] keys = new int[4096];
+            int[] data = new int[4096];
+            boolean[] writes = new boolean[4096];
+            int count;
+            while ((count = reader.read(keys, data, writes)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    if (writes[i]) {
+                        writer.writeWrite(keys[i], data[i]);
+                    } else {
+                        writer.writeRead(keys[i]);
+                    }
+                }
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Convert a text trace to a binary trace from the command line.
+     * @param args the text trace path and the binary trace path
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: BinaryTraceWriter <text trace> <binary trace>");
+            System.exit(1);
+        }
+        try {
+            long total = convert(args[0], args[1]);
+            System.out.println("Converted " + total + " requests.");
+        } catch (IOException ioe) {
+            System.out.println("Failed to read or write file.");
+            System.out.println(ioe);
+        } catch (NumberFormatException nfe) {
+            System.out.println("Failed to parse input file.");
+            System.out.println(nfe);
+        }
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+}
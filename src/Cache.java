@@ -1,5 +1,6 @@
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A data structure for caching content for easier access
@@ -10,7 +11,8 @@ import java.util.ArrayList;
  * Users request data by providing the data's associated key.
  * Recently requested data is stored in the cache until
  * the cache is full and new requests displace older data.
- * This cache uses a least-recently-used replacement policy:
+ * Which data is displaced is decided by the cache's ReplacementPolicy.
+ * By default this is least-recently-used:
  * when new data is requested and installed in the cache,
  * the piece of data accessed furthest in the past
  * is replaced.
@@ -19,16 +21,59 @@ import java.util.ArrayList;
  * per line, with each line containing the data element's key,
  * a blank space, and then the data element's actual data.
  *
+ * Writes follow the cache's WritePolicy. Under write-through
+ * (the default) every write goes straight to the backing store.
+ * Under write-back, written items are marked dirty and only
+ * written to the backing store when evicted or flushed.
+ * Contents are stored as parallel primitive arrays of keys and data
+ * with a bitmap of occupied indices, rather than as CacheItem objects,
+ * so even caches with millions of indices stay small and are scanned
+ * without chasing pointers. CacheItems are only built on request.
+ * @see WritePolicy
+ * @see ReplacementPolicy
  */
 public class Cache {
 
-    protected CacheItem[] data;
-    protected int[] rank;
+    //keys[i] and values[i] hold the key and data at index i, if occupied
+    protected int[] keys;
+    protected int[] values;
+    //bit i of the bitmap is set when index i holds data
+    protected long[] occupied;
+    //decides which occupied index to evict
+    protected ReplacementPolicy policy;
+    //created the policy, so that another like it can be made
+    protected ReplacementPolicy.Factory policyFactory;
+    //maps each cached key to its index
+    protected IntIntHashMap index;
+    //every index below firstFree holds data
+    protected int firstFree;
+    //dirty[i] is true when values[i] differs from the backing store
+    protected boolean[] dirty;
+    //time spent writing back the item removed by the last eviction
+    protected double lastWriteBackTime;
+
+    protected WritePolicy writePolicy;
+    //told of every change to the contents of an index, if set
+    protected SlotListener slotListener;
+
+    //installs predicted keys after each demand request, if set
+    protected Prefetcher prefetcher;
+    //buffer for the prefetcher's predictions
+    protected int[] predictions;
+    //prefetched[i] is true when index i was filled by a prefetch and not yet requested
+    protected boolean[] prefetched;
+    //keys evicted by prefetches and not requested since, as keys of a set
+    protected IntIntHashMap evictedByPrefetch;
+
+    //the latencies charged for each request's work
+    protected CostModel costModel;
 
     protected int size;
     protected int capacity;
 
     protected BackingStore backingStore;
+    //the backing store, if it is a lower cache level
+    protected CacheLevel lowerLevel;
 
     /**
      * Create a new Cache with a positive capacity and backing store
@@ -38,14 +83,51 @@ public class Cache {
      * @param filePath the file path to the file acting as backing store.
      */
     public Cache(int capacity, String filePath) {
+        this(capacity, new BackingStore(filePath));
+    }
+
+    /**
+     * Create a new Cache with a positive capacity
+     * in front of an existing backing store.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param backingStore the backing store holding all data
+     */
+    public Cache(int capacity, BackingStore backingStore) {
+        this(capacity, backingStore, WritePolicy.WRITE_THROUGH);
+    }
+
+    /**
+     * Create a new Cache with a positive capacity in front of
+     * an existing backing store, using the given write policy.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param backingStore the backing store holding all data
+     * @param writePolicy when written data reaches the backing store
+     */
+    public Cache(int capacity, BackingStore backingStore, WritePolicy writePolicy) {
         if (capacity < 1) {
             throw new IllegalArgumentException("Cache capacity must be positive.");
         }
-        data = new CacheItem[capacity];
+        keys = new int[capacity];
+        values = new int[capacity];
+        occupied = new long[(capacity + 63) >>> 6];
         size = 0;
         this.capacity = capacity;
-        rank = new int[capacity];
-        this.backingStore = new BackingStore(filePath);
+        policy = new LruPolicy(capacity, 1);
+        policyFactory = ReplacementPolicyType.LRU;
+        index = new IntIntHashMap(capacity);
+        firstFree = 0;
+        dirty = new boolean[capacity];
+        prefetched = new boolean[capacity];
+        evictedByPrefetch = new IntIntHashMap(16);
+        this.backingStore = backingStore;
+        this.writePolicy = writePolicy;
+        this.costModel = CostModel.DEFAULT;
+        lowerLevel = backingStore.getCacheLevel();
+        if (lowerLevel != null) {
+            lowerLevel.attach(this);
+        }
     }
 
     /**
@@ -67,30 +149,151 @@ public class Cache {
         return size;
     }
 
+    /**
+     * Get the policy deciding when written data reaches the backing store.
+     *
+     * @return the cache's write policy
+     */
+    public WritePolicy getWritePolicy() {
+        return writePolicy;
+    }
+
+    /**
+     * Get the policy deciding which data the cache evicts.
+     *
+     * @return the cache's replacement policy
+     */
+    public ReplacementPolicy getReplacementPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the factory which created the cache's replacement policy.
+     *
+     * @return the replacement policy's factory
+     */
+    public ReplacementPolicy.Factory getReplacementPolicyFactory() {
+        return policyFactory;
+    }
+
+    /**
+     * Switch to a new replacement policy created by the given factory.
+     * Items already in the cache are kept and inserted into the new
+     * policy in index order; their access history is forgotten.
+     *
+     * @param factory creates the new policy for this cache's shape
+     */
+    public void setReplacementPolicy(ReplacementPolicy.Factory factory) {
+        policy = factory.create(capacity, policyGroups());
+        policyFactory = factory;
+        for (int i = 0; i < capacity; i++) {
+            if (isOccupied(i)) {
+                policy.insert(i, keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Set the listener told of every change to the contents of the
+     * cache's indices, replacing any listener set before.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setSlotListener(SlotListener listener) {
+        this.slotListener = listener;
+    }
+
+    /**
+     * Set the prefetcher shown every demand request, replacing any set
+     * before. After serving each request the cache installs whichever
+     * predicted keys it does not hold and the backing store does, just
+     * as a miss would, except that a prefetch never evicts the data of
+     * the request it follows. Each CacheResponse reports what was
+     * prefetched, and whether the request hit prefetched data or missed
+     * on data a prefetch evicted.
+     *
+     * @param prefetcher the prefetcher, or null not to prefetch
+     */
+    public void setPrefetcher(Prefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+        this.predictions = prefetcher == null ? null : new int[prefetcher.getDegree()];
+    }
+
+    /**
+     * Set the latencies charged for the work each request does.
+     * The default charges only the lines read from a backing store file.
+     * @see CostModel
+     * @param costModel the cost model
+     */
+    public void setCostModel(CostModel costModel) {
+        if (costModel == null) {
+            throw new IllegalArgumentException("The cost model must not be null.");
+        }
+        this.costModel = costModel;
+    }
+
+    /**
+     * Get the latencies charged for the work each request does.
+     * @return the cost model
+     */
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Get the prefetcher shown every demand request.
+     *
+     * @return the prefetcher, or null if the cache does not prefetch
+     */
+    public Prefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * Get the number of groups the replacement policy splits
+     * the cache's indices into. Eviction never crosses a group.
+     *
+     * @return 1, since any index may be evicted for any key
+     */
+    protected int policyGroups() {
+        return 1;
+    }
+
     /**
      * Reset the cache and clear its contents.
      * Results in a cache state as if it was newly constructed.
+     * Under write-back, dirty data which was not flushed is discarded.
      */
     public void reset() {
+        if (slotListener != null) {
+            for (int i = 0; i < capacity; i++) {
+                if (isOccupied(i)) {
+                    slotListener.slotChanged(i, keys[i], 0, false);
+                }
+            }
+        }
         this.size = 0;
-        rank = new int[capacity];
-        data = new CacheItem[capacity];
+        policy.clear();
+        Arrays.fill(occupied, 0L);
+        index.clear();
+        firstFree = 0;
+        dirty = new boolean[capacity];
+        prefetched = new boolean[capacity];
+        evictedByPrefetch.clear();
+        if (prefetcher != null) {
+            prefetcher.reset();
+        }
     }
 
     /**
      * Given a key, find the location of the associated data
      * within the cache as an index.
+     * Takes constant time regardless of the cache's capacity.
      * @param key the key to search for
-     * @return the index of the associated data in the cache
+     * @return the index of the associated data in the cache, or -1 if not found
      */
     public int findData(int key) {
-        for (int i = 0; i < capacity; i++) {
-            if (this.data[i] != null && this.data[i].getKey() == key) {
-                return i;
-            }
-        }
-
-        return -1;
+        return index.get(key);
     }
 
     /**
@@ -110,19 +313,47 @@ public class Cache {
      * @throws NotFoundException if the requested key is not found
      */
     public CacheResponse requestData(int key) throws NotFoundException {
+        return requestData(key, new CacheResponse());
+    }
+
+    /**
+     * Request data from the cache given the data's associated key,
+     * filling in a caller-supplied response instead of allocating one.
+     * Behaves exactly like requestData(key) otherwise. A hit allocates
+     * nothing once out holds a CacheItem, so one response can be
+     * reused for every request of a long simulation.
+     * @see Cache#requestData(int)
+     *
+     * @param key the key for the requested data
+     * @param out the response to overwrite with the result
+     * @return out, holding the requested key-data pair
+     * @throws NotFoundException if the requested key is not found
+     */
+    public CacheResponse requestData(int key, CacheResponse out) throws NotFoundException {
         int foundIndex = findData(key);
         if (foundIndex < 0) {
-            int val = backingStore.fetchData(key);
-            installData(key, val);
-            //use a recursive call to find the data after installation
-            CacheResponse ret = requestData(key);
-            ret.setMiss(true);
-            return ret;
+            BackingStoreResponse fetched = backingStore.fetchData(key);
+            lastWriteBackTime = 0.0;
+            int idx = installData(key, fetched.getData());
+            //installation counts as the access, so ranks are already up to date
+            out.set(key, values[idx], true, missTime(fetched.getTimeTaken()), lastWriteBackTime);
+            if (lowerLevel != null) {
+                lowerLevel.describe(out);
+            } else {
+                out.setBelowTime(belowTime(fetched.getTimeTaken()));
+            }
+            if (prefetcher != null) {
+                prefetchAfter(key, idx, true, out);
+            }
+            return out;
         }
 
         updateRanks(foundIndex);
-        CacheItem retItem = data[foundIndex].copy();
-        return new CacheResponse(retItem, false);
+        out.set(key, values[foundIndex], false, costModel.getHitLatency(), 0.0);
+        if (prefetcher != null) {
+            prefetchAfter(key, foundIndex, false, out);
+        }
+        return out;
     }
 
     /**
@@ -131,8 +362,10 @@ public class Cache {
      * it first requests this key from the backing store
      * and installs it in the cache.
      * With the key in the cache, it then updates the associated
-     * data to equal newData locally within the cache
-     * and writes the updated value to the backing store.
+     * data to equal newData locally within the cache.
+     * Under write-through, the updated value is also written
+     * to the backing store; under write-back, the item is
+     * marked dirty and written when it is evicted or flushed.
      * Writing data thus triggers a data access
      * and affects rank.
      *
@@ -149,19 +382,61 @@ public class Cache {
      * @throws NotFoundException if the provided key does not exist in the backing store
      */
     public CacheResponse writeData(int key, int newData) throws NotFoundException {
+        return writeData(key, newData, new CacheResponse());
+    }
+
+    /**
+     * Write an updated data value for a particular key, filling in
+     * a caller-supplied response instead of allocating one.
+     * Behaves exactly like writeData(key, newData) otherwise.
+     * @see Cache#writeData(int, int)
+     *
+     * @param key the key whose data is to be updated
+     * @param newData the new data to write
+     * @param out the response to overwrite with the result
+     * @return out, holding the updated key-data pair
+     * @throws NotFoundException if the provided key does not exist in the backing store
+     */
+    public CacheResponse writeData(int key, int newData, CacheResponse out) throws NotFoundException {
         int idx = findData(key);
         boolean miss = false;
+        double time = costModel.getHitLatency();
+        double storeTime = 0.0;
+        double writeTime = 0.0;
         if (idx < 0) {
-            int data = backingStore.fetchData(key);
-            idx = installData(key, data);
+            BackingStoreResponse fetched = backingStore.fetchData(key);
+            lastWriteBackTime = 0.0;
+            idx = installData(key, fetched.getData());
             miss = true;
+            time = missTime(fetched.getTimeTaken());
+            storeTime = belowTime(fetched.getTimeTaken());
+            writeTime = lastWriteBackTime;
+        } else {
+            updateRanks(idx);
+        }
+        if (writePolicy == WritePolicy.WRITE_BACK) {
+            this.dirty[idx] = true;
+        } else {
+            writeTime += costModel.getWriteLatency() + costModel.getTransferTime()
+                    + belowTime(backingStore.pushData(key, newData).getTimeTaken());
+        }
+        this.values[idx] = newData;
+        if (slotListener != null) {
+            slotListener.slotChanged(idx, key, newData, true);
         }
-        backingStore.pushData(key, newData);
-        this.data[idx].setData(newData);
 
-        updateRanks(idx);
-        CacheResponse ret = new CacheResponse(this.data[idx].copy(), miss);
-        return ret;
+        out.set(key, newData, miss, time, writeTime);
+        if (miss) {
+            if (lowerLevel != null) {
+                lowerLevel.describe(out);
+            } else {
+                out.setBelowTime(storeTime);
+            }
+        }
+        if (prefetcher != null) {
+            prefetchAfter(key, idx, miss, out);
+        }
+        return out;
     }
 
 
@@ -169,10 +444,20 @@ public class Cache {
      * Get the rank of the CacheItem with the specified key.
      * Rank encodes the relative access history of CacheItems.
      * A rank of 0 is the most recently accessed item,
-     * with larger ranks encoding accesses further in the past.
+     * with larger ranks encoding accesses further in the past:
+     * an item's rank is the number of accesses to other items in the
+     * cache since its own last access, so after accesses to A, B and
+     * B again, A has rank 2.
      * Data can be accessed by either a read (i.e. requestData())
      * or a write (i.e. writeData())
      *
+     * This holds for the default least-recently-used policy. In general
+     * the rank is the item's position in the order the replacement policy
+     * would evict the cache, with the next victim ranked highest.
+     * @see ReplacementPolicy#rankOf
+     *
+     * Under least-recently-used the rank takes constant time; other
+     * policies may walk their order, so it is best kept off hot paths.
      *
      * If the requested key does not exist in the cache,
      * return a special value of -1.
@@ -185,28 +470,17 @@ public class Cache {
         if (idx < 0) {
             return -1;
         }
-        return rank[idx];
+        return policy.rankOf(idx);
     }
 
     /**
      * Update ranks of CacheItems in the cache given that
      * the item with the specified index was just accessed.
+     * Takes constant time under every shipped policy.
      * @param index the index of the CacheItem just accessed.
      */
     protected void updateRanks(int index) {
-        rank[index] = 0;
-
-        for (int i = 0; i < index; i++) {
-            if (this.data[i] != null) {
-                this.rank[i] += 1;
-            }
-        }
-        for (int i = index + 1; i < this.capacity; i++) {
-            if (this.data[i] != null) {
-                this.rank[i] += 1;
-            }
-        }
-
+        policy.access(index);
     }
 
 //    /**
@@ -300,87 +574,301 @@ public class Cache {
 //    }
 
     /**
-     * Install the key-data pair into the cache as a CacheItem,
+     * Install the key-data pair into the cache,
      * evicting a previously accessed cache item if necessary.
-     * Returns the index in which the CacheItem was stored.
+     * Returns the index in which the pair was stored.
      * If the cache is not full, the data is installed
      * in the smallest index which is empty.
-     * This method does not update ranks of cache items, it
-     * only manually installs the data into the cache.
+     * The replacement policy is told of the new item,
+     * and installing it counts as its access, so it becomes
+     * the most recently used.
      *
      * @param key the key of the data to install in the cache.
      * @param data the data to install in the cache.
-     * @return the index in the cache where the CacheItem is installed.
+     * @return the index in the cache where the pair is installed.
      */
     protected int installData(int key, int data) {
         int insertIndex = -1;
-        if (this.size >= this.capacity) {
+        if (!hasRoomFor(key)) {
             insertIndex = evictData(key);
         }
 
         if (insertIndex < 0) {
-            for (int i = 0; i < this.capacity; i++) {
-                if (this.data[i] == null) {
-                    insertIndex = i;
-                    break;
-                }
-            }
+            insertIndex = findEmptySlot(key);
         }
 
-        this.data[insertIndex] = new CacheItem(key, data);
+        this.keys[insertIndex] = key;
+        this.values[insertIndex] = data;
+        this.occupied[insertIndex >>> 6] |= 1L << insertIndex;
+        this.index.put(key, insertIndex);
+        this.policy.insert(insertIndex, key);
+        this.prefetched[insertIndex] = false;
         this.size++;
+        if (slotListener != null) {
+            slotListener.slotChanged(insertIndex, key, data, true);
+        }
         return insertIndex;
     }
 
     /**
-     * Find the index in the cache of where to evict data
-     * to make room for the incoming key-data pair to be installed.
-     * If the cache is not full, returns -1 to indicate no eviction required.
+     * Check whether the incoming key can be installed without evicting,
+     * i.e. whether the cache is not yet full.
      *
      * @param inKey the incoming key to be installed
-     * @return the index in the cache from where to evict old data
+     * @return true if and only if an empty index is available for inKey
      */
-    protected int findEvictCandidate(int inKey) {
-        int max = -1;
-        int maxIndex = -1;
+    protected boolean hasRoomFor(int inKey) {
+        return size < capacity;
+    }
 
-        for (int i = 0; i < this.capacity; i++) {
-            if (this.rank[i] > max) {
-                max = this.rank[i];
-                maxIndex = i;
-            }
+    /**
+     * Find the smallest empty index in which the incoming key may be
+     * installed. Must only be called when hasRoomFor(inKey) is true.
+     *
+     * @param inKey the incoming key to be installed
+     * @return an empty index in the cache
+     */
+    protected int findEmptySlot(int inKey) {
+        //skip 64 occupied indices at a time
+        int word = firstFree >>> 6;
+        long free = ~occupied[word] & (-1L << firstFree);
+        while (free == 0) {
+            free = ~occupied[++word];
         }
+        firstFree = (word << 6) + Long.numberOfTrailingZeros(free);
+        return firstFree;
+    }
 
-        return maxIndex;
+    /**
+     * Check whether an index holds data.
+     *
+     * @param index an index in the cache
+     * @return true if and only if the index is occupied
+     */
+    protected boolean isOccupied(int index) {
+        return (occupied[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Find the index in the cache of where to evict data
+     * to make room for the incoming key-data pair to be installed,
+     * as chosen by the replacement policy.
+     * Must only be called when the cache is full.
+     *
+     * @param inKey the incoming key to be installed
+     * @return the index in the cache from where to evict old data
+     */
+    protected int findEvictCandidate(int inKey) {
+        return policy.selectVictim(0, inKey);
     }
 
     /**
      * Evict data from the cache to make room for incoming data
      * whose key is the argument inKey.
-     * The data to be evicted is the item with highest rank,
+     * The data to be evicted is chosen by the replacement policy;
+     * under least-recently-used it is the item with highest rank,
      * i.e. the cache item accessed furthest in the past.
+     * If that item is dirty, it is first written back to the backing store.
      * Returns the index of the evicted data.
      * If the cache is not full or the incoming key is already in the cache,
      * no data is evicted and -1 is returned.
      *
      * @param inKey the incoming key to be installed
      * @return the index where data was evicted or -1
+     * @throws IllegalStateException if dirty data cannot be written back
+     * because the backing store no longer holds its key
      */
     public int evictData(int inKey) {
-        if (size < capacity) {
+        if (hasRoomFor(inKey)) {
             return -1;
         }
         int index = findData(inKey);
-        if (index > 0) {
+        if (index >= 0) {
             return -1;
         }
 
         index = findEvictCandidate(inKey);
-        this.data[index] = null;
-        this.size--;
+        evictSlot(index);
         return index;
     }
 
+    /**
+     * Empty an occupied index, writing its data back first if it is dirty,
+     * and record the time taken by the write back in lastWriteBackTime.
+     *
+     * @param index the index to empty
+     * @throws IllegalStateException if dirty data cannot be written back
+     * because the backing store no longer holds its key
+     */
+    protected void evictSlot(int index) {
+        lastWriteBackTime = 0.0;
+        if (this.dirty[index]) {
+            try {
+                lastWriteBackTime = writeBack(index);
+            } catch (NotFoundException nfe) {
+                throw new IllegalStateException("Backing store lost key " + this.keys[index], nfe);
+            }
+        }
+        removeSlot(index);
+        lastWriteBackTime += backingStore.acceptVictim(this.keys[index], this.values[index]);
+    }
+
+    /**
+     * Remove a key from the cache without writing it back, even if
+     * it is dirty. Used to keep lower and upper cache levels
+     * consistent; the caller must first save any dirty data.
+     * @see CacheLevel
+     *
+     * @param key the key to remove
+     * @return true if and only if the key was cached
+     */
+    public boolean invalidate(int key) {
+        int idx = findData(key);
+        if (idx < 0) {
+            return false;
+        }
+        this.dirty[idx] = false;
+        removeSlot(idx);
+        return true;
+    }
+
+    /**
+     * Empty an occupied index, discarding its data.
+     * @param index the index to empty
+     */
+    protected void removeSlot(int index) {
+        this.index.remove(this.keys[index]);
+        this.policy.remove(index);
+        this.occupied[index >>> 6] &= ~(1L << index);
+        this.firstFree = Math.min(this.firstFree, index);
+        this.size--;
+        if (slotListener != null) {
+            slotListener.slotChanged(index, this.keys[index], 0, false);
+        }
+    }
+
+    /**
+     * Show the prefetcher a demand request just served, install the keys
+     * it predicts, and record the outcome in the request's response.
+     * The request's own index is never evicted, so if the replacement
+     * policy would choose it, the remaining predictions are dropped.
+     * A prediction is fetched before any victim is chosen, so the
+     * replacement policy is only consulted for keys the store holds,
+     * and the fetch of a dropped prediction is not charged.
+     *
+     * @param key the key just requested
+     * @param idx the index now holding it
+     * @param miss whether the request missed
+     * @param out the response to the request
+     */
+    protected void prefetchAfter(int key, int idx, boolean miss, CacheResponse out) {
+        boolean prefetchHit = !miss && prefetched[idx];
+        prefetched[idx] = false;
+        boolean pollution = miss && evictedByPrefetch.remove(key) != IntIntHashMap.NO_VALUE;
+
+        int count = prefetcher.predict(key, miss, predictions);
+        int installed = 0;
+        double time = 0.0;
+        double writeTime = 0.0;
+        for (int i = 0; i < count; i++) {
+            int predicted = predictions[i];
+            if (findData(predicted) >= 0) {
+                continue;
+            }
+            BackingStoreResponse fetched;
+            try {
+                fetched = backingStore.fetchData(predicted);
+            } catch (NotFoundException nfe) {
+                continue;
+            }
+            if (!hasRoomFor(predicted)) {
+                int victim = findEvictCandidate(predicted);
+                if (victim == idx) {
+                    break;
+                }
+                if (evictedByPrefetch.size() >= 4 * capacity) {
+                    //forget keys evicted long ago rather than grow without bound
+                    evictedByPrefetch.clear();
+                }
+                evictedByPrefetch.put(keys[victim], 0);
+                evictSlot(victim);
+                writeTime += lastWriteBackTime;
+            }
+            time += costModel.getTransferTime() + belowTime(fetched.getTimeTaken());
+            prefetched[installData(predicted, fetched.getData())] = true;
+            evictedByPrefetch.remove(predicted);
+            installed++;
+        }
+
+        out.setWriteTime(out.getWriteTime() + writeTime);
+        out.setPrefetch(installed, prefetchHit, pollution, time);
+    }
+
+    /**
+     * Write the data at the given index to the backing store
+     * and mark it clean.
+     * @param index the index of the dirty data
+     * @return the time taken by the write back, as the cost model charges it
+     * @throws NotFoundException if the backing store does not hold the key
+     */
+    protected double writeBack(int index) throws NotFoundException {
+        double time = belowTime(backingStore.pushData(this.keys[index], this.values[index]).getTimeTaken());
+        this.dirty[index] = false;
+        return costModel.getWriteBackLatency() + costModel.getTransferTime() + time;
+    }
+
+    /**
+     * Get the time charged to a miss, given the time the
+     * backing store took to fetch the missing data.
+     * @param fetchTime the time reported by the backing store
+     * @return the time of the miss, as the cost model charges it
+     */
+    protected double missTime(double fetchTime) {
+        return costModel.getHitLatency() + costModel.getMissPenalty()
+                + costModel.getTransferTime() + belowTime(fetchTime);
+    }
+
+    /**
+     * Convert a time reported by the backing store into the cost
+     * model's units: a file's lines are scaled by the line cost,
+     * and a lower cache level has charged its own costs already.
+     * @param storeTime the time reported by the backing store
+     * @return the time charged for it
+     */
+    protected double belowTime(double storeTime) {
+        return lowerLevel == null ? storeTime * costModel.getLineCost() : storeTime;
+    }
+
+    /**
+     * Write all dirty data back to the backing store,
+     * leaving the contents and ranks of the cache unchanged.
+     * Does nothing under write-through, where no item is ever dirty.
+     *
+     * @return the total time taken by the backing store writes
+     * @throws NotFoundException if the backing store does not hold a dirty key
+     */
+    public double flush() throws NotFoundException {
+        double time = 0.0;
+        for (int i = 0; i < this.capacity; i++) {
+            if (this.dirty[i]) {
+                time += writeBack(i);
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Check whether the data cached for a key has been written
+     * but not yet written back to the backing store.
+     *
+     * @param key the key to check
+     * @return true if and only if the key is cached and dirty
+     */
+    public boolean isDirty(int key) {
+        int idx = findData(key);
+        return idx >= 0 && this.dirty[idx];
+    }
+
     /**
      * Get a copy of the current contents of the cache
      * as a list of CacheItems. The returned list has size
@@ -388,14 +876,16 @@ public class Cache {
      * is equal to the index of the CacheItem stored in the cache.
      * If the cache is not full, indices not holding data
      * are set to null in the returned list.
+     * The CacheItems are built by this call, so it is best
+     * kept off hot paths.
      *
      * @return a list of CacheItems
      */
     public ArrayList<CacheItem> getContents() {
         ArrayList<CacheItem> contents = new ArrayList<CacheItem>(this.capacity);
         for (int i = 0; i < this.capacity; i++) {
-            if (data[i] != null) {
-                contents.add(data[i].copy());
+            if (isOccupied(i)) {
+                contents.add(new CacheItem(keys[i], values[i]));
             } else {
                 contents.add(null);
             }
@@ -50,6 +50,17 @@ public class CacheItem {
         this.data = data;
     }
 
+    /**
+     * Set both the key and data for this CacheItem,
+     * so that one item can be reused across requests.
+     * @param key the integer key
+     * @param data the integer data value
+     */
+    void set(int key, int data) {
+        this.key = key;
+        this.data = data;
+    }
+
     /**
      * Get a copy of this CacheItem with same key and data.
      * @return a new CacheItem with same values.
@@ -0,0 +1,242 @@
+/**
+ * A backing store served by another Cache, so that caches can be
+ * stacked into a memory hierarchy. Each cache in the hierarchy has
+ * its own capacity, replacement policy and write policy, and each
+ * level its own InclusionPolicy:
+ *
+ * <pre>
+ * Cache l3 = new Cache(1024, new BackingStore("store.txt"));
+ * Cache l2 = new Cache(128, new CacheLevel(l3, InclusionPolicy.NINE));
+ * Cache l1 = new Cache(16, new CacheLevel(l2, InclusionPolicy.INCLUSIVE));
+ * </pre>
+ *
+ * Requests to the top cache, l1, then simulate the whole hierarchy in
+ * one pass, for example through new CacheSim(l1). A miss in the upper
+ * cache is a request to the lower one, and so on down to the file;
+ * writes and write backs reach the lower cache as writes to it. Each
+ * response from the upper cache reports the level which served it and
+ * the latency seen at each level on the way.
+ *
+ * Under INCLUSIVE the level takes the lower cache's slot listener,
+ * to invalidate keys evicted from the lower cache in the upper one.
+ * Dirty data invalidated this way is written to the lower cache's
+ * backing store, and the time is charged as write time. Under
+ * EXCLUSIVE the upper cache's victims move down into the lower cache;
+ * dirty victims are written past it to its backing store first, and a
+ * dirty key moving up out of the lower cache is likewise written back
+ * as it leaves.
+ *
+ * Each level serves one upper cache, and the lower cache must not be
+ * used except through it. Reset each cache separately.
+ * @see CacheResponse#getLevel
+ */
+public class CacheLevel extends BackingStore {
+
+    private Cache lower;
+    private Cache upper;
+    private InclusionPolicy inclusion;
+    //the lower cache's response to the last fetch through this level
+    private CacheResponse last;
+    //reused for writes to the lower cache, leaving last alone
+    private CacheResponse scratch;
+    //time spent writing back dirty data invalidated in the upper cache
+    private double invalidationTime;
+    private long backInvalidations;
+    //whether a key is being invalidated in the upper cache, the key,
+    //and the newest dirty data for it written back from the levels above
+    private boolean invalidatingActive;
+    private int invalidating;
+    private boolean invalidatedDirty;
+    private int invalidatedData;
+
+    /**
+     * Serve a cache from a lower cache, non-inclusively.
+     * @param lower the lower cache
+     */
+    public CacheLevel(Cache lower) {
+        this(lower, InclusionPolicy.NINE);
+    }
+
+    /**
+     * Serve a cache from a lower cache.
+     * @param lower the lower cache
+     * @param inclusion how the upper cache's contents relate to the lower's
+     */
+    public CacheLevel(Cache lower, InclusionPolicy inclusion) {
+        super(lower.backingStore.getFileName());
+        this.lower = lower;
+        this.inclusion = inclusion;
+        last = new CacheResponse();
+        scratch = new CacheResponse();
+        if (inclusion == InclusionPolicy.INCLUSIVE) {
+            lower.setSlotListener(this::lowerChanged);
+        }
+    }
+
+    /**
+     * Get the lower cache this level is served by.
+     * @return the lower cache
+     */
+    public Cache getLower() {
+        return lower;
+    }
+
+    /**
+     * Get the inclusion policy between the upper and lower caches.
+     * @return the inclusion policy
+     */
+    public InclusionPolicy getInclusionPolicy() {
+        return inclusion;
+    }
+
+    /**
+     * Get the number of keys invalidated in the upper cache
+     * because the lower cache evicted them.
+     * @return the number of back-invalidations
+     */
+    public long getBackInvalidationCount() {
+        return backInvalidations;
+    }
+
+    /**
+     * Fetch data through the lower cache. Under EXCLUSIVE, data the
+     * lower cache holds is removed from it, and other data is fetched
+     * from below it without being installed in it.
+     * @param key the key of the requested data item
+     * @return the data with requested key, and the time the lower cache took
+     * @throws NotFoundException if the requested key is not found
+     */
+    @Override
+    public BackingStoreResponse fetchData(int key) throws NotFoundException {
+        invalidationTime = 0.0;
+        if (inclusion != InclusionPolicy.EXCLUSIVE) {
+            lower.requestData(key, last);
+            last.setWriteTime(last.getWriteTime() + invalidationTime);
+            return new BackingStoreResponse(last.getData().getData(), last.getTime());
+        }
+
+        int idx = lower.findData(key);
+        if (idx >= 0) {
+            int data = lower.values[idx];
+            double writeTime = 0.0;
+            if (lower.dirty[idx]) {
+                writeTime = lower.writeBack(idx);
+            }
+            lower.invalidate(key);
+            double time = lower.costModel.getHitLatency();
+            last.set(key, data, false, time, writeTime);
+            return new BackingStoreResponse(data, time);
+        }
+        BackingStoreResponse fetched = lower.backingStore.fetchData(key);
+        double time = lower.missTime(fetched.getTimeTaken());
+        last.set(key, fetched.getData(), true, time, 0.0);
+        if (lower.lowerLevel != null) {
+            lower.lowerLevel.describe(last);
+        } else {
+            last.setBelowTime(lower.belowTime(fetched.getTimeTaken()));
+        }
+        return new BackingStoreResponse(fetched.getData(), time);
+    }
+
+    /**
+     * Write data to the lower cache, as a write to it. Under EXCLUSIVE,
+     * data the lower cache does not hold is written past it instead.
+     * @param key the key of the data item to update
+     * @param newData the new data to write
+     * @return the written data, and the time the lower cache took
+     *         including its own writes
+     * @throws NotFoundException if the specified key is not found
+     */
+    @Override
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+        if (invalidatingActive && key == invalidating) {
+            //written back as the upper cache gives the key up; lowerChanged() saves it
+            invalidatedDirty = true;
+            invalidatedData = newData;
+            return new BackingStoreResponse(newData, 0.0);
+        }
+        if (inclusion == InclusionPolicy.EXCLUSIVE && lower.findData(key) < 0) {
+            double time = lower.belowTime(lower.backingStore.pushData(key, newData).getTimeTaken());
+            return new BackingStoreResponse(newData, time);
+        }
+        invalidationTime = 0.0;
+        lower.writeData(key, newData, scratch);
+        return new BackingStoreResponse(newData, scratch.getTime() + scratch.getWriteTime() + invalidationTime);
+    }
+
+    /**
+     * Under EXCLUSIVE, install the upper cache's victim in the lower
+     * cache, evicting from it if need be. Otherwise does nothing.
+     * @param key the key of the evicted data
+     * @param data the evicted data
+     * @return the time taken by any write back from the lower cache
+     */
+    @Override
+    public double acceptVictim(int key, int data) {
+        if (inclusion != InclusionPolicy.EXCLUSIVE || lower.findData(key) >= 0) {
+            return 0.0;
+        }
+        lower.lastWriteBackTime = 0.0;
+        lower.installData(key, data);
+        return lower.lastWriteBackTime;
+    }
+
+    @Override
+    public CacheLevel getCacheLevel() {
+        return this;
+    }
+
+    /**
+     * Attach the upper cache served by this level.
+     * Called by the upper cache as it is constructed.
+     */
+    void attach(Cache upper) {
+        if (this.upper != null) {
+            throw new IllegalStateException("A cache level serves only one cache.");
+        }
+        this.upper = upper;
+    }
+
+    /**
+     * Record in the upper cache's response to a miss the levels
+     * which served the fetch just made through this level.
+     */
+    void describe(CacheResponse out) {
+        out.setBelow(last);
+        out.setWriteTime(out.getWriteTime() + last.getWriteTime());
+    }
+
+    /**
+     * Under INCLUSIVE, invalidate in the upper cache each key leaving
+     * the lower one, saving its data if dirty. The lower cache is in
+     * the middle of removing the key, so the newest dirty data, from
+     * the upper cache or, if the invalidation reaches them, the levels
+     * above it, is written past the lower cache to its backing store.
+     */
+    private void lowerChanged(int slot, int oldKey, int data, boolean occupied) {
+        if (upper == null || occupied) {
+            return;
+        }
+        int idx = upper.findData(oldKey);
+        if (idx < 0) {
+            return;
+        }
+        invalidatedDirty = upper.dirty[idx];
+        invalidatedData = upper.values[idx];
+        invalidating = oldKey;
+        invalidatingActive = true;
+        try {
+            upper.invalidate(oldKey);
+        } finally {
+            invalidatingActive = false;
+        }
+        backInvalidations++;
+        if (invalidatedDirty) {
+            try {
+                invalidationTime += lower.belowTime(lower.backingStore.pushData(oldKey, invalidatedData).getTimeTaken());
+            } catch (NotFoundException nfe) {
+                throw new IllegalStateException("Backing store lost key " + oldKey, nfe);
+            }
+        }
+    }
+}
@@ -7,16 +7,47 @@ public class CacheResponse {
     private CacheItem data;
     private boolean miss;
     private double time;
+    private double writeTime;
+    //what the cache's prefetcher did on behalf of this request
+    private int prefetches;
+    private boolean prefetchHit;
+    private boolean pollution;
+    private double prefetchTime;
+    //the level which served the request, 1 for the cache itself,
+    //and levelTimes[i] the latency seen at level i+2 on the way to it
+    private int level;
+    private double[] levelTimes;
+
+    /**
+     * Construct an empty CacheResponse, to be filled by the cache
+     * and reused across requests.
+     * @see Cache#requestData(int, CacheResponse)
+     */
+    public CacheResponse() {
+        this(null, false);
+    }
+
+    /**
+     * Construct a new CacheResponse object which took no time.
+     * @param data the CacheItem requested
+     * @param miss boolean whether the requested caused a cache miss
+     */
+    public CacheResponse(CacheItem data, boolean miss) {
+        this(data, miss, 0.0);
+    }
 
     /**
      * Construct a new CacheResponse object
      * @param data the CacheItem requested
      * @param miss boolean whether the requested caused a cache miss
+     * @param time the simulated time taken to serve the request
      */
     public CacheResponse(CacheItem data, boolean miss, double time) {
         this.data = data;
         this.miss = miss;
         this.time = time;
+        this.level = miss ? 2 : 1;
+        this.levelTimes = miss ? new double[] {time} : null;
     }
 
 
@@ -30,6 +61,21 @@ public class CacheResponse {
     }
 
 
+    /**
+     * Get the time spent writing to the backing store on behalf
+     * of this request. Under write-through this is the cost of the
+     * write itself; under write-back it is the deferred cost of
+     * writing back dirty data evicted to make room for the request.
+     * @return the backing store write time
+     */
+    public double getWriteTime() {
+        return writeTime;
+    }
+
+    public void setWriteTime(double writeTime) {
+        this.writeTime = writeTime;
+    }
+
     /**
      * Set boolean for cache miss on this CacheResponse.
      * @param miss boolean for cache miss value
@@ -55,4 +101,139 @@ public class CacheResponse {
         return data;
     }
 
+    /**
+     * Get the number of keys the cache's prefetcher installed
+     * after serving this request.
+     * @see Cache#setPrefetcher
+     * @return the number of keys prefetched
+     */
+    public int getPrefetches() {
+        return prefetches;
+    }
+
+    /**
+     * Gets whether this request hit data installed by a prefetch,
+     * the first request to do so since it was installed.
+     * @return true if and only if the hit was due to a prefetch
+     */
+    public boolean getPrefetchHit() {
+        return prefetchHit;
+    }
+
+    /**
+     * Gets whether this request missed on data which a prefetch
+     * had evicted, so that prefetching caused the miss.
+     * @return true if and only if the miss was due to cache pollution
+     */
+    public boolean getPollution() {
+        return pollution;
+    }
+
+    /**
+     * Get the simulated time spent fetching the keys prefetched
+     * after this request. It is not part of getTime(), since
+     * prefetches need not delay the request itself.
+     * @return the prefetch fetch time
+     */
+    public double getPrefetchTime() {
+        return prefetchTime;
+    }
+
+    /**
+     * Get the level of the memory hierarchy which served this request:
+     * 1 for a hit in the cache itself, 2 for the level below it, and so
+     * on down to the backing store file. A cache in front of a plain
+     * BackingStore serves misses from level 2, its backing store.
+     * @see CacheLevel
+     * @return the serving level, counting from 1
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the latency of this request as seen at one level of the
+     * memory hierarchy: the time that level took to serve its part of
+     * the request, including the time of every level below it which
+     * the request reached. Level 1 is the cache itself, so
+     * getLevelTime(1) equals getTime().
+     * @param level a level from 1 to getLevel()
+     * @return the time taken from that level down
+     */
+    public double getLevelTime(int level) {
+        if (level < 1 || level > this.level) {
+            throw new IllegalArgumentException("The request did not reach level " + level + ".");
+        }
+        return level == 1 ? time : levelTimes[level - 2];
+    }
+
+    /**
+     * Record the time the backing store took to serve a miss, when
+     * that was part of a longer time charged to the miss.
+     * @param storeTime the backing store's time
+     */
+    void setBelowTime(double storeTime) {
+        levelTimes[0] = storeTime;
+    }
+
+    /**
+     * Record that a miss was served through a lower cache level,
+     * copying that level's own response to the fetch.
+     * @param below the lower cache's response
+     */
+    void setBelow(CacheResponse below) {
+        if (levelTimes == null || levelTimes.length < below.level) {
+            levelTimes = new double[Math.max(below.level, 4)];
+        }
+        levelTimes[0] = below.time;
+        if (below.level > 1) {
+            System.arraycopy(below.levelTimes, 0, levelTimes, 1, below.level - 1);
+        }
+        level = below.level + 1;
+    }
+
+    /**
+     * Record what the cache's prefetcher did on behalf of this request.
+     * @param prefetches the number of keys prefetched
+     * @param prefetchHit whether the request hit prefetched data first
+     * @param pollution whether the request missed on data a prefetch evicted
+     * @param prefetchTime the time spent fetching prefetched keys
+     */
+    void setPrefetch(int prefetches, boolean prefetchHit, boolean pollution, double prefetchTime) {
+        this.prefetches = prefetches;
+        this.prefetchHit = prefetchHit;
+        this.pollution = pollution;
+        this.prefetchTime = prefetchTime;
+    }
+
+    /**
+     * Overwrite every field of this response, reusing its
+     * CacheItem when it has one rather than allocating another.
+     * @param key the key of the data requested
+     * @param data the data requested
+     * @param miss whether the request caused a cache miss
+     * @param time the simulated time taken to serve the request
+     * @param writeTime the backing store write time
+     */
+    void set(int key, int data, boolean miss, double time, double writeTime) {
+        if (this.data == null) {
+            this.data = new CacheItem(key, data);
+        } else {
+            this.data.set(key, data);
+        }
+        this.miss = miss;
+        this.time = time;
+        this.writeTime = writeTime;
+        if (miss) {
+            if (levelTimes == null) {
+                levelTimes = new double[4];
+            }
+            levelTimes[0] = time;
+            level = 2;
+        } else {
+            level = 1;
+        }
+        setPrefetch(0, false, false, 0.0);
+    }
+
 }
@@ -1,5 +1,8 @@
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
  * A class to simulate a sequence of requests to a cache
@@ -8,17 +11,68 @@ import java.util.ArrayList;
  * in a cache miss or cache hit.
  *
  * This class supports writing out the record to an output stream.
+ *
+ * Rather than a snapshot of the whole cache per request, the record
+ * holds the cache's state when recording began and a log of every
+ * change to a slot since, as reported by the cache's SlotListener.
+ * A request costs at most a few log entries, and snapshots are only
+ * rebuilt, by replaying the log, when the history is asked for.
  */
 public class CacheSim {
 
+    //the number of requests read from a trace at a time
+    private static final int CHUNK_SIZE = 4096;
+
     //the cache object being simulated
     private Cache cache;
-    //total number of cache misses
-    private int cacheMisses;
-    //the sequence of responses received from the cache
+    //running totals over every response received from the cache
+    private long cacheMisses;
+    private long cacheHits;
+    private long reads;
+    private long writes;
+    private long failures;
+    private double totalTime;
+    private double totalWriteTime;
+    //the distribution of the responses' times
+    private LatencyHistogram latencies;
+    //running totals of the cache's prefetching, if it prefetches
+    private long prefetches;
+    private long usefulPrefetches;
+    private long pollutionMisses;
+    private double totalPrefetchTime;
+    //servedBy[l] counts the requests served by level l of the memory hierarchy
+    private long[] servedBy;
+    //the sequence of responses received from the cache, if retained
     private ArrayList<CacheResponse> responses;
-    //the text representation of the simulation record
-    private ArrayList<String> simRecord;
+    private boolean retainResponses;
+    //reused for every response when responses are not retained
+    private CacheResponse scratch;
+
+    //whether the cache's history is recorded
+    private boolean historyEnabled;
+    //the cache's contents when recording began
+    private boolean[] baseOccupied;
+    private int[] baseKeys;
+    private int[] baseValues;
+    //the log of slot changes since: slot, key, data and whether the slot is occupied
+    private int[] logSlots;
+    private int[] logKeys;
+    private int[] logData;
+    private boolean[] logOccupied;
+    private int logSize;
+    //per history entry: how much of the log had been applied, or FAILED
+    private int[] record;
+    private int recordSize;
+
+    //marks a history entry for a request whose key was not found
+    private static final int FAILED = -1;
+
+    //the cache's backing store, when prefetching through it
+    private AsyncBackingStore prefetchStore;
+    //how many requests ahead of the current one to prefetch, or 0
+    private int lookahead;
+    //the uncached keys of the lookahead window being queued
+    private int[] window;
 
     /**
      * Construct a new cache and CacheSim using a
@@ -28,21 +82,29 @@ public class CacheSim {
      * @param backingStoreFile the file path to the cache's backing store
      */
     public CacheSim(int capacity, String backingStoreFile) {
-        cache = new Cache(capacity, backingStoreFile);
-        cacheMisses = 0;
-        responses = new ArrayList<>();
-        simRecord = new ArrayList<>();
+        this(new Cache(capacity, backingStoreFile));
     }
 
     /**
      * Construct a new CacheSim using an existing cache.
+     * The CacheSim becomes the cache's SlotListener, and its
+     * history starts from the cache's current contents.
      * @param cache the existing cache
      */
     public CacheSim(Cache cache) {
         this.cache = cache;
-        cacheMisses = 0;
         responses = new ArrayList<>();
-        simRecord = new ArrayList<>();
+        retainResponses = false;
+        scratch = new CacheResponse();
+        servedBy = new long[3];
+        latencies = new LatencyHistogram();
+        resetMetrics();
+        logSlots = new int[16];
+        logKeys = new int[16];
+        logData = new int[16];
+        logOccupied = new boolean[16];
+        record = new int[16];
+        setHistoryEnabled(true);
     }
 
     /**
@@ -54,16 +116,57 @@ public class CacheSim {
      * @param keys the sequence of keys
      */
     public void simulate(int[] keys) {
-        simRecord.add(this.cacheToString());
-        for (int ref : keys) {
+        recordState();
+        int ahead = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int ref = keys[i];
+            ahead = prefetch(keys, ahead, i, keys.length);
             try {
-                CacheResponse resp = cache.requestData(ref);
-                responses.add(resp);
+                read(ref);
 
             } catch (NotFoundException nfe) {
-                simRecord.add("FAILURE");
+                recordFailure();
             }
-            simRecord.add(this.cacheToString());
+            recordState();
+        }
+    }
+
+    /**
+     * Simulate a sequence of cache requests given a sequence of
+     * keys to request, evicting optimally: whenever the cache must
+     * evict, it evicts the item whose next request in keys is furthest
+     * away, or which is never requested again. No policy can miss less
+     * often on the same keys, so this bounds what any replacement policy
+     * could achieve. Results are recorded exactly as by simulate(), and
+     * misses are reported by getCacheMisses() as usual.
+     *
+     * The cache evicts through a BeladyPolicy for these keys only
+     * while they are simulated. Afterwards it switches back to a new
+     * policy from the factory of the one it had, which holds the
+     * cache's contents with their access history forgotten.
+     * @see BeladyPolicy
+     * @see Cache#setReplacementPolicy
+     * @param keys the sequence of keys
+     */
+    public void simulateOptimal(int[] keys) {
+        ReplacementPolicy.Factory previous = cache.getReplacementPolicyFactory();
+        cache.setReplacementPolicy((capacity, groups) -> new BeladyPolicy(capacity, groups, keys));
+        BeladyPolicy optimal = (BeladyPolicy) cache.getReplacementPolicy();
+
+        try {
+            recordState();
+            for (int i = 0; i < keys.length; i++) {
+                optimal.setPosition(i);
+                try {
+                    read(keys[i]);
+
+                } catch (NotFoundException nfe) {
+                    recordFailure();
+                }
+                recordState();
+            }
+        } finally {
+            cache.setReplacementPolicy(previous);
         }
     }
 
@@ -82,65 +185,316 @@ public class CacheSim {
             return;
         }
 
-        simRecord.add(this.cacheToString());
+        recordState();
         for (int i = 0; i < keys.size(); i++) {
             if (keys.get(i) == null) {
                 continue;
             }
 
-            CacheResponse resp = null;
             try {
                 if (data.get(i) == null) {
-                    resp = cache.requestData(keys.get(i));
+                    read(keys.get(i));
                 } else {
-                    resp = cache.writeData(keys.get(i), data.get(i));
+                    write(keys.get(i), data.get(i));
                 }
-                responses.add(resp);
-                simRecord.add(this.cacheToString());
+                recordState();
             } catch (NotFoundException nfe) {
-                simRecord.add("FAILURE");
+                recordFailure();
             }
         }
     }
 
+    /**
+     * Simulate the next chunk of a sequence of cache requests
+     * held in primitive arrays, as read by a TraceReader.
+     * For each index i from 0 to count-1, write data[i] using keys[i]
+     * as the key if writes[i] is true, and otherwise request the
+     * existing data, recording results exactly as the list version does.
+     * Calls continue the same record, so the initial state of
+     * the cache is only recorded when the record is empty.
+     * @see TraceReader#read
+     * @param keys the keys of the requests
+     * @param data the data of the writes
+     * @param writes whether each request is a write
+     * @param count the number of requests to simulate
+     */
+    public void simulate(int[] keys, int[] data, boolean[] writes, int count) {
+        if (recordSize == 0) {
+            recordState();
+        }
+        int ahead = 0;
+        for (int i = 0; i < count; i++) {
+            ahead = prefetch(keys, ahead, i, count);
+            try {
+                if (writes[i]) {
+                    write(keys[i], data[i]);
+                } else {
+                    read(keys[i]);
+                }
+                recordState();
+            } catch (NotFoundException nfe) {
+                recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Simulate every remaining request of a trace, in order,
+     * recording results exactly as the list version does.
+     * Requests are read a chunk at a time into reused arrays,
+     * so the trace is never held in memory as a whole.
+     * @param trace the trace to replay
+     * @throws IOException if the trace cannot be read
+     * @throws NumberFormatException if the trace is malformed
+     */
+    public void simulate(TraceSource trace) throws IOException {
+        int[] keys = new int[CHUNK_SIZE];
+        int[] data = new int[CHUNK_SIZE];
+        boolean[] writes = new boolean[CHUNK_SIZE];
+        int count;
+        while ((count = trace.read(keys, data, writes)) > 0) {
+            simulate(keys, data, writes, count);
+        }
+    }
+
     /**
      * Reset the simulation, including history, current
      * cache state, and any metrics previously recorded.
      */
     public void reset() {
-        simRecord.clear();
-        cacheMisses = 0;
-        responses.clear();
+        resetMetrics();
         cache.reset();
+        clearHistory();
+    }
+
+    /**
+     * Turn recording of the cache's history on or off. It is on by
+     * default; turning it off saves the cost of logging slot changes
+     * when only metrics are wanted. Either way, any history recorded
+     * so far is discarded.
+     * @param enabled whether to record the cache's history
+     */
+    public void setHistoryEnabled(boolean enabled) {
+        historyEnabled = enabled;
+        cache.setSlotListener(enabled ? this::logChange : null);
+        clearHistory();
+    }
+
+    /**
+     * Prefetch the keys of upcoming requests while simulating, so that
+     * misses are loaded in batches ahead of time instead of one at a time
+     * when reached. Requests are split into windows of distance + 1, and
+     * as each window starts, the uncached keys of the next are queued as
+     * one batch with the cache's backing store, which must be an
+     * AsyncBackingStore, so that it loads while this one is served.
+     * Batches are decided by the simulation alone, so times do not
+     * depend on thread scheduling.
+     *
+     * Requests are still served in order, so misses, hits and history
+     * are exactly as without prefetching. Times differ: a miss served
+     * from a batch is charged only its share of the batch's pass over
+     * the store. Prefetching applies to simulate(int[]) and to traces,
+     * within each chunk read.
+     * @see AsyncBackingStore
+     * @param distance how many requests ahead to prefetch, or 0 not to prefetch
+     * @throws IllegalArgumentException if distance is negative, or positive while
+     *         the cache's backing store is not an AsyncBackingStore
+     */
+    public void setLookahead(int distance) {
+        if (distance < 0) {
+            throw new IllegalArgumentException("Lookahead must not be negative.");
+        }
+        if (distance > 0 && !(cache.backingStore instanceof AsyncBackingStore)) {
+            throw new IllegalArgumentException("Prefetching needs an AsyncBackingStore.");
+        }
+        lookahead = distance;
+        prefetchStore = distance > 0 ? (AsyncBackingStore) cache.backingStore : null;
+        window = distance > 0 ? new int[distance + 1] : null;
+    }
+
+    /**
+     * Choose whether to keep every CacheResponse received during
+     * the simulation, for getResponses(). They are not kept by
+     * default: the metrics below are running totals which do not
+     * need them, and keeping them costs memory for every request.
+     * @param retain whether to keep every response from now on
+     */
+    public void setRetainResponses(boolean retain) {
+        this.retainResponses = retain;
+    }
+
+    /**
+     * Get every CacheResponse received while responses were retained,
+     * in order.
+     * @see CacheSim#setRetainResponses
+     * @return a list of the retained responses
+     */
+    public ArrayList<CacheResponse> getResponses() {
+        return new ArrayList<>(responses);
     }
 
     /**
      * Get the total number of cache misses recorded
      * during the simulation.
-     * @return the total number of cache misses
+     * Takes constant time, like every metric of the simulation.
+     * @return the total number of cache misses, at most Integer.MAX_VALUE
      */
     public int getCacheMisses() {
-        int misses = 0;
-        for (CacheResponse resp : responses) {
-            if(resp.getMiss()) {
-                misses++;
-            }
-        }
-        return misses;
+        return (int) Math.min(cacheMisses, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the total number of cache hits recorded
+     * during the simulation.
+     * @return the total number of cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get the number of successful read requests.
+     * @return the number of reads
+     */
+    public long getReadCount() {
+        return reads;
+    }
+
+    /**
+     * Get the number of successful write requests.
+     * @return the number of writes
+     */
+    public long getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * Get the number of requests which failed
+     * because their key was not found.
+     * @return the number of failed requests
+     */
+    public long getFailureCount() {
+        return failures;
     }
+
     /**
      * Get the total time taken for the simulation.
      * The total time is the sum of the time taken for each cache response.
+     * Each time is also recorded in the latency histogram, from which
+     * their percentiles can be read.
+     * @see CacheSim#getLatencyHistogram
      * @return the total time taken for the simulation
      */
     public double getTotalSimulationTime() {
-        double totalTime = 0.0;
-        for (CacheResponse resp : responses) {
-            totalTime += resp.getTime();
-        }
         return totalTime;
     }
 
+    /**
+     * Get the total time spent writing to the backing store
+     * during the simulation, as reported by each cache response.
+     * This is kept apart from the total simulation time so that
+     * write-through and write-back caches can be compared.
+     * @return the total backing store write time
+     */
+    public double getTotalWriteTime() {
+        return totalWriteTime;
+    }
+
+    /**
+     * Get the histogram of the time taken by each cache response,
+     * as charged by the cache's cost model.
+     * @see Cache#setCostModel
+     * @return the latency histogram, reset with the simulation
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencies;
+    }
+
+    /**
+     * Get a percentile of the time taken by each cache response,
+     * such as 50 for the median, 99 or 99.9.
+     * @param percentile the percentile, from 0 to 100
+     * @return the response time at the percentile, within three significant digits
+     */
+    public double getLatencyPercentile(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Get the number of items the cache's prefetcher installed
+     * during the simulation.
+     * @see Cache#setPrefetcher
+     * @return the number of prefetches issued
+     */
+    public long getPrefetchCount() {
+        return prefetches;
+    }
+
+    /**
+     * Get the number of prefetches which were useful: items
+     * installed by a prefetch and then hit by a request.
+     * @return the number of useful prefetches
+     */
+    public long getUsefulPrefetchCount() {
+        return usefulPrefetches;
+    }
+
+    /**
+     * Get the number of misses on keys which a prefetch
+     * had evicted to make room for its own data.
+     * @return the number of misses caused by prefetch pollution
+     */
+    public long getPollutionCount() {
+        return pollutionMisses;
+    }
+
+    /**
+     * Get the accuracy of the cache's prefetcher: the fraction
+     * of prefetches issued which were useful.
+     * @return the prefetch accuracy, or 0 if nothing was prefetched
+     */
+    public double getPrefetchAccuracy() {
+        return prefetches == 0 ? 0.0 : (double) usefulPrefetches / prefetches;
+    }
+
+    /**
+     * Get the coverage of the cache's prefetcher: the fraction of
+     * the misses the cache would have had without it which useful
+     * prefetches turned into hits. Misses the prefetcher caused
+     * itself are counted as misses all the same.
+     * @return the prefetch coverage, or 0 if there were no misses to cover
+     */
+    public double getPrefetchCoverage() {
+        long uncovered = usefulPrefetches + cacheMisses;
+        return uncovered == 0 ? 0.0 : (double) usefulPrefetches / uncovered;
+    }
+
+    /**
+     * Get the total time spent fetching prefetched data from the
+     * backing store. It is kept apart from the total simulation time,
+     * as a prefetch would overlap the requests that follow it.
+     * @return the total prefetch time
+     */
+    public double getTotalPrefetchTime() {
+        return totalPrefetchTime;
+    }
+
+    /**
+     * Get the number of requests served by one level of the memory
+     * hierarchy: level 1 is the simulated cache, so this counts its
+     * hits, and each level below is the next CacheLevel down, and
+     * finally the backing store file.
+     * @see CacheResponse#getLevel
+     * @param level a level, counting from 1
+     * @return the number of requests that level served
+     */
+    public long getServedCount(int level) {
+        if (level < 1) {
+            throw new IllegalArgumentException("Levels are counted from 1.");
+        }
+        return level < servedBy.length ? servedBy[level] : 0;
+    }
+
     /**
      * Get a record of the simulation's history as
      * a list of Strings.
@@ -150,17 +504,27 @@ public class CacheSim {
      * For requested keys which are not found, the corresponding
      * entry in the history is "FAILURE" rather than
      * the cache's state after that request.
+     * The history is rebuilt from the log by each call; for long
+     * simulations, writeHistory() avoids holding it all at once.
      * @see cacheToString
-     * @return the cache's history as a
+     * @return the cache's history as a list of Strings
      */
     public ArrayList<String> getCacheHistory() {
-        ArrayList<String> history = new ArrayList<>();
-        for (String rec : simRecord) {
-            history.add(rec);
-        }
+        ArrayList<String> history = new ArrayList<>(recordSize);
+        replayHistory(history::add);
         return history;
     }
 
+    /**
+     * Write the simulation's history to an output stream,
+     * one entry of getCacheHistory() per line, rebuilding each
+     * entry only as it is written.
+     * @param out the stream to write to
+     */
+    public void writeHistory(PrintStream out) {
+        replayHistory(out::println);
+    }
+
     /**
      * Get a string representation of underlying cache's
      * current contents.
@@ -173,23 +537,214 @@ public class CacheSim {
      */
     public String cacheToString() {
         ArrayList<CacheItem> cacheItems = cache.getContents();
-        StringBuilder sb = new StringBuilder();
-
+        boolean[] occupied = new boolean[cacheItems.size()];
+        int[] keys = new int[cacheItems.size()];
+        int[] values = new int[cacheItems.size()];
         for (int i = 0; i < cacheItems.size(); i++) {
             CacheItem ci = cacheItems.get(i);
-            String item;
-            if (ci == null) {
-                item = "()";
+            occupied[i] = ci != null;
+            keys[i] = ci == null ? 0 : ci.getKey();
+            values[i] = ci == null ? 0 : ci.getData();
+        }
+        return slotsToString(occupied, keys, values);
+    }
+
+    /**
+     * Format slot contents as cacheToString() does.
+     */
+    private static String slotsToString(boolean[] occupied, int[] keys, int[] values) {
+        StringBuilder sb = new StringBuilder(keys.length * 6);
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            if (!occupied[i]) {
+                sb.append("()");
             } else {
-                item = String.format("(%d,%d)", ci.getKey(), ci.getData());
+                sb.append('(').append(keys[i]).append(',').append(values[i]).append(')');
             }
+        }
+        return sb.toString();
+    }
 
-            sb.append(item);
-            if (i < cacheItems.size()-1) {
-                sb.append(" ");
+    /**
+     * Queue the windows which should be loading by request i, each as
+     * one batch of its uncached keys: the window holding request i and
+     * the one after it. ahead is where the windows queued so far end;
+     * returns where they end now.
+     */
+    private int prefetch(int[] keys, int ahead, int i, int count) {
+        if (lookahead == 0) {
+            return ahead;
+        }
+        int span = lookahead + 1;
+        while (ahead < count && i >= ahead - span) {
+            int end = (int) Math.min(count, (long) ahead + span);
+            int n = 0;
+            for (int k = ahead; k < end; k++) {
+                if (cache.findData(keys[k]) < 0) {
+                    window[n++] = keys[k];
+                }
             }
+            prefetchStore.prefetchBatch(window, n);
+            ahead = end;
+        }
+        return ahead;
+    }
+
+    /**
+     * Request a key from the cache and count the response.
+     */
+    private void read(int key) throws NotFoundException {
+        CacheResponse resp = cache.requestData(key, retainResponses ? new CacheResponse() : scratch);
+        reads++;
+        count(resp);
+    }
+
+    /**
+     * Write data to the cache and count the response.
+     */
+    private void write(int key, int data) throws NotFoundException {
+        CacheResponse resp = cache.writeData(key, data, retainResponses ? new CacheResponse() : scratch);
+        writes++;
+        count(resp);
+    }
+
+    private void count(CacheResponse resp) {
+        if (resp.getMiss()) {
+            cacheMisses++;
+        } else {
+            cacheHits++;
+        }
+        totalTime += resp.getTime();
+        latencies.record(resp.getTime());
+        totalWriteTime += resp.getWriteTime();
+        prefetches += resp.getPrefetches();
+        if (resp.getPrefetchHit()) {
+            usefulPrefetches++;
+        }
+        if (resp.getPollution()) {
+            pollutionMisses++;
+        }
+        totalPrefetchTime += resp.getPrefetchTime();
+        int level = resp.getLevel();
+        if (level >= servedBy.length) {
+            servedBy = Arrays.copyOf(servedBy, level + 1);
+        }
+        servedBy[level]++;
+        if (retainResponses) {
+            responses.add(resp);
+        }
+    }
+
+    private void resetMetrics() {
+        cacheMisses = 0;
+        cacheHits = 0;
+        reads = 0;
+        writes = 0;
+        failures = 0;
+        totalTime = 0.0;
+        totalWriteTime = 0.0;
+        latencies.reset();
+        prefetches = 0;
+        usefulPrefetches = 0;
+        pollutionMisses = 0;
+        totalPrefetchTime = 0.0;
+        Arrays.fill(servedBy, 0);
+        responses.clear();
+    }
+
+    /**
+     * Forget the record and start a new one from the cache's current contents.
+     */
+    private void clearHistory() {
+        logSize = 0;
+        recordSize = 0;
+        if (!historyEnabled) {
+            baseOccupied = null;
+            baseKeys = null;
+            baseValues = null;
+            return;
+        }
+        ArrayList<CacheItem> cacheItems = cache.getContents();
+        baseOccupied = new boolean[cacheItems.size()];
+        baseKeys = new int[cacheItems.size()];
+        baseValues = new int[cacheItems.size()];
+        for (int i = 0; i < cacheItems.size(); i++) {
+            CacheItem ci = cacheItems.get(i);
+            baseOccupied[i] = ci != null;
+            baseKeys[i] = ci == null ? 0 : ci.getKey();
+            baseValues[i] = ci == null ? 0 : ci.getData();
+        }
+    }
+
+    /**
+     * Append a slot change reported by the cache to the log.
+     */
+    private void logChange(int slot, int key, int data, boolean occupied) {
+        if (logSize == logSlots.length) {
+            int length = 2 * logSize;
+            logSlots = Arrays.copyOf(logSlots, length);
+            logKeys = Arrays.copyOf(logKeys, length);
+            logData = Arrays.copyOf(logData, length);
+            logOccupied = Arrays.copyOf(logOccupied, length);
+        }
+        logSlots[logSize] = slot;
+        logKeys[logSize] = key;
+        logData[logSize] = data;
+        logOccupied[logSize] = occupied;
+        logSize++;
+    }
+
+    /**
+     * Add the cache's current state to the history.
+     */
+    private void recordState() {
+        addRecord(logSize);
+    }
+
+    /**
+     * Count a failed request and add it to the history.
+     */
+    private void recordFailure() {
+        failures++;
+        addRecord(FAILED);
+    }
+
+    private void addRecord(int entry) {
+        if (!historyEnabled) {
+            return;
+        }
+        if (recordSize == record.length) {
+            record = Arrays.copyOf(record, 2 * recordSize);
+        }
+        record[recordSize++] = entry;
+    }
+
+    /**
+     * Rebuild every history entry in order by replaying the log
+     * from the base state, passing each to out.
+     */
+    private void replayHistory(Consumer<String> out) {
+        if (!historyEnabled) {
+            return;
+        }
+        boolean[] occupied = baseOccupied.clone();
+        int[] keys = baseKeys.clone();
+        int[] values = baseValues.clone();
+        int applied = 0;
+        for (int r = 0; r < recordSize; r++) {
+            if (record[r] == FAILED) {
+                out.accept("FAILURE");
+                continue;
+            }
+            for (; applied < record[r]; applied++) {
+                occupied[logSlots[applied]] = logOccupied[applied];
+                keys[logSlots[applied]] = logKeys[applied];
+                values[logSlots[applied]] = logData[applied];
+            }
+            out.accept(slotsToString(occupied, keys, values));
         }
-        return sb.toString();
     }
 
 
@@ -1,12 +1,14 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Scanner;
 
 public class CacheSimMain {
 
+    //the costs of the reference outputs: 5 units per lookup, 1 per store line read
+    public static final CostModel REFERENCE_COSTS = new CostModel(5.0, 0.0);
+
     public static void resetStoreA() {
         try {
             PrintWriter pw  = new PrintWriter("test_cases/storeA.txt");
@@ -20,54 +22,40 @@ public class CacheSimMain {
         }
     }
 
+    /**
+     * Open a trace file, as a binary trace if its name ends in ".trc"
+     * and as a text trace otherwise.
+     * @param filePath the path to the trace
+     * @return the opened trace
+     * @throws IOException if the file cannot be read
+     * @throws NumberFormatException if the file's header is malformed
+     */
+    public static TraceSource openTrace(String filePath) throws IOException {
+        if (filePath.endsWith(".trc")) {
+            return new MappedTraceReader(filePath);
+        }
+        return new TraceReader(filePath);
+    }
+
     public static void main(String[] args) {
 
         resetStoreA();
-        String inputFile = "test_cases/Test1.txt";
+        String inputFile = args.length > 0 ? args[0] : "test_cases/Test1.txt";
         String outputFile = "output.txt";
-        int capacity = 0;
-        String fname = "";
-        ArrayList<Integer> keys = new ArrayList<>();
-        ArrayList<Integer> data = new ArrayList<>();
 
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(inputFile));
-            String line = br.readLine();
-            String[] vals = line.split(" ");
-            if (vals.length == 2) {
-                capacity = Integer.parseInt(vals[0]);
-                fname = vals[1];
-            } else {
-                throw new NumberFormatException();
-            }
-            vals = null;
-
-            //accumulate keys one per line
-            while ((line = br.readLine()) != null) {
-                vals = line.split(" ");
-                if (vals.length == 2) {
-                    keys.add(Integer.parseInt(vals[0]));
-                    data.add(Integer.parseInt(vals[1]));
-                } else {
-                    keys.add(Integer.parseInt(line));
-                    data.add(null);
-                }
-            }
-
-            Cache cache = new Cache(capacity, fname);
+        try (TraceSource trace = openTrace(inputFile)) {
+            Cache cache = new Cache(trace.getCapacity(), trace.getStoreFile());
+            cache.setCostModel(REFERENCE_COSTS);
             CacheSim sim = new CacheSim(cache);
-            sim.simulate(keys,data);
+            sim.simulate(trace);
 
-            PrintWriter pw = new PrintWriter(outputFile);
-            pw.println("Cache Misses: " + Integer.toString(sim.getCacheMisses()));
+            PrintStream ps = new PrintStream(new BufferedOutputStream(new FileOutputStream(outputFile)));
+            ps.println("Cache Misses: " + Integer.toString(sim.getCacheMisses()));
 
-            pw.println("Total Time: " + sim.getTotalSimulationTime());
+            ps.println("Total Time: " + sim.getTotalSimulationTime());
 
-            ArrayList<String> history = sim.getCacheHistory();
-            for (String h : history) {
-                pw.println(h);
-            }
-            pw.close();
+            sim.writeHistory(ps);
+            ps.close();
 
         } catch (IOException ioe) {
             System.out.println("Failed to read or write file.");
@@ -0,0 +1,461 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A cache for heavily concurrent use whose hits take no lock.
+ *
+ * Exact LRU must reorder its list on every hit, so even a striped
+ * cache such as ConcurrentCache serializes the hits within a segment.
+ * This cache instead keeps one CLOCK reference bit per index. A hit
+ * looks the key up under an optimistic read of a StampedLock, which
+ * is validated rather than acquired, and then sets the bit with a
+ * plain write. Hits therefore never block each other or write any
+ * shared lock state. Misses and writes take the lock exclusively, and
+ * eviction sweeps a hand over the indices, clearing set bits, until it
+ * finds one clear, as ClockPolicy does.
+ *
+ * Recency is approximate, and the bits are lossy: a bit set by a hit
+ * racing with the hand may be lost, or may land on an item installed
+ * in its place. Either only changes which item is evicted next, never
+ * the data returned. In a single thread the cache evicts exactly as a
+ * Cache using ClockPolicy would.
+ *
+ * A miss reads the backing store without holding the lock, so misses
+ * on different keys load concurrently. The backing store is wrapped in
+ * a LockedBackingStore to make that safe, and in a
+ * SingleFlightBackingStore so that concurrent misses on the same key
+ * read it only once. Only the first of them is charged the fetch time.
+ * A write may reach the backing store while a miss is fetching, so a
+ * miss which sees that a push happened since it began fetches again
+ * under the lock before installing, rather than install stale data.
+ *
+ * Times are charged by a CostModel exactly as Cache charges them, so
+ * that they compare with those of the other caches.
+ * @see ClockPolicy
+ * @see SingleFlightBackingStore
+ * @see ConcurrentCache
+ */
+public class ClockCache {
+
+    private StampedLock lock;
+
+    //keys[i] and values[i] hold the key and data at index i, for i below size
+    private int[] keys;
+    private int[] values;
+    //referenced[i] is 1 when index i was used since the hand last passed it
+    private byte[] referenced;
+    //dirty[i] is true when values[i] differs from the backing store
+    private boolean[] dirty;
+    //maps each cached key to its index; never grows, so its tables never move
+    private IntIntHashMap index;
+    private int size;
+    private int capacity;
+    //the next index the hand will examine
+    private int hand;
+
+    private WritePolicy writePolicy;
+    private SingleFlightBackingStore backingStore;
+    private volatile CostModel costModel;
+    //counts the pushes to the backing store; only changed holding the write lock
+    private volatile long pushes;
+
+    /**
+     * Create a new ClockCache with backing store
+     * as a file located at filePath.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param filePath the file path to the file acting as backing store.
+     */
+    public ClockCache(int capacity, String filePath) {
+        this(capacity, new BackingStore(filePath));
+    }
+
+    /**
+     * Create a new ClockCache in front of an existing backing store.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param backingStore the backing store holding all data
+     */
+    public ClockCache(int capacity, BackingStore backingStore) {
+        this(capacity, backingStore, WritePolicy.WRITE_THROUGH);
+    }
+
+    /**
+     * Create a new ClockCache in front of an existing
+     * backing store, using the given write policy.
+     * The backing store must not be used except through this cache.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param backingStore the backing store holding all data
+     * @param writePolicy when written data reaches the backing store
+     */
+    public ClockCache(int capacity, BackingStore backingStore, WritePolicy writePolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        }
+        if (!(backingStore instanceof SingleFlightBackingStore)) {
+            if (!(backingStore instanceof LockedBackingStore)) {
+                backingStore = new LockedBackingStore(backingStore);
+            }
+            backingStore = new SingleFlightBackingStore(backingStore);
+        }
+        lock = new StampedLock();
+        keys = new int[capacity];
+        values = new int[capacity];
+        referenced = new byte[capacity];
+        dirty = new boolean[capacity];
+        index = new IntIntHashMap(capacity);
+        size = 0;
+        this.capacity = capacity;
+        hand = 0;
+        this.writePolicy = writePolicy;
+        this.backingStore = (SingleFlightBackingStore) backingStore;
+        costModel = CostModel.DEFAULT;
+    }
+
+    /**
+     * Set the latencies charged for the work each request does.
+     * @see Cache#setCostModel
+     * @param costModel the cost model
+     */
+    public void setCostModel(CostModel costModel) {
+        if (costModel == null) {
+            throw new IllegalArgumentException("The cost model must not be null.");
+        }
+        this.costModel = costModel;
+    }
+
+    /**
+     * Get the latencies charged for the work each request does.
+     * @return the cost model
+     */
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Get the backing store misses are loaded through, which
+     * coalesces concurrent fetches of the same key.
+     * @return the backing store
+     */
+    public SingleFlightBackingStore getBackingStore() {
+        return backingStore;
+    }
+
+    /**
+     * Get the capacity of the cache.
+     * @return the capacity of the cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of items in the cache.
+     * @return the number of items in the cache
+     */
+    public int getSize() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Check whether a key is currently cached.
+     * @param key the key to search for
+     * @return true if and only if the key is cached
+     */
+    public boolean contains(int key) {
+        long stamp = lock.readLock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Request data from the cache given the data's associated key.
+     * @see Cache#requestData(int)
+     *
+     * @param key the key for the requested data
+     * @return a CacheResponse object holding the requested key-data pair
+     * @throws NotFoundException if the requested key is not found
+     */
+    public CacheResponse requestData(int key) throws NotFoundException {
+        return requestData(key, new CacheResponse());
+    }
+
+    /**
+     * Request data as requestData(int) does, filling a
+     * response supplied by the caller.
+     * A hit takes no lock unless a miss or write is installing
+     * data at the same moment, and allocates nothing once out
+     * holds a CacheItem.
+     * @see Cache#requestData(int, CacheResponse)
+     *
+     * @param key the key for the requested data
+     * @param out the response to fill in
+     * @return out, holding the requested key-data pair
+     * @throws NotFoundException if the requested key is not found
+     */
+    public CacheResponse requestData(int key, CacheResponse out) throws NotFoundException {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int slot = index.get(key);
+            if (slot >= 0) {
+                int data = values[slot];
+                if (keys[slot] == key && lock.validate(stamp)) {
+                    referenced[slot] = 1;
+                    out.set(key, data, false, costModel.getHitLatency(), 0.0);
+                    return out;
+                }
+            } else if (lock.validate(stamp)) {
+                return load(key, out);
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            int slot = index.get(key);
+            if (slot >= 0) {
+                referenced[slot] = 1;
+                out.set(key, values[slot], false, costModel.getHitLatency(), 0.0);
+                return out;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return load(key, out);
+    }
+
+    /**
+     * Write an updated data value for a particular key,
+     * as Cache.writeData() does.
+     * @see Cache#writeData(int, int)
+     *
+     * @param key the key whose data is to be updated
+     * @param newData the new data to write
+     * @return a CacheResponse with updated key-data pair
+     * @throws NotFoundException if the provided key does not exist in the backing store
+     */
+    public CacheResponse writeData(int key, int newData) throws NotFoundException {
+        return writeData(key, newData, new CacheResponse());
+    }
+
+    /**
+     * Write data as writeData(int, int) does, filling a
+     * response supplied by the caller. Writes take the lock
+     * exclusively; under write-through the backing store is
+     * written while it is held, so the cache and the backing
+     * store always agree on the last write to a key.
+     * @see Cache#writeData(int, int, CacheResponse)
+     *
+     * @param key the key whose data is to be updated
+     * @param newData the new data to write
+     * @param out the response to fill in
+     * @return out, holding the updated key-data pair
+     * @throws NotFoundException if the provided key does not exist in the backing store
+     */
+    public CacheResponse writeData(int key, int newData, CacheResponse out) throws NotFoundException {
+        BackingStoreResponse fetched = null;
+        if (!contains(key)) {
+            fetched = backingStore.fetchData(key);
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = index.get(key);
+            double writeTime = 0.0;
+            if (slot < 0) {
+                if (fetched == null) {
+                    //evicted since it was found, so fetch it again
+                    fetched = backingStore.fetchData(key);
+                }
+                slot = findSlot();
+                writeTime = evict(slot);
+                install(slot, key, fetched.getData());
+            } else {
+                referenced[slot] = 1;
+            }
+            if (writePolicy == WritePolicy.WRITE_BACK) {
+                dirty[slot] = true;
+            } else {
+                writeTime += costModel.getWriteLatency() + costModel.getTransferTime()
+                        + push(key, newData) * costModel.getLineCost();
+            }
+            values[slot] = newData;
+            if (fetched == null) {
+                out.set(key, newData, false, costModel.getHitLatency(), writeTime);
+            } else {
+                out.set(key, newData, true, missTime(fetched.getTimeTaken()), writeTime);
+                out.setBelowTime(fetched.getTimeTaken() * costModel.getLineCost());
+            }
+            return out;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Write all dirty data back to the backing store.
+     * Does nothing under write-through, where no item is ever dirty.
+     *
+     * @return the total time charged for the backing store writes
+     * @throws NotFoundException if the backing store does not hold a dirty key
+     */
+    public double flush() throws NotFoundException {
+        long stamp = lock.writeLock();
+        try {
+            double time = 0.0;
+            for (int i = 0; i < size; i++) {
+                if (dirty[i]) {
+                    time += writeBackTime(push(keys[i], values[i]));
+                    dirty[i] = false;
+                }
+            }
+            return time;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reset the cache and clear its contents.
+     * Under write-back, dirty data which was not flushed is discarded.
+     */
+    public void reset() {
+        long stamp = lock.writeLock();
+        try {
+            index.clear();
+            size = 0;
+            hand = 0;
+            referenced = new byte[capacity];
+            dirty = new boolean[capacity];
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Serve a miss: fetch the key without holding the lock, then
+     * install it, unless another thread installed it meanwhile.
+     * If anything was pushed since the fetch began, the key may have
+     * been written and evicted in between, so it is fetched again
+     * holding the lock, where no push can overtake it.
+     * The request is a miss either way. Its time counts the lines the
+     * backing store charged it, none if it waited on another's fetch.
+     */
+    private CacheResponse load(int key, CacheResponse out) throws NotFoundException {
+        long seen = pushes;
+        BackingStoreResponse fetched = backingStore.fetchData(key);
+        double readTime = fetched.getTimeTaken();
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = index.get(key);
+            double writeTime = 0.0;
+            if (slot < 0) {
+                if (pushes != seen) {
+                    fetched = backingStore.fetchData(key);
+                    readTime += fetched.getTimeTaken();
+                }
+                slot = findSlot();
+                writeTime = evict(slot);
+                install(slot, key, fetched.getData());
+            } else {
+                referenced[slot] = 1;
+            }
+            out.set(key, values[slot], true, missTime(readTime), writeTime);
+            out.setBelowTime(readTime * costModel.getLineCost());
+            return out;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Choose the index for an incoming key: the next empty index
+     * while the cache is not full, and otherwise the first index
+     * the hand finds with its reference bit clear.
+     * Must be called holding the write lock.
+     */
+    private int findSlot() {
+        if (size < capacity) {
+            return size;
+        }
+        while (referenced[hand] != 0) {
+            referenced[hand] = 0;
+            hand = hand + 1 < capacity ? hand + 1 : 0;
+        }
+        int victim = hand;
+        hand = hand + 1 < capacity ? hand + 1 : 0;
+        return victim;
+    }
+
+    /**
+     * Empty an index chosen by findSlot(), writing back its data if dirty.
+     * Must be called holding the write lock.
+     * @return the time charged for the write back
+     */
+    private double evict(int slot) {
+        if (slot >= size) {
+            return 0.0;
+        }
+        double time = 0.0;
+        if (dirty[slot]) {
+            try {
+                time = writeBackTime(push(keys[slot], values[slot]));
+            } catch (NotFoundException nfe) {
+                throw new IllegalStateException("Backing store lost key " + keys[slot], nfe);
+            }
+            dirty[slot] = false;
+        }
+        index.remove(keys[slot]);
+        return time;
+    }
+
+    /**
+     * Get the time charged to a miss, as Cache.missTime() charges it.
+     */
+    private double missTime(double fetchTime) {
+        CostModel model = costModel;
+        return model.getHitLatency() + model.getMissPenalty()
+                + model.getTransferTime() + fetchTime * model.getLineCost();
+    }
+
+    /**
+     * Get the time charged to a write back, as Cache.writeBack() charges it.
+     */
+    private double writeBackTime(double storeTime) {
+        CostModel model = costModel;
+        return model.getWriteBackLatency() + model.getTransferTime() + storeTime * model.getLineCost();
+    }
+
+    /**
+     * Write data to the backing store and count the push.
+     * Must be called holding the write lock.
+     * @return the time taken by the write
+     */
+    private double push(int key, int data) throws NotFoundException {
+        double time = backingStore.pushData(key, data).getTimeTaken();
+        pushes++;
+        return time;
+    }
+
+    /**
+     * Store a key-data pair at an empty index and mark it referenced.
+     * Must be called holding the write lock.
+     */
+    private void install(int slot, int key, int data) {
+        keys[slot] = key;
+        values[slot] = data;
+        referenced[slot] = 1;
+        index.put(key, slot);
+        if (slot == size) {
+            size++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * CLOCK (second-chance) replacement, an approximation of LRU.
+ * Each slot has a reference bit, set whenever it is inserted or
+ * accessed. To choose a victim, a hand sweeps its group's slots
+ * in order, clearing set bits, and stops at the first occupied
+ * slot whose bit is already clear. Each sweep clears the bits it
+ * passes, so victim selection takes amortized constant time.
+ */
+public class ClockPolicy implements ReplacementPolicy {
+
+    protected boolean[] referenced;
+    protected boolean[] occupied;
+    //the next slot each group's hand will examine
+    protected int[] hand;
+    protected int[] occupancy;
+    protected int groupSize;
+
+    /**
+     * Create a CLOCK policy.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     */
+    public ClockPolicy(int capacity, int groups) {
+        if (groups < 1 || capacity % groups != 0) {
+            throw new IllegalArgumentException("Groups must evenly divide the capacity.");
+        }
+        referenced = new boolean[capacity];
+        occupied = new boolean[capacity];
+        hand = new int[groups];
+        occupancy = new int[groups];
+        groupSize = capacity / groups;
+        clear();
+    }
+
+    @Override
+    public void insert(int slot, int key) {
+        if (!occupied[slot]) {
+            occupied[slot] = true;
+            occupancy[slot / groupSize]++;
+        }
+        referenced[slot] = true;
+    }
+
+    @Override
+    public void access(int slot) {
+        referenced[slot] = true;
+    }
+
+    @Override
+    public void remove(int slot) {
+        if (occupied[slot]) {
+            occupied[slot] = false;
+            occupancy[slot / groupSize]--;
+        }
+        referenced[slot] = false;
+    }
+
+    @Override
+    public int selectVictim(int group, int inKey) {
+        int base = group * groupSize;
+        while (true) {
+            int slot = hand[group];
+            hand[group] = slot + 1 < base + groupSize ? slot + 1 : base;
+            if (occupied[slot]) {
+                if (!referenced[slot]) {
+                    return slot;
+                }
+                referenced[slot] = false;
+            }
+        }
+    }
+
+    /**
+     * The hand would take unreferenced slots first and referenced
+     * slots on its second pass, each in the order it meets them.
+     * @param slot the slot whose rank is wanted
+     * @return the rank of the slot, or -1 if it is not occupied
+     */
+    @Override
+    public int rankOf(int slot) {
+        if (!occupied[slot]) {
+            return -1;
+        }
+        int group = slot / groupSize;
+        int base = group * groupSize;
+        int position = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            boolean wanted = pass == 1;
+            for (int i = 0; i < groupSize; i++) {
+                int s = base + (hand[group] - base + i) % groupSize;
+                if (occupied[s] && referenced[s] == wanted) {
+                    if (s == slot) {
+                        return occupancy[group] - 1 - position;
+                    }
+                    position++;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(referenced, false);
+        Arrays.fill(occupied, false);
+        Arrays.fill(occupancy, 0);
+        for (int g = 0; g < hand.length; g++) {
+            hand[g] = g * groupSize;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache which may be shared by many threads at once.
+ *
+ * Keys are partitioned between a fixed number of segments by a hash
+ * of the key, and each segment is an ordinary Cache of equal capacity
+ * guarded by its own lock. Requests for keys in different segments
+ * never wait for each other, so throughput grows with the number of
+ * segments until the backing store becomes the bottleneck. Each
+ * segment chooses victims among its own keys only, with least
+ * recently used replacement by default, so the cache as a whole
+ * approximates LRU as a set-associative cache does.
+ *
+ * The segments share one backing store, wrapped in a
+ * LockedBackingStore so that it is safe for them to use concurrently.
+ * A miss holds its segment's lock while the backing store is read.
+ * @see LockedBackingStore
+ */
+public class ConcurrentCache {
+
+    private Cache[] segments;
+    private ReentrantLock[] locks;
+    private int segmentCapacity;
+
+    /**
+     * Create a new concurrent cache with backing store
+     * as a file located at filePath.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param segments the number of independently locked segments, which must divide capacity
+     * @param filePath the file path to the file acting as backing store.
+     */
+    public ConcurrentCache(int capacity, int segments, String filePath) {
+        this(capacity, segments, new BackingStore(filePath));
+    }
+
+    /**
+     * Create a new concurrent cache in front of an existing backing store.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param segments the number of independently locked segments, which must divide capacity
+     * @param backingStore the backing store holding all data
+     */
+    public ConcurrentCache(int capacity, int segments, BackingStore backingStore) {
+        this(capacity, segments, backingStore, WritePolicy.WRITE_THROUGH);
+    }
+
+    /**
+     * Create a new concurrent cache in front of an existing
+     * backing store, using the given write policy.
+     * The backing store must not be used except through this cache.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param segments the number of independently locked segments, which must divide capacity
+     * @param backingStore the backing store holding all data
+     * @param writePolicy when written data reaches the backing store
+     */
+    public ConcurrentCache(int capacity, int segments, BackingStore backingStore, WritePolicy writePolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        }
+        if (segments < 1 || capacity % segments != 0) {
+            throw new IllegalArgumentException("Segments must be positive and evenly divide the capacity.");
+        }
+        if (!(backingStore instanceof LockedBackingStore)) {
+            backingStore = new LockedBackingStore(backingStore);
+        }
+        this.segments = new Cache[segments];
+        this.locks = new ReentrantLock[segments];
+        segmentCapacity = capacity / segments;
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Cache(segmentCapacity, backingStore, writePolicy);
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Get the capacity of the cache, the total capacity of its segments.
+     * @return the capacity of the cache
+     */
+    public int getCapacity() {
+        return segmentCapacity * segments.length;
+    }
+
+    /**
+     * Get the number of segments.
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Get the segment a key maps to.
+     * @param key the key
+     * @return the segment holding the key whenever it is cached
+     */
+    public int segmentOf(int key) {
+        int h = key * 0x9E3779B9;
+        return Integer.remainderUnsigned(h ^ (h >>> 16), segments.length);
+    }
+
+    /**
+     * Get the number of items in the cache. Each segment is
+     * counted in turn, so the total may be out of date by the
+     * time it returns if other threads are using the cache.
+     * @return the number of items in the cache
+     */
+    public int getSize() {
+        int size = 0;
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                size += segments[i].getSize();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Replace the replacement policy of every segment.
+     * @see Cache#setReplacementPolicy
+     * @param factory creates the new policy for each segment
+     */
+    public void setReplacementPolicy(ReplacementPolicy.Factory factory) {
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                segments[i].setReplacementPolicy(factory);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Replace the cost model of every segment.
+     * @see Cache#setCostModel
+     * @param costModel the latencies to charge
+     */
+    public void setCostModel(CostModel costModel) {
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                segments[i].setCostModel(costModel);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Check whether a key is currently cached.
+     * @param key the key to search for
+     * @return true if and only if the key is cached
+     */
+    public boolean contains(int key) {
+        int s = segmentOf(key);
+        locks[s].lock();
+        try {
+            return segments[s].findData(key) >= 0;
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    /**
+     * Request data from the cache given the data's associated key,
+     * as Cache.requestData() does, from the key's segment.
+     * @see Cache#requestData(int)
+     *
+     * @param key the key for the requested data
+     * @return a CacheResponse object holding the requested key-data pair
+     * @throws NotFoundException if the requested key is not found
+     */
+    public CacheResponse requestData(int key) throws NotFoundException {
+        return requestData(key, new CacheResponse());
+    }
+
+    /**
+     * Request data as requestData(int) does, filling a
+     * response supplied by the caller.
+     * @see Cache#requestData(int, CacheResponse)
+     *
+     * @param key the key for the requested data
+     * @param out the response to fill in
+     * @return out, holding the requested key-data pair
+     * @throws NotFoundException if the requested key is not found
+     */
+    public CacheResponse requestData(int key, CacheResponse out) throws NotFoundException {
+        int s = segmentOf(key);
+        locks[s].lock();
+        try {
+            return segments[s].requestData(key, out);
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    /**
+     * Write data to the cache, as Cache.writeData() does,
+     * in the key's segment.
+     * @see Cache#writeData(int, int)
+     *
+     * @param key the key of the data item to update
+     * @param newData the new data to write
+     * @return a CacheResponse object holding the written key-data pair
+     * @throws NotFoundException if the specified key is not found
+     */
+    public CacheResponse writeData(int key, int newData) throws NotFoundException {
+        return writeData(key, newData, new CacheResponse());
+    }
+
+    /**
+     * Write data as writeData(int, int) does, filling a
+     * response supplied by the caller.
+     * @see Cache#writeData(int, int, CacheResponse)
+     *
+     * @param key the key of the data item to update
+     * @param newData the new data to write
+     * @param out the response to fill in
+     * @return out, holding the written key-data pair
+     * @throws NotFoundException if the specified key is not found
+     */
+    public CacheResponse writeData(int key, int newData, CacheResponse out) throws NotFoundException {
+        int s = segmentOf(key);
+        locks[s].lock();
+        try {
+            return segments[s].writeData(key, newData, out);
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    /**
+     * Write all dirty data back to the backing store,
+     * one segment at a time.
+     * @see Cache#flush
+     *
+     * @return the total time taken by the backing store writes
+     * @throws NotFoundException if the backing store does not hold a dirty key
+     */
+    public double flush() throws NotFoundException {
+        double time = 0.0;
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                time += segments[i].flush();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Reset every segment, clearing the cache's contents.
+     * @see Cache#reset
+     */
+    public void reset() {
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                segments[i].reset();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Get a copy of the current contents of the cache as a list
+     * of CacheItems, each segment's contents in turn, with null
+     * for indices not holding data. Each segment is copied
+     * under its lock, but not all segments at once.
+     * @see Cache#getContents
+     *
+     * @return a list of CacheItems of size equal to the capacity
+     */
+    public ArrayList<CacheItem> getContents() {
+        ArrayList<CacheItem> contents = new ArrayList<>(getCapacity());
+        for (int i = 0; i < segments.length; i++) {
+            locks[i].lock();
+            try {
+                contents.addAll(segments[i].getContents());
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return contents;
+    }
+}
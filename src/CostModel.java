@@ -0,0 +1,132 @@
+/**
+ * The latencies a Cache charges for the work each request does,
+ * in the same units as the backing store's times.
+ *
+ * A request's time is the hit latency, charged to every lookup, hit
+ * or miss. On a miss it also includes the miss penalty, the transfer
+ * of the item from the level below, and the time the level below took
+ * to fetch it. For a backing store file, that time is the number of
+ * lines read, scaled by the line cost. A lower cache level charges its
+ * own costs instead.
+ *
+ * Writes to the level below are charged as write time, kept apart
+ * from the request's time as before:
+ * - a write-through write costs the write latency;
+ * - writing back a dirty item costs the write-back latency.
+ * Each also pays the transfer and the time the level below took.
+ *
+ * The default model charges only the backing store's lines, exactly
+ * as caches always have. Each cache in a hierarchy of CacheLevels
+ * has a model of its own.
+ * @see Cache#setCostModel
+ */
+public class CostModel {
+
+    /** The size of the data of one item moved between levels. */
+    public static final int ITEM_BYTES = Integer.BYTES;
+
+    /** Charges only the lines a backing store file reads, one unit each. */
+    public static final CostModel DEFAULT = new CostModel(0.0, 0.0, 0.0, 0.0, 0.0, 1.0);
+
+    private double hitLatency;
+    private double missPenalty;
+    private double transferPerByte;
+    private double writeLatency;
+    private double writeBackLatency;
+    private double lineCost;
+
+    /**
+     * Create a model charging a latency for every lookup and a penalty
+     * for every miss, with backing store lines costing one unit each.
+     * @param hitLatency the time charged to every lookup
+     * @param missPenalty the time charged to every miss, on top of the hit latency
+     */
+    public CostModel(double hitLatency, double missPenalty) {
+        this(hitLatency, missPenalty, 0.0, 0.0, 0.0, 1.0);
+    }
+
+    /**
+     * Create a cost model. Every cost must be non-negative.
+     * @param hitLatency the time charged to every lookup
+     * @param missPenalty the time charged to every miss, on top of the hit latency
+     * @param transferPerByte the time per byte of an item moved to or from the level below
+     * @param writeLatency the time charged to every write-through write
+     * @param writeBackLatency the time charged to every write back of dirty data
+     * @param lineCost the time per line read from a backing store file
+     */
+    public CostModel(double hitLatency, double missPenalty, double transferPerByte,
+                     double writeLatency, double writeBackLatency, double lineCost) {
+        if (!(hitLatency >= 0 && missPenalty >= 0 && transferPerByte >= 0
+                && writeLatency >= 0 && writeBackLatency >= 0 && lineCost >= 0)) {
+            throw new IllegalArgumentException("Costs must be non-negative.");
+        }
+        this.hitLatency = hitLatency;
+        this.missPenalty = missPenalty;
+        this.transferPerByte = transferPerByte;
+        this.writeLatency = writeLatency;
+        this.writeBackLatency = writeBackLatency;
+        this.lineCost = lineCost;
+    }
+
+    /**
+     * Get the time charged to every lookup, hit or miss.
+     * @return the hit latency
+     */
+    public double getHitLatency() {
+        return hitLatency;
+    }
+
+    /**
+     * Get the time charged to every miss, on top of the hit latency.
+     * @return the miss penalty
+     */
+    public double getMissPenalty() {
+        return missPenalty;
+    }
+
+    /**
+     * Get the time per byte of an item moved to or from the level below.
+     * @return the transfer time per byte
+     */
+    public double getTransferPerByte() {
+        return transferPerByte;
+    }
+
+    /**
+     * Get the time charged to every write-through write.
+     * @return the write latency
+     */
+    public double getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * Get the time charged to every write back of dirty data.
+     * @return the write-back latency
+     */
+    public double getWriteBackLatency() {
+        return writeBackLatency;
+    }
+
+    /**
+     * Get the time per line read from a backing store file.
+     * @return the line cost
+     */
+    public double getLineCost() {
+        return lineCost;
+    }
+
+    /**
+     * Get the time to move one item to or from the level below.
+     * @return the transfer time of ITEM_BYTES bytes
+     */
+    public double getTransferTime() {
+        return transferPerByte * ITEM_BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return "hit " + hitLatency + " miss " + missPenalty + " byte " + transferPerByte
+                + " write " + writeLatency + " writeBack " + writeBackLatency + " line " + lineCost;
+    }
+}
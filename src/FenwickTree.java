@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+/**
+ * A Fenwick (binary indexed) tree of long counts at positions 0 to size-1,
+ * supporting point updates and prefix sums in logarithmic time.
+ */
+public class FenwickTree {
+
+    //tree[i] holds the sum of a block of positions ending at position i-1
+    private long[] tree;
+
+    /**
+     * Create a tree with every count 0.
+     * @param size the number of positions
+     */
+    public FenwickTree(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative.");
+        }
+        tree = new long[size + 1];
+    }
+
+    /**
+     * Get the number of positions.
+     * @return the size of the tree
+     */
+    public int size() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Add to the count at a position.
+     * @param position the position, from 0 to size-1
+     * @param delta the amount to add
+     */
+    public void add(int position, long delta) {
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Get the sum of the counts at positions 0 to end-1.
+     * @param end the number of positions to sum, from 0 to size
+     * @return the prefix sum
+     */
+    public long prefixSum(int end) {
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Get the sum of the counts at positions from to end-1.
+     * @param from the first position
+     * @param end one past the last position
+     * @return the sum over the range
+     */
+    public long rangeSum(int from, int end) {
+        return prefixSum(end) - prefixSum(from);
+    }
+
+    /**
+     * Set every count to 0.
+     */
+    public void clear() {
+        Arrays.fill(tree, 0L);
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * First-in-first-out replacement: evicts the item installed
+ * furthest in the past, no matter how often it was accessed since.
+ */
+public class FifoPolicy extends LruPolicy {
+
+    /**
+     * Create a FIFO policy.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     */
+    public FifoPolicy(int capacity, int groups) {
+        super(capacity, groups);
+    }
+
+    /**
+     * Accesses do not change the order of installation.
+     * @param slot the slot accessed
+     */
+    @Override
+    public void access(int slot) {
+    }
+
+    /**
+     * Get the slot's position in the order of installation, since
+     * accesses do not count: 0 for the newest slot in its group.
+     * @param slot the slot whose rank is wanted
+     * @return the rank of the slot, or -1 if it is not occupied
+     */
+    @Override
+    public int rankOf(int slot) {
+        return recency.rankOf(slot);
+    }
+}
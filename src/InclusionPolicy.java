@@ -0,0 +1,28 @@
+/**
+ * How the contents of a Cache relate to those of the lower
+ * cache level it is served from.
+ * @see CacheLevel
+ */
+public enum InclusionPolicy {
+
+    /**
+     * Everything in the upper cache is also in the lower one.
+     * Misses are installed at both levels, and when the lower
+     * level evicts a key it is invalidated in the upper one too.
+     */
+    INCLUSIVE,
+
+    /**
+     * A key is held by the upper cache or the lower one, never both.
+     * A miss found in the lower level moves up out of it, a miss
+     * found further down bypasses it, and the upper cache's victims
+     * move down into it.
+     */
+    EXCLUSIVE,
+
+    /**
+     * Non-inclusive, non-exclusive: misses are installed at both
+     * levels, and each level evicts independently of the other.
+     */
+    NINE
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to int values.
+ * Keys and values are stored in parallel primitive arrays
+ * using open addressing with linear probing, so no boxing
+ * or per-entry objects are involved in any operation.
+ *
+ * Lookups, insertions and removals take expected constant time.
+ * Removal uses backward-shift deletion, so the table never
+ * accumulates tombstones no matter how many keys come and go.
+ *
+ * Values may be any int, but get() and remove() use
+ * NO_VALUE (-1) to signal an absent key; callers which need to
+ * store -1 as a value should check containsKey() first.
+ */
+public class IntIntHashMap {
+
+    /** The value returned by get(), put() and remove() for absent keys. */
+    public static final int NO_VALUE = -1;
+
+    //marks an unused slot in the keys array
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+    //the table is grown once size exceeds this fraction of its length
+    private static final double MAX_LOAD = 0.5;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    //FREE_KEY itself cannot live in the table, so it is kept aside
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    /**
+     * Create a new empty map able to hold expectedSize keys
+     * without growing its tables.
+     * @param expectedSize the number of keys expected to be stored at once
+     */
+    public IntIntHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must be non-negative.");
+        }
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Get the number of keys stored in the map.
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether a value is associated with the given key.
+     * @param key the key to look up
+     * @return true if and only if the key is present
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Get the value associated with the given key.
+     * @param key the key to look up
+     * @return the associated value, or NO_VALUE if the key is absent
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : NO_VALUE;
+        }
+        int slot = slotOf(key);
+        return slot < 0 ? NO_VALUE : values[slot];
+    }
+
+    /**
+     * Associate a value with the given key, replacing any previous value.
+     * @param key the key to store
+     * @param value the value to associate with key
+     * @return the previous value, or NO_VALUE if the key was absent
+     */
+    public int put(int key, int value) {
+        if (key == FREE_KEY) {
+            int prev = hasFreeKey ? freeKeyValue : NO_VALUE;
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return prev;
+        }
+
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                int prev = values[slot];
+                values[slot] = value;
+                return prev;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Remove the given key and its value from the map.
+     * @param key the key to remove
+     * @return the value that was associated with key, or NO_VALUE if absent
+     */
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return NO_VALUE;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return NO_VALUE;
+        }
+        int prev = values[slot];
+        shiftBack(slot);
+        size--;
+        return prev;
+    }
+
+    /**
+     * Remove every key from the map, keeping its current table size.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Find the table slot holding key, or -1 if it is absent.
+     */
+    private int slotOf(int key) {
+        int slot = hash(key) & mask;
+        int k;
+        while ((k = keys[slot]) != FREE_KEY) {
+            if (k == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empty the given slot, moving later entries of the same probe
+     * run back so that every remaining key stays reachable.
+     */
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int k = keys[next];
+            if (k == FREE_KEY) {
+                break;
+            }
+            int home = hash(k) & mask;
+            //an entry may fill the gap only if its home slot is not in (gap, next]
+            boolean between = gap <= next
+                    ? (home > gap && home <= next)
+                    : (home > gap || home <= next);
+            if (!between) {
+                keys[gap] = k;
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE_KEY;
+    }
+
+    private void rehash(int newLength) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newLength);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != FREE_KEY) {
+                int slot = hash(k) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int length) {
+        keys = new int[length];
+        values = new int[length];
+        Arrays.fill(keys, FREE_KEY);
+        mask = length - 1;
+        resizeAt = (int) (length * MAX_LOAD);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / MAX_LOAD) + 1;
+        int length = 2;
+        while (length < needed) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    /**
+     * Spread keys across the table; sequential keys are
+     * common in traces and must not form long probe runs.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+
+/**
+ * A histogram of request latencies, from which percentiles such as
+ * the median, p99 and p999 can be read, in the style of HdrHistogram.
+ *
+ * Each latency is counted in units of a fixed resolution, and the
+ * counts are kept in buckets of logarithmically growing width: values
+ * below 2^k units, for the smallest k giving the requested number of
+ * significant decimal digits, are counted exactly, and above that each
+ * power of two is split into 2^(k-1) equal buckets. Every value is
+ * thus held to within its significant digits, recording takes constant
+ * time, and the memory needed grows only with the logarithm of the
+ * largest latency, however many are recorded.
+ *
+ * Percentiles are reported as the lowest value of the bucket they fall
+ * in. With the default resolution of 1/1024, a power of two, integral
+ * latencies below 1024 are reported exactly.
+ * @see CacheSim#getLatencyHistogram
+ */
+public class LatencyHistogram {
+
+    /** The default resolution, the smallest latency told apart from 0. */
+    public static final double DEFAULT_RESOLUTION = 1.0 / 1024;
+    /** The default number of significant decimal digits kept. */
+    public static final int DEFAULT_DIGITS = 3;
+
+    private double resolution;
+    //values below subBuckets units are counted exactly
+    private int subBits;
+    private long subBuckets;
+    private long halfBuckets;
+    private long[] counts;
+    private long total;
+    private double sum;
+    private double min;
+    private double max;
+
+    /**
+     * Create a histogram with the default resolution and precision.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_RESOLUTION, DEFAULT_DIGITS);
+    }
+
+    /**
+     * Create a histogram.
+     * @param resolution the smallest latency told apart from 0, positive
+     * @param significantDigits the decimal digits of precision kept, from 1 to 5
+     */
+    public LatencyHistogram(double resolution, int significantDigits) {
+        if (!(resolution > 0) || Double.isInfinite(resolution)) {
+            throw new IllegalArgumentException("The resolution must be positive.");
+        }
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("Significant digits must be from 1 to 5.");
+        }
+        this.resolution = resolution;
+        long needed = 2 * (long) Math.pow(10, significantDigits);
+        subBits = 64 - Long.numberOfLeadingZeros(needed - 1);
+        subBuckets = 1L << subBits;
+        halfBuckets = subBuckets >> 1;
+        counts = new long[(int) subBuckets];
+        reset();
+    }
+
+    /**
+     * Record one latency. Negative latencies are counted as 0.
+     * @param latency the latency to record
+     */
+    public void record(double latency) {
+        if (latency < 0) {
+            latency = 0;
+        }
+        int i = indexOf(units(latency));
+        if (i >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(i + 1, counts.length + (int) halfBuckets));
+        }
+        counts[i]++;
+        total++;
+        sum += latency;
+        min = Math.min(min, latency);
+        max = Math.max(max, latency);
+    }
+
+    /**
+     * Forget every recorded latency.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        total = 0;
+        sum = 0.0;
+        min = Double.POSITIVE_INFINITY;
+        max = 0.0;
+    }
+
+    /**
+     * Get the latency at a percentile of those recorded: the lowest
+     * latency at least that percent of the recorded ones are no
+     * larger than, within the histogram's precision.
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency at the percentile, or 0 if none were recorded
+     */
+    public double getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentiles must be from 0 to 100.");
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        //rounded rather than rounded up, so that 99.9% of 1000 is not taken as 1000
+        long rank = Math.max(1, Math.round(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(Math.max(lowestOf(i) * resolution, min), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the median latency.
+     * @return the 50th percentile
+     */
+    public double getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    /**
+     * Get the latency 99% of requests were no slower than.
+     * @return the 99th percentile
+     */
+    public double getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    /**
+     * Get the latency 99.9% of requests were no slower than.
+     * @return the 99.9th percentile
+     */
+    public double getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Get the number of latencies recorded.
+     * @return the count
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Get the exact sum of the latencies recorded.
+     * @return the sum
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the exact mean of the latencies recorded.
+     * @return the mean, or 0 if none were recorded
+     */
+    public double getMean() {
+        return total == 0 ? 0.0 : sum / total;
+    }
+
+    /**
+     * Get the exact smallest latency recorded.
+     * @return the minimum, or 0 if none were recorded
+     */
+    public double getMin() {
+        return total == 0 ? 0.0 : min;
+    }
+
+    /**
+     * Get the exact largest latency recorded.
+     * @return the maximum
+     */
+    public double getMax() {
+        return max;
+    }
+
+    private long units(double latency) {
+        double u = latency / resolution;
+        return u >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) u;
+    }
+
+    /**
+     * Get the bucket counting a value, in units.
+     */
+    private int indexOf(long units) {
+        if (units < subBuckets) {
+            return (int) units;
+        }
+        //shift so that the value's top subBits bits remain
+        int shift = 63 - Long.numberOfLeadingZeros(units) - (subBits - 1);
+        return (int) (subBuckets + (shift - 1) * halfBuckets + ((units >> shift) - halfBuckets));
+    }
+
+    /**
+     * Get the lowest value, in units, counted by a bucket.
+     */
+    private long lowestOf(int index) {
+        if (index < subBuckets) {
+            return index;
+        }
+        long past = index - subBuckets;
+        int shift = (int) (past / halfBuckets) + 1;
+        return (past % halfBuckets + halfBuckets) << shift;
+    }
+}
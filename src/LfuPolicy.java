@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/**
+ * Least-frequently-used replacement: evicts the item with the
+ * fewest requests since it was installed, breaking ties by
+ * evicting the least recently used of them.
+ *
+ * Slots with equal frequency share a bucket, a list ordered from
+ * most to least recently used, and each group keeps its non-empty
+ * buckets in a list of increasing frequency. An access moves its
+ * slot into the next bucket up, creating it if needed, so every
+ * operation takes constant time. All links live in primitive
+ * arrays; buckets are drawn from a pool sized to the capacity,
+ * since every non-empty bucket holds at least one slot.
+ */
+public class LfuPolicy implements ReplacementPolicy {
+
+    private static final int NIL = -1;
+
+    private int groupSize;
+
+    //per slot: its bucket and its neighbours within the bucket
+    private int[] slotBucket;
+    private int[] slotPrev;
+    private int[] slotNext;
+
+    //per bucket: frequency, group, neighbours by frequency, and its slot list
+    private int[] bucketFreq;
+    private int[] bucketGroup;
+    private int[] bucketPrev;
+    private int[] bucketNext;
+    private int[] bucketHead;
+    private int[] bucketTail;
+    private int[] freeBuckets;
+    private int freeCount;
+
+    //per group: the lowest-frequency bucket and the number of slots occupied
+    private int[] firstBucket;
+    private int[] occupancy;
+
+    /**
+     * Create an LFU policy.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     */
+    public LfuPolicy(int capacity, int groups) {
+        if (groups < 1 || capacity % groups != 0) {
+            throw new IllegalArgumentException("Groups must evenly divide the capacity.");
+        }
+        groupSize = capacity / groups;
+        slotBucket = new int[capacity];
+        slotPrev = new int[capacity];
+        slotNext = new int[capacity];
+        bucketFreq = new int[capacity];
+        bucketGroup = new int[capacity];
+        bucketPrev = new int[capacity];
+        bucketNext = new int[capacity];
+        bucketHead = new int[capacity];
+        bucketTail = new int[capacity];
+        freeBuckets = new int[capacity];
+        firstBucket = new int[groups];
+        occupancy = new int[groups];
+        clear();
+    }
+
+    @Override
+    public void insert(int slot, int key) {
+        if (slotBucket[slot] != NIL) {
+            remove(slot);
+        }
+        int group = slot / groupSize;
+        int first = firstBucket[group];
+        int bucket = first;
+        if (first == NIL || bucketFreq[first] != 1) {
+            bucket = newBucket(group, 1, NIL, first);
+        }
+        pushSlot(bucket, slot);
+        occupancy[group]++;
+    }
+
+    @Override
+    public void access(int slot) {
+        int bucket = slotBucket[slot];
+        if (bucket == NIL) {
+            return;
+        }
+        if (bucketFreq[bucket] == Integer.MAX_VALUE) {
+            return;
+        }
+        int freq = bucketFreq[bucket] + 1;
+        int up = bucketNext[bucket];
+        if (up == NIL || bucketFreq[up] != freq) {
+            if (bucketHead[bucket] == bucketTail[bucket]) {
+                //alone in its bucket: the bucket itself can move up a frequency
+                bucketFreq[bucket] = freq;
+                return;
+            }
+            up = newBucket(bucketGroup[bucket], freq, bucket, up);
+        }
+        unlinkSlot(bucket, slot);
+        pushSlot(up, slot);
+        if (bucketHead[bucket] == NIL) {
+            freeBucket(bucket);
+        }
+    }
+
+    @Override
+    public void remove(int slot) {
+        int bucket = slotBucket[slot];
+        if (bucket == NIL) {
+            return;
+        }
+        unlinkSlot(bucket, slot);
+        slotBucket[slot] = NIL;
+        occupancy[bucketGroup[bucket]]--;
+        if (bucketHead[bucket] == NIL) {
+            freeBucket(bucket);
+        }
+    }
+
+    @Override
+    public int selectVictim(int group, int inKey) {
+        return bucketTail[firstBucket[group]];
+    }
+
+    @Override
+    public int rankOf(int slot) {
+        if (slotBucket[slot] == NIL) {
+            return -1;
+        }
+        int group = slot / groupSize;
+        int position = 0;
+        for (int b = firstBucket[group]; b != NIL; b = bucketNext[b]) {
+            for (int s = bucketTail[b]; s != NIL; s = slotPrev[s]) {
+                if (s == slot) {
+                    return occupancy[group] - 1 - position;
+                }
+                position++;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slotBucket, NIL);
+        Arrays.fill(firstBucket, NIL);
+        Arrays.fill(occupancy, 0);
+        freeCount = freeBuckets.length;
+        for (int i = 0; i < freeCount; i++) {
+            freeBuckets[i] = freeCount - 1 - i;
+        }
+    }
+
+    /**
+     * Get the number of requests counted for an occupied slot.
+     * @param slot the slot
+     * @return its frequency, or 0 if it is not occupied
+     */
+    public int frequencyOf(int slot) {
+        int bucket = slotBucket[slot];
+        return bucket == NIL ? 0 : bucketFreq[bucket];
+    }
+
+    private int newBucket(int group, int freq, int prev, int next) {
+        int bucket = freeBuckets[--freeCount];
+        bucketFreq[bucket] = freq;
+        bucketGroup[bucket] = group;
+        bucketHead[bucket] = NIL;
+        bucketTail[bucket] = NIL;
+        bucketPrev[bucket] = prev;
+        bucketNext[bucket] = next;
+        if (prev != NIL) {
+            bucketNext[prev] = bucket;
+        } else {
+            firstBucket[group] = bucket;
+        }
+        if (next != NIL) {
+            bucketPrev[next] = bucket;
+        }
+        return bucket;
+    }
+
+    private void freeBucket(int bucket) {
+        int prev = bucketPrev[bucket];
+        int next = bucketNext[bucket];
+        if (prev != NIL) {
+            bucketNext[prev] = next;
+        } else {
+            firstBucket[bucketGroup[bucket]] = next;
+        }
+        if (next != NIL) {
+            bucketPrev[next] = prev;
+        }
+        freeBuckets[freeCount++] = bucket;
+    }
+
+    private void pushSlot(int bucket, int slot) {
+        slotBucket[slot] = bucket;
+        slotPrev[slot] = NIL;
+        slotNext[slot] = bucketHead[bucket];
+        if (bucketHead[bucket] != NIL) {
+            slotPrev[bucketHead[bucket]] = slot;
+        } else {
+            bucketTail[bucket] = slot;
+        }
+        bucketHead[bucket] = slot;
+    }
+
+    private void unlinkSlot(int bucket, int slot) {
+        int prev = slotPrev[slot];
+        int next = slotNext[slot];
+        if (prev != NIL) {
+            slotNext[prev] = next;
+        } else {
+            bucketHead[bucket] = next;
+        }
+        if (next != NIL) {
+            slotPrev[next] = prev;
+        } else {
+            bucketTail[bucket] = prev;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A backing store which makes another safe to share between threads.
+ *
+ * Fetches hold a shared read lock, so any number may run at once,
+ * and pushes and victims offered hold the exclusive write lock, so a
+ * push never overlaps another push or a fetch. The wrapped store must
+ * therefore tolerate concurrent fetches when no push is running, as
+ * BackingStore, StoreView and MappedBackingStore do.
+ */
+public class LockedBackingStore extends BackingStore {
+
+    private BackingStore store;
+    private ReadWriteLock lock;
+
+    /**
+     * Wrap a backing store for use by several threads.
+     * The wrapped store must not be used except through this one.
+     * @param store the backing store to wrap
+     */
+    public LockedBackingStore(BackingStore store) {
+        super(store.getFileName());
+        this.store = store;
+        lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Get the backing store this one wraps.
+     * @return the wrapped store
+     */
+    public BackingStore getStore() {
+        return store;
+    }
+
+    @Override
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+        lock.writeLock().lock();
+        try {
+            return store.pushData(key, newData);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public double acceptVictim(int key, int data) {
+        lock.writeLock().lock();
+        try {
+            return store.acceptVictim(key, data);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CacheLevel getCacheLevel() {
+        return store.getCacheLevel();
+    }
+
+    @Override
+    public BackingStoreResponse fetchData(int key) throws NotFoundException {
+        lock.readLock().lock();
+        try {
+            return store.fetchData(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+        lock.readLock().lock();
+        try {
+            return store.fetchBatch(keys, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * Least-recently-used replacement: evicts the item whose
+ * last insert or access lies furthest in the past.
+ * This is the policy a Cache uses unless told otherwise.
+ */
+public class LruPolicy implements ReplacementPolicy {
+
+    protected RecencyList recency;
+    //per group, the number of inserts and accesses so far
+    private long[] ticks;
+    //the tick of each slot's last insert or access
+    private long[] stamps;
+
+    /**
+     * Create an LRU policy.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     */
+    public LruPolicy(int capacity, int groups) {
+        recency = new RecencyList(capacity, groups);
+        ticks = new long[groups];
+        stamps = new long[capacity];
+    }
+
+    @Override
+    public void insert(int slot, int key) {
+        recency.touch(slot);
+        stamp(slot);
+    }
+
+    @Override
+    public void access(int slot) {
+        recency.touch(slot);
+        stamp(slot);
+    }
+
+    @Override
+    public void remove(int slot) {
+        recency.remove(slot);
+    }
+
+    @Override
+    public int selectVictim(int group, int inKey) {
+        return recency.leastRecent(group);
+    }
+
+    /**
+     * Get the number of inserts and accesses to the slot's group since
+     * the slot's own last one, in constant time. This orders the slots
+     * as recency does, but a slot's rank counts every access since, so
+     * repeated accesses to one other slot raise it each time.
+     * @param slot the slot whose rank is wanted
+     * @return the rank of the slot, or -1 if it is not occupied
+     */
+    @Override
+    public int rankOf(int slot) {
+        if (!recency.contains(slot)) {
+            return -1;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, ticks[recency.groupOf(slot)] - stamps[slot]);
+    }
+
+    @Override
+    public void clear() {
+        recency.clear();
+        Arrays.fill(ticks, 0L);
+    }
+
+    /**
+     * Record an insert or access of a slot.
+     */
+    protected void stamp(int slot) {
+        stamps[slot] = ++ticks[recency.groupOf(slot)];
+    }
+}
@@ -0,0 +1,396 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A backing store which indexes its file once and then serves
+ * every fetch from a memory-mapped view of the file.
+ *
+ * The file format is the same as for BackingStore: one key-data
+ * pair per line, separated by a blank space. The first time data
+ * is fetched, the whole file is mapped and scanned to build an
+ * index from each key to the position of its data in the file;
+ * concurrent first fetches wait for one of them to build it.
+ * Afterwards a fetch costs one hash lookup and parsing one number,
+ * with no file reads or per-line allocation.
+ *
+ * The time reported for a fetch is unchanged from BackingStore:
+ * one unit for every line up to and including the key's line,
+ * as if the file had been scanned from the top.
+ *
+ * Writes change only the record being written, directly in the
+ * mapped file. A data field can be overwritten in place by any
+ * value that fits in its width, padding with trailing blanks
+ * (which BackingStore ignores). A value too wide for its field
+ * triggers a compaction: the file is rewritten once with every
+ * key's data field widened to fit any int, so that every later
+ * write is in place. A store written many times thus pays for one
+ * rewrite of its file, not one for each key. The compacting write
+ * unmaps the old file, then maps and indexes the new one before it
+ * returns, so it must not overlap any other access, as pushes through
+ * a LockedBackingStore never do. A compaction which fails to write
+ * the file throws an UncheckedIOException.
+ *
+ * This store assumes it is the only writer of its file while in use.
+ * Files must be smaller than 2GB to be mapped.
+ */
+public class MappedBackingStore extends BackingStore {
+
+    //the widest data field any int needs, e.g. "-2147483648"
+    private static final int MAX_DATA_WIDTH = 11;
+
+    private MappedByteBuffer buffer;
+    //maps each key to its record number, in order of first appearance
+    private IntIntHashMap index;
+    //for each record number, the offset in the file where its data begins
+    private int[] dataOffsets;
+    //for each record number, the bytes available for its data before the line ends
+    private int[] dataWidths;
+    //for each record number, the 1-based line number of its line
+    private int[] lineNumbers;
+    private int records;
+    //whether the fields above describe the mapped file
+    private volatile boolean indexed;
+
+    /**
+     * Create a new memory-mapped backing store for the file at fileName.
+     * The file is not read until data is first fetched.
+     * @param fileName the file path to the backing store file
+     */
+    public MappedBackingStore(String fileName) {
+        super(fileName);
+    }
+
+    /**
+     * Fetch data from the backing store given the associated key.
+     * If the key is not found in the backing store, throw
+     * a NotFoundException.
+     *
+     * @param key the key of the requested data item
+     * @return the data from the backing store with requested key if found
+     * @throws NotFoundException if the requested key is not found
+     */
+    @Override
+    public BackingStoreResponse fetchData(int key) throws NotFoundException {
+        int record = findRecord(key);
+        try {
+            int data = parseData(dataOffsets[record]);
+            return new BackingStoreResponse(data, lineNumbers[record]);
+        } catch (NumberFormatException nfe) {
+            throw new NotFoundException();
+        }
+    }
+
+    /**
+     * Write data to the backing store, replacing the data
+     * associated with key. Only the key's own record is changed,
+     * unless the new data is too wide for it and the file must
+     * be compacted.
+     * The order of keys in the backing store does not change.
+     * @param key the key of the data item to update
+     * @param newData the new data to write
+     * @return the written data and the time taken, counted as for fetchData()
+     * @throws NotFoundException if the specified key is not found
+     * @throws UncheckedIOException if the file must be compacted and cannot be rewritten
+     */
+    @Override
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+        int record = findRecord(key);
+        byte[] digits = Integer.toString(newData).getBytes();
+        int offset = dataOffsets[record];
+        int width = dataWidths[record];
+        BackingStoreResponse ret = new BackingStoreResponse(newData, lineNumbers[record]);
+
+        if (digits.length <= width) {
+            for (int i = 0; i < width; i++) {
+                buffer.put(offset + i, i < digits.length ? digits[i] : (byte) ' ');
+            }
+            return ret;
+        }
+
+        try {
+            compact(record, digits);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        return ret;
+    }
+
+    /**
+     * Rewrite the file with every indexed data field padded with
+     * blanks to at least MAX_DATA_WIDTH, and the data of record
+     * replaced by digits. Everything else is copied unchanged. The
+     * new file is written beside the old one and then moved over it,
+     * so a failure leaves the original intact. The old mapping is
+     * released before the move, since some systems will not replace
+     * a mapped file, and the new file is indexed at once.
+     */
+    private void compact(int record, byte[] digits) throws IOException {
+        Path path = Paths.get(getFileName()).toAbsolutePath();
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            byte[] chunk = new byte[1 << 16];
+            int copied = 0;
+            //records are numbered in order of their place in the file
+            for (int r = 0; r < records; r++) {
+                int offset = dataOffsets[r];
+                int width = dataWidths[r];
+                copy(out, chunk, copied, offset);
+                if (r == record) {
+                    out.write(digits);
+                    pad(out, digits.length);
+                } else {
+                    copy(out, chunk, offset, offset + width);
+                    pad(out, width);
+                }
+                copied = offset + width;
+            }
+            copy(out, chunk, copied, buffer.limit());
+        } catch (IOException ioe) {
+            Files.deleteIfExists(tmp);
+            throw ioe;
+        }
+        MappedByteBuffer old = buffer;
+        invalidate();
+        unmap(old);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        buildIndex();
+        indexed = true;
+    }
+
+    /**
+     * Release a mapping at once rather than when it is collected.
+     * The buffer must never be used again. Where the JDK offers no
+     * way to do so, the mapping is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), mapped);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //unmapped once collected
+        }
+    }
+
+    /**
+     * Copy the mapped bytes in [from, to) to out.
+     */
+    private void copy(OutputStream out, byte[] chunk, int from, int to) throws IOException {
+        while (from < to) {
+            int length = Math.min(chunk.length, to - from);
+            buffer.get(from, chunk, 0, length);
+            out.write(chunk, 0, length);
+            from += length;
+        }
+    }
+
+    /**
+     * Pad a data field of width bytes with blanks to MAX_DATA_WIDTH.
+     */
+    private static void pad(OutputStream out, int width) throws IOException {
+        for (int i = width; i < MAX_DATA_WIDTH; i++) {
+            out.write(' ');
+        }
+    }
+
+    /**
+     * Discard the index and mapping so that the file
+     * is mapped and scanned again on the next access.
+     */
+    public void invalidate() {
+        indexed = false;
+        buffer = null;
+        index = null;
+        dataOffsets = null;
+        dataWidths = null;
+        lineNumbers = null;
+        records = 0;
+    }
+
+    /**
+     * Find the record number of key, indexing the file if needed.
+     * Only one thread indexes the file; any others wait for it.
+     * @throws NotFoundException if the key is not in the file or the file cannot be read
+     */
+    protected int findRecord(int key) throws NotFoundException {
+        if (!indexed) {
+            synchronized (this) {
+                if (!indexed) {
+                    try {
+                        buildIndex();
+                    } catch (IOException ioe) {
+                        invalidate();
+                        throw new NotFoundException();
+                    }
+                    indexed = true;
+                }
+            }
+        }
+        int record = index.get(key);
+        if (record < 0) {
+            throw new NotFoundException();
+        }
+        return record;
+    }
+
+    /**
+     * Map the file for reading and writing and record where each
+     * key's data lives, keeping only the first line for each key.
+     * The mapping stays valid after the channel is closed.
+     */
+    private void buildIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(getFileName()),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+
+        index = new IntIntHashMap(1024);
+        dataOffsets = new int[1024];
+        dataWidths = new int[1024];
+        lineNumbers = new int[1024];
+        records = 0;
+
+        int limit = buffer.limit();
+        int lineStart = 0;
+        int lineNumber = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            lineNumber++;
+            indexLine(lineStart, lineEnd, lineNumber);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Index one line occupying [start, end) if it is a key-data pair
+     * that BackingStore would match: exactly two space-separated fields
+     * once trailing blanks are ignored, the first of which is a key
+     * written exactly as Integer.toString would write it.
+     */
+    private void indexLine(int start, int end, int lineNumber) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int fieldEnd = end;
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+
+        int space = -1;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ' ') {
+                if (space >= 0) {
+                    return;
+                }
+                space = i;
+            }
+        }
+        if (space < 0) {
+            return;
+        }
+
+        long key = parseKey(start, space);
+        if (key == Long.MIN_VALUE || index.containsKey((int) key)) {
+            return;
+        }
+
+        if (records == dataOffsets.length) {
+            dataOffsets = Arrays.copyOf(dataOffsets, records * 2);
+            dataWidths = Arrays.copyOf(dataWidths, records * 2);
+            lineNumbers = Arrays.copyOf(lineNumbers, records * 2);
+        }
+        dataOffsets[records] = space + 1;
+        dataWidths[records] = fieldEnd - (space + 1);
+        lineNumbers[records] = lineNumber;
+        index.put((int) key, records);
+        records++;
+    }
+
+    /**
+     * Parse a key in canonical decimal form from [start, end).
+     * @return the key, or Long.MIN_VALUE if the text is not a canonical int
+     */
+    private long parseKey(int start, int end) {
+        boolean negative = start < end && buffer.get(start) == '-';
+        int digits = negative ? start + 1 : start;
+        int length = end - digits;
+        if (length < 1 || length > 10
+                || (buffer.get(digits) == '0' && (length > 1 || negative))) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = digits; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (b - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        return value;
+    }
+
+    /**
+     * Parse the data field beginning at offset, which ends at the
+     * first blank, carriage return, newline or the end of the file.
+     * Accepts the same forms as Integer.parseInt.
+     */
+    protected int parseData(int offset) {
+        int limit = buffer.limit();
+        int i = offset;
+        boolean negative = false;
+        if (i < limit && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == ' ' || b == '\r' || b == '\n') {
+                break;
+            }
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + (b - '0');
+            if (++digits > 10 || value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException();
+            }
+        }
+        value = negative ? -value : value;
+        if (digits == 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException();
+        }
+        return (int) value;
+    }
+
+    /**
+     * Fetch several keys with one index lookup each, charging
+     * times as BackingStore.fetchBatch() does.
+     * @see BackingStore#fetchBatch
+     */
+    @Override
+    public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+        return fetchEach(keys, count);
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a binary trace written by BinaryTraceWriter through
+ * a memory mapping of the file, decoding requests straight
+ * into primitive arrays without allocating per request.
+ *
+ * Files larger than a mapping window are mapped one window
+ * at a time. The trace can be rewound and replayed as often
+ * as needed without reopening or re-parsing the header.
+ * @see BinaryTraceWriter for the format
+ */
+public class MappedTraceReader implements TraceSource {
+
+    private static final long WINDOW_SIZE = 1L << 30;
+    //the longest request: a 5-byte key varint and a 5-byte data varint
+    private static final int MAX_RECORD_SIZE = 10;
+
+    private FileChannel channel;
+    private long fileSize;
+    private MappedByteBuffer window;
+    //the file offset where the current window starts
+    private long windowStart;
+    //the file offset of the first request
+    private long firstRecord;
+
+    private int capacity;
+    private String storeFile;
+    private int previousKey;
+
+    /**
+     * Open a binary trace file and read its header.
+     * @param filePath the path to the binary trace
+     * @throws IOException if the file cannot be read
+     * @throws NumberFormatException if the file is not a binary trace
+     */
+    public MappedTraceReader(String filePath) throws IOException {
+        channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        fileSize = channel.size();
+        mapFrom(0);
+
+        byte[] magic = new byte[BinaryTraceWriter.MAGIC.length];
+        if (fileSize < magic.length + 1) {
+            close();
+            throw new NumberFormatException("Not a binary trace: " + filePath);
+        }
+        window.get(magic);
+        if (!Arrays.equals(magic, BinaryTraceWriter.MAGIC) || window.get() != BinaryTraceWriter.VERSION) {
+            close();
+            throw new NumberFormatException("Not a binary trace: " + filePath);
+        }
+        capacity = (int) readVarint();
+        byte[] path = new byte[(int) readVarint()];
+        window.get(path);
+        storeFile = new String(path, StandardCharsets.UTF_8);
+        firstRecord = windowStart + window.position();
+        previousKey = 0;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getStoreFile() {
+        return storeFile;
+    }
+
+    @Override
+    public int read(int[] keys, int[] data, boolean[] writes) throws IOException {
+        int count = 0;
+        while (count < keys.length) {
+            if (window.remaining() < MAX_RECORD_SIZE && windowStart + window.limit() < fileSize) {
+                mapFrom(windowStart + window.position());
+            }
+            if (!window.hasRemaining()) {
+                break;
+            }
+            long head = readVarint();
+            previousKey += unzigzag(head >>> 1);
+            keys[count] = previousKey;
+            writes[count] = (head & 1) != 0;
+            data[count] = writes[count] ? unzigzag(readVarint()) : 0;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Go back to the first request, so the trace can be replayed.
+     * @throws IOException if the file cannot be mapped
+     */
+    public void rewind() throws IOException {
+        if (firstRecord >= windowStart && firstRecord <= windowStart + window.limit()) {
+            window.position((int) (firstRecord - windowStart));
+        } else {
+            mapFrom(firstRecord);
+        }
+        previousKey = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void mapFrom(long offset) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, fileSize - offset));
+    }
+
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (!window.hasRemaining() || shift > 28) {
+                throw new NumberFormatException("Truncated or corrupt binary trace");
+            }
+            byte b = window.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static int unzigzag(long value) {
+        int v = (int) value;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * First-order Markov prefetching: learns which key followed each key
+ * the last time it was requested, and predicts that the same key
+ * will follow it again.
+ *
+ * The transition table keeps one successor per key, the most recent,
+ * in an IntIntHashMap. With a degree above 1 the prediction follows
+ * the chain of successors, stopping at a key with none or one already
+ * predicted. The table holds at most maxKeys keys; when it would grow
+ * beyond that it is cleared and learning starts again, so memory stays
+ * bounded however many distinct keys the trace holds.
+ */
+public class MarkovPrefetcher implements Prefetcher {
+
+    /** The default bound on the number of keys with a known successor. */
+    public static final int DEFAULT_MAX_KEYS = 1 << 16;
+
+    private int degree;
+    private int maxKeys;
+    //maps each key to the key requested after it last time
+    private IntIntHashMap successors;
+    private boolean seen;
+    private int lastKey;
+
+    /**
+     * Create a Markov prefetcher predicting one key,
+     * remembering up to DEFAULT_MAX_KEYS keys.
+     */
+    public MarkovPrefetcher() {
+        this(1, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Create a Markov prefetcher.
+     * @param degree how many keys along the chain of successors to predict, at least 1
+     * @param maxKeys the most keys to remember a successor for
+     */
+    public MarkovPrefetcher(int degree, int maxKeys) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("Must prefetch at least one key.");
+        }
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Must remember at least one key.");
+        }
+        this.degree = degree;
+        this.maxKeys = maxKeys;
+        successors = new IntIntHashMap(Math.min(maxKeys, 1024));
+        reset();
+    }
+
+    @Override
+    public int getDegree() {
+        return degree;
+    }
+
+    @Override
+    public int predict(int key, boolean miss, int[] out) {
+        if (seen && lastKey != key) {
+            if (successors.size() >= maxKeys && !successors.containsKey(lastKey)) {
+                successors.clear();
+            }
+            successors.put(lastKey, key);
+        }
+        seen = true;
+        lastKey = key;
+
+        int count = 0;
+        int current = key;
+        while (count < degree && successors.containsKey(current)) {
+            current = successors.get(current);
+            if (current == key || contains(out, count, current)) {
+                break;
+            }
+            out[count++] = current;
+        }
+        return count;
+    }
+
+    @Override
+    public void reset() {
+        successors.clear();
+        seen = false;
+        lastKey = 0;
+    }
+
+    private static boolean contains(int[] keys, int count, int key) {
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
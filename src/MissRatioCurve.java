@@ -0,0 +1,137 @@
+import java.io.PrintStream;
+
+/**
+ * The misses a fully associative LRU cache would have on a trace,
+ * for every capacity at once.
+ *
+ * The curve is recorded at evenly spaced capacities 0, step, 2*step
+ * and so on; exact curves have a step of 1, and misses between recorded
+ * capacities are interpolated linearly. Counts are doubles since they
+ * may be estimates scaled up from a sample of the trace, in which case
+ * each recorded point also carries a standard error; exact curves hold
+ * whole numbers and have no error. Beyond the largest capacity recorded,
+ * which is enough to hold every key of the trace, only cold misses
+ * remain and the curve is flat.
+ * @see StackDistanceAnalyzer
+ * @see ShardsAnalyzer
+ */
+public class MissRatioCurve {
+
+    //misses[i] is the number of misses with capacity i * step
+    private double[] misses;
+    //standardErrors[i] is the standard error of the miss ratio with capacity i * step
+    private double[] standardErrors;
+    private int step;
+    private double accesses;
+
+    /**
+     * Create an exact curve from miss counts.
+     * @param misses the misses for each capacity from 0 upward,
+     *               where capacity 0 misses on every access
+     * @param accesses the number of accesses in the trace
+     */
+    public MissRatioCurve(double[] misses, double accesses) {
+        this(misses, new double[misses.length], 1, accesses);
+    }
+
+    /**
+     * Create an estimated curve.
+     * @param misses the misses for capacities 0, step, 2*step and so on
+     * @param standardErrors the standard error of the miss ratio at each of those capacities
+     * @param step the capacity between recorded points
+     * @param accesses the number of accesses in the trace
+     */
+    public MissRatioCurve(double[] misses, double[] standardErrors, int step, double accesses) {
+        if (misses.length == 0 || standardErrors.length != misses.length) {
+            throw new IllegalArgumentException("A curve needs a miss count and error for at least capacity 0.");
+        }
+        if (step < 1) {
+            throw new IllegalArgumentException("Step must be positive.");
+        }
+        this.misses = misses.clone();
+        this.standardErrors = standardErrors.clone();
+        this.step = step;
+        this.accesses = accesses;
+    }
+
+    /**
+     * Get the largest capacity with a recorded miss count.
+     * Larger capacities miss exactly as often.
+     * @return the largest capacity recorded
+     */
+    public int getMaxCapacity() {
+        return (misses.length - 1) * step;
+    }
+
+    /**
+     * Get the capacity between recorded points.
+     * @return 1 for an exact curve, or more for a coarser estimate
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Get the number of accesses in the trace.
+     * @return the number of accesses
+     */
+    public double getAccesses() {
+        return accesses;
+    }
+
+    /**
+     * Get the number of misses for a cache of the given capacity.
+     * @param capacity a non-negative capacity
+     * @return the number of misses
+     */
+    public double getMisses(int capacity) {
+        return interpolate(misses, capacity);
+    }
+
+    /**
+     * Get the fraction of accesses which miss for a cache of the given capacity.
+     * @param capacity a non-negative capacity
+     * @return the miss ratio from 0 to 1, or 0 for an empty trace
+     */
+    public double getMissRatio(int capacity) {
+        if (accesses == 0) {
+            return 0.0;
+        }
+        return getMisses(capacity) / accesses;
+    }
+
+    /**
+     * Get the standard error of the estimated miss ratio for
+     * a cache of the given capacity. Roughly 95% of the time, the
+     * true miss ratio lies within twice this of getMissRatio().
+     * @param capacity a non-negative capacity
+     * @return the standard error, or 0 for an exact curve
+     */
+    public double getStandardError(int capacity) {
+        return interpolate(standardErrors, capacity);
+    }
+
+    /**
+     * Write the curve to an output stream, one line per recorded capacity
+     * from step to getMaxCapacity(): the capacity, its misses, its miss
+     * ratio and the ratio's standard error, separated by blank spaces.
+     * @param out the stream to write to
+     */
+    public void write(PrintStream out) {
+        for (int i = 1; i < misses.length; i++) {
+            out.println(i * step + " " + misses[i] + " " + getMissRatio(i * step) + " " + standardErrors[i]);
+        }
+    }
+
+    private double interpolate(double[] points, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative.");
+        }
+        int i = capacity / step;
+        if (i >= points.length - 1) {
+            return points[points.length - 1];
+        }
+        double fraction = (double) (capacity - i * step) / step;
+        return points[i] + fraction * (points[i + 1] - points[i]);
+    }
+}
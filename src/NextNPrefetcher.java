@@ -0,0 +1,41 @@
+/**
+ * Sequential prefetching: after every request for key k,
+ * predicts the keys k+1 to k+n.
+ *
+ * Suited to traces which walk through keys in order. On such a
+ * trace the cache already holds most of the window, so each request
+ * typically installs just the one key which has entered it.
+ */
+public class NextNPrefetcher implements Prefetcher {
+
+    private int n;
+
+    /**
+     * Create a sequential prefetcher.
+     * @param n how many following keys to predict, at least 1
+     */
+    public NextNPrefetcher(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Must prefetch at least one key.");
+        }
+        this.n = n;
+    }
+
+    @Override
+    public int getDegree() {
+        return n;
+    }
+
+    @Override
+    public int predict(int key, boolean miss, int[] out) {
+        int count = 0;
+        for (int i = 1; i <= n && (long) key + i <= Integer.MAX_VALUE; i++) {
+            out[count++] = key + i;
+        }
+        return count;
+    }
+
+    @Override
+    public void reset() {
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * A strategy predicting which keys a Cache will be asked for soon,
+ * so that it can install them before they are requested.
+ *
+ * The cache shows the prefetcher every demand request, in order,
+ * after serving it, and installs whichever of the predicted keys it
+ * does not already hold. Predictions only ever change what is cached,
+ * never the data returned. Observing a request should take constant
+ * time, since it runs on every request.
+ * @see Cache#setPrefetcher
+ */
+public interface Prefetcher {
+
+    /**
+     * Get the most keys predict() writes at once.
+     * @return the prefetch degree
+     */
+    int getDegree();
+
+    /**
+     * Observe a demand request and predict keys likely to follow it.
+     * @param key the key just requested
+     * @param miss whether the request missed
+     * @param out the array to write predicted keys into, most likely first,
+     *            with room for at least getDegree() keys
+     * @return the number of keys predicted
+     */
+    int predict(int key, boolean miss, int[] out);
+
+    /**
+     * Forget everything learned from the requests observed so far.
+     */
+    void reset();
+}
@@ -0,0 +1,82 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Random replacement: evicts an occupied slot of the group chosen
+ * uniformly at random. The generator is seeded so that simulations
+ * are repeatable.
+ */
+public class RandomPolicy implements ReplacementPolicy {
+
+    protected boolean[] occupied;
+    protected int groupSize;
+    protected long seed;
+    protected Random random;
+
+    /**
+     * Create a random policy with a fixed seed of 0.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     */
+    public RandomPolicy(int capacity, int groups) {
+        this(capacity, groups, 0L);
+    }
+
+    /**
+     * Create a random policy.
+     * @param capacity the number of slots in the cache
+     * @param groups the number of groups, which divides capacity
+     * @param seed the seed for the random number generator
+     */
+    public RandomPolicy(int capacity, int groups, long seed) {
+        if (groups < 1 || capacity % groups != 0) {
+            throw new IllegalArgumentException("Groups must evenly divide the capacity.");
+        }
+        occupied = new boolean[capacity];
+        groupSize = capacity / groups;
+        this.seed = seed;
+        random = new Random(seed);
+    }
+
+    @Override
+    public void insert(int slot, int key) {
+        occupied[slot] = true;
+    }
+
+    @Override
+    public void access(int slot) {
+    }
+
+    @Override
+    public void remove(int slot) {
+        occupied[slot] = false;
+    }
+
+    /**
+     * Victims are only needed when the group is full,
+     * so the first draw almost always lands on an occupied slot.
+     */
+    @Override
+    public int selectVictim(int group, int inKey) {
+        int base = group * groupSize;
+        int slot;
+        do {
+            slot = base + random.nextInt(groupSize);
+        } while (!occupied[slot]);
+        return slot;
+    }
+
+    /**
+     * Random replacement has no eviction order, so every occupied slot has rank 0.
+     */
+    @Override
+    public int rankOf(int slot) {
+        return occupied[slot] ? 0 : -1;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(occupied, false);
+        random = new Random(seed);
+    }
+}
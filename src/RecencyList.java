@@ -0,0 +1,233 @@
+import java.util.Arrays;
+
+/**
+ * An ordering of cache slots from most to least recently used.
+ * Slots are the integer indices 0 to capacity-1 and the list is
+ * intrusive: the links of each slot are kept in the primitive
+ * arrays prev and next, so no node objects are ever allocated.
+ *
+ * The slots may be split into equally sized groups of consecutive
+ * indices, each with its own independent order. A set-associative
+ * cache uses one group per set; a fully associative cache has a
+ * single group holding every slot.
+ *
+ * Moving a slot to the front, removing a slot, and finding
+ * the least recently used slot of a group all take constant time.
+ * The rank of a slot is not stored anywhere; it is computed
+ * by walking the list only when asked for.
+ */
+public class RecencyList {
+
+    //marks the end of the list in prev and next
+    private static final int NIL = -1;
+    //marks a slot which is not in the list at all
+    private static final int UNLINKED = -2;
+
+    private final int[] prev;
+    private final int[] next;
+    private final int groupSize;
+    private final int[] head;
+    private final int[] tail;
+    private final int[] size;
+
+    /**
+     * Create an empty list over slots 0 to capacity-1
+     * with all slots in a single group.
+     * @param capacity the number of slots which may be linked
+     */
+    public RecencyList(int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * Create an empty list over slots 0 to capacity-1, split into
+     * groups of consecutive slots: slot s belongs to group
+     * s / (capacity / groups).
+     * @param capacity the number of slots which may be linked
+     * @param groups the number of groups, which must divide capacity
+     */
+    public RecencyList(int capacity, int groups) {
+        if (groups < 1 || capacity % groups != 0) {
+            throw new IllegalArgumentException("Groups must evenly divide the capacity.");
+        }
+        prev = new int[capacity];
+        next = new int[capacity];
+        groupSize = capacity / groups;
+        head = new int[groups];
+        tail = new int[groups];
+        size = new int[groups];
+        clear();
+    }
+
+    /**
+     * Unlink every slot, emptying the list.
+     */
+    public void clear() {
+        Arrays.fill(prev, UNLINKED);
+        Arrays.fill(next, UNLINKED);
+        Arrays.fill(head, NIL);
+        Arrays.fill(tail, NIL);
+        Arrays.fill(size, 0);
+    }
+
+    /**
+     * Get the group a slot belongs to.
+     * @param slot the slot
+     * @return the slot's group
+     */
+    public int groupOf(int slot) {
+        return slot / groupSize;
+    }
+
+    /**
+     * Get the number of slots currently linked in the first group.
+     * @return the number of linked slots
+     */
+    public int size() {
+        return size(0);
+    }
+
+    /**
+     * Get the number of slots currently linked in a group.
+     * @param group the group to count
+     * @return the number of linked slots in the group
+     */
+    public int size(int group) {
+        return size[group];
+    }
+
+    /**
+     * Check whether a slot is currently in the list.
+     * @param slot the slot to check
+     * @return true if and only if the slot is linked
+     */
+    public boolean contains(int slot) {
+        return prev[slot] != UNLINKED;
+    }
+
+    /**
+     * Mark a slot as the most recently used of its group,
+     * linking it first if it is not yet in the list.
+     * @param slot the slot just accessed
+     */
+    public void touch(int slot) {
+        int g = groupOf(slot);
+        if (slot == head[g]) {
+            return;
+        }
+        if (contains(slot)) {
+            unlink(slot);
+        }
+        prev[slot] = NIL;
+        next[slot] = head[g];
+        if (head[g] != NIL) {
+            prev[head[g]] = slot;
+        } else {
+            tail[g] = slot;
+        }
+        head[g] = slot;
+        size[g]++;
+    }
+
+    /**
+     * Link a slot which is not yet in the list as the least recently
+     * used of its group, so that it is the group's next eviction candidate.
+     * @param slot the slot to append
+     */
+    public void addLeastRecent(int slot) {
+        if (contains(slot)) {
+            return;
+        }
+        int g = groupOf(slot);
+        next[slot] = NIL;
+        prev[slot] = tail[g];
+        if (tail[g] != NIL) {
+            next[tail[g]] = slot;
+        } else {
+            head[g] = slot;
+        }
+        tail[g] = slot;
+        size[g]++;
+    }
+
+    /**
+     * Remove a slot from the list. Does nothing if it is not linked.
+     * @param slot the slot to remove
+     */
+    public void remove(int slot) {
+        if (contains(slot)) {
+            unlink(slot);
+            prev[slot] = UNLINKED;
+            next[slot] = UNLINKED;
+        }
+    }
+
+    /**
+     * Get the least recently used slot of the first group.
+     * @return the slot at the back of the list, or -1 if the list is empty
+     */
+    public int leastRecent() {
+        return leastRecent(0);
+    }
+
+    /**
+     * Get the least recently used slot of a group.
+     * @param group the group to search
+     * @return the slot at the back of the group, or -1 if the group is empty
+     */
+    public int leastRecent(int group) {
+        return tail[group];
+    }
+
+    /**
+     * Get the most recently used slot of the first group.
+     * @return the slot at the front of the list, or -1 if the list is empty
+     */
+    public int mostRecent() {
+        return head[0];
+    }
+
+    /**
+     * Get the 0-based position of a slot within its group:
+     * 0 for the most recently used slot, size-1 for the least.
+     * Walks inward from both ends at once, so the cost is bounded
+     * by the slot's distance from the nearer end.
+     * @param slot the slot whose rank is wanted
+     * @return the rank of the slot, or -1 if it is not linked
+     */
+    public int rankOf(int slot) {
+        if (!contains(slot)) {
+            return -1;
+        }
+        int g = groupOf(slot);
+        int fromFront = head[g];
+        int fromBack = tail[g];
+        for (int steps = 0; ; steps++) {
+            if (fromFront == slot) {
+                return steps;
+            }
+            if (fromBack == slot) {
+                return size[g] - 1 - steps;
+            }
+            fromFront = next[fromFront];
+            fromBack = prev[fromBack];
+        }
+    }
+
+    private void unlink(int slot) {
+        int g = groupOf(slot);
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NIL) {
+            next[p] = n;
+        } else {
+            head[g] = n;
+        }
+        if (n != NIL) {
+            prev[n] = p;
+        } else {
+            tail[g] = p;
+        }
+        size[g]--;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * A strategy deciding which item a Cache evicts when there is
+ * no room for incoming data.
+ *
+ * A policy tracks the cache's indices (slots) 0 to capacity-1,
+ * split into equally sized groups of consecutive slots: one group
+ * per set of a set-associative cache, or a single group for a fully
+ * associative cache. Eviction always chooses a victim within one
+ * group, and a policy keeps independent state for each group.
+ *
+ * The cache reports every change to its contents:
+ * insert() when a slot is filled by a demand request,
+ * access() when a request hits an occupied slot, and
+ * remove() when a slot is emptied.
+ * All of these, and victim selection, should take constant or
+ * amortized constant time, since they run on every request.
+ */
+public interface ReplacementPolicy {
+
+    /**
+     * Creates policies for caches of a given shape.
+     */
+    interface Factory {
+        /**
+         * Create a policy for a cache.
+         * @param capacity the number of slots in the cache
+         * @param groups the number of groups, which divides capacity
+         * @return a new policy with no slots occupied
+         */
+        ReplacementPolicy create(int capacity, int groups);
+    }
+
+    /**
+     * Record that a slot has just been filled with key,
+     * on behalf of a request for that key.
+     * @param slot the slot filled
+     * @param key the key now stored in the slot
+     */
+    void insert(int slot, int key);
+
+    /**
+     * Record that a request hit the item in an occupied slot.
+     * @param slot the slot accessed
+     */
+    void access(int slot);
+
+    /**
+     * Record that a slot has been emptied.
+     * @param slot the slot emptied
+     */
+    void remove(int slot);
+
+    /**
+     * Choose the occupied slot to evict from a group to make room for
+     * inKey. Must only be called when the group has an occupied slot.
+     * The slot is not emptied until remove() is called for it.
+     * @param group the group whose slots may be evicted
+     * @param inKey the incoming key to be installed
+     * @return the slot to evict
+     */
+    int selectVictim(int group, int inKey);
+
+    /**
+     * Get the position of an occupied slot in the order in which its
+     * group would be evicted if nothing else happened, counted from the
+     * far end: 0 for the slot the policy would evict last, up to one less
+     * than the group's occupancy for the next victim. Least-recently used
+     * instead counts the accesses to the group since the slot's own,
+     * which orders the slots the same way but may exceed the occupancy.
+     * Policies with no meaningful order may return 0 for every slot.
+     * @param slot the slot whose rank is wanted
+     * @return the rank of the slot, or -1 if it is not occupied
+     */
+    int rankOf(int slot);
+
+    /**
+     * Forget every slot, as if newly created.
+     */
+    void clear();
+}
@@ -0,0 +1,49 @@
+/**
+ * The replacement policies shipped with the simulator,
+ * each usable as a factory for Cache.setReplacementPolicy().
+ * @see Cache#setReplacementPolicy
+ */
+public enum ReplacementPolicyType implements ReplacementPolicy.Factory {
+    /** Least recently used. */
+    LRU {
+        @Override
+        public ReplacementPolicy create(int capacity, int groups) {
+            return new LruPolicy(capacity, groups);
+        }
+    },
+    /** First in, first out. */
+    FIFO {
+        @Override
+        public ReplacementPolicy create(int capacity, int groups) {
+            return new FifoPolicy(capacity, groups);
+        }
+    },
+    /** Least frequently used, ties broken by least recently used. */
+    LFU {
+        @Override
+        public ReplacementPolicy create(int capacity, int groups) {
+            return new LfuPolicy(capacity, groups);
+        }
+    },
+    /** CLOCK, or second chance. */
+    CLOCK {
+        @Override
+        public ReplacementPolicy create(int capacity, int groups) {
+            return new ClockPolicy(capacity, groups);
+        }
+    },
+    /** Adaptive Replacement Cache. */
+    ARC {
+        @Override
+        public ReplacementPolicy create(int capacity, int groups) {
+            return new ArcPolicy(capacity, groups);
+        }
+    },
+    /** Uniformly random, with a fixed seed of 0. */
+    RANDOM {
+        @Override
+        public ReplacementPolicy create(int capacity, int groups) {
+            return new RandomPolicy(capacity, groups);
+        }
+    }
+}
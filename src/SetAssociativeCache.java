@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * A set-associative cache. The cache's indices are split into
+ * sets of consecutive indices, each holding up to a fixed number
+ * of ways. Every key maps to exactly one set, by its value
+ * modulo the number of sets, and can only be stored in that set.
+ *
+ * Each set is managed independently: a key is installed in the
+ * smallest empty index of its set, and when its set is full the
+ * replacement policy chooses a victim from that set alone, even if
+ * other sets still have room. Ranks are likewise relative to the set.
+ *
+ * A direct-mapped cache is simply a 1-way cache, and a cache
+ * whose ways equal its capacity behaves exactly like Cache.
+ */
+public class SetAssociativeCache extends Cache {
+
+    protected int ways;
+    protected int sets;
+    //setSizes[s] is the number of occupied indices in set s
+    protected int[] setSizes;
+
+    /**
+     * Create a new set-associative cache with backing store
+     * as a file located at filePath.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param ways the number of items each set holds, which must divide capacity
+     * @param filePath the file path to the file acting as backing store.
+     */
+    public SetAssociativeCache(int capacity, int ways, String filePath) {
+        this(capacity, ways, new BackingStore(filePath));
+    }
+
+    /**
+     * Create a new set-associative cache in front of an existing backing store.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param ways the number of items each set holds, which must divide capacity
+     * @param backingStore the backing store holding all data
+     */
+    public SetAssociativeCache(int capacity, int ways, BackingStore backingStore) {
+        this(capacity, ways, backingStore, WritePolicy.WRITE_THROUGH);
+    }
+
+    /**
+     * Create a new set-associative cache in front of an existing
+     * backing store, using the given write policy.
+     *
+     * @param capacity a positive integer capacity of the cache
+     * @param ways the number of items each set holds, which must divide capacity
+     * @param backingStore the backing store holding all data
+     * @param writePolicy when written data reaches the backing store
+     */
+    public SetAssociativeCache(int capacity, int ways, BackingStore backingStore, WritePolicy writePolicy) {
+        super(capacity, backingStore, writePolicy);
+        if (ways < 1 || capacity % ways != 0) {
+            throw new IllegalArgumentException("Ways must be positive and evenly divide the capacity.");
+        }
+        this.ways = ways;
+        this.sets = capacity / ways;
+        this.setSizes = new int[sets];
+        setReplacementPolicy(ReplacementPolicyType.LRU);
+    }
+
+    /**
+     * Get the number of items each set can hold.
+     * @return the associativity of the cache
+     */
+    public int getWays() {
+        return ways;
+    }
+
+    /**
+     * Get the number of sets in the cache.
+     * @return the number of sets
+     */
+    public int getSets() {
+        return sets;
+    }
+
+    /**
+     * Get the set a key maps to.
+     * @param key the key
+     * @return the index of the key's set, from 0 to getSets()-1
+     */
+    public int setOf(int key) {
+        return Math.floorMod(key, sets);
+    }
+
+    /**
+     * Each set is a separate group for the replacement policy.
+     *
+     * @return the number of sets
+     */
+    @Override
+    protected int policyGroups() {
+        return sets;
+    }
+
+    /**
+     * Check whether the set of the incoming key has an empty index.
+     *
+     * @param inKey the incoming key to be installed
+     * @return true if and only if inKey's set is not full
+     */
+    @Override
+    protected boolean hasRoomFor(int inKey) {
+        return setSizes[setOf(inKey)] < ways;
+    }
+
+    /**
+     * Find the smallest empty index in the set of the incoming key,
+     * looking at no more than the set's ways, 64 at a time.
+     *
+     * @param inKey the incoming key to be installed
+     * @return an empty index in inKey's set, or -1 if it is full
+     */
+    @Override
+    protected int findEmptySlot(int inKey) {
+        int base = setOf(inKey) * ways;
+        int end = base + ways;
+        for (int i = base; i < end; i = ((i >>> 6) + 1) << 6) {
+            long free = ~occupied[i >>> 6] & (-1L << i);
+            if (free != 0) {
+                int slot = ((i >>> 6) << 6) + Long.numberOfTrailingZeros(free);
+                return slot < end ? slot : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Install the key-data pair in its set, counting the set's new item.
+     *
+     * @param key the key of the data to install in the cache.
+     * @param data the data to install in the cache.
+     * @return the index in the cache where the pair is installed.
+     */
+    @Override
+    protected int installData(int key, int data) {
+        int index = super.installData(key, data);
+        setSizes[index / ways]++;
+        return index;
+    }
+
+    /**
+     * Empty an occupied index, counting the item leaving its set.
+     * @param index the index to empty
+     */
+    @Override
+    protected void removeSlot(int index) {
+        super.removeSlot(index);
+        setSizes[index / ways]--;
+    }
+
+    /**
+     * Reset the cache and clear its contents, emptying every set.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        Arrays.fill(setSizes, 0);
+    }
+
+    /**
+     * Let the replacement policy choose a victim in the set of the incoming key.
+     *
+     * @param inKey the incoming key to be installed
+     * @return the index in the cache from where to evict old data
+     */
+    @Override
+    protected int findEvictCandidate(int inKey) {
+        return policy.selectVictim(setOf(inKey), inKey);
+    }
+}
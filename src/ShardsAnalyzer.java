@@ -0,0 +1,250 @@
+import java.util.Arrays;
+
+/**
+ * Estimates the miss-ratio curve of a fully associative LRU cache
+ * from a spatially hashed sample of a trace (SHARDS), for traces too
+ * large for StackDistanceAnalyzer to track every key.
+ *
+ * Each key is hashed to a value in [0, 2^24), and only keys hashing
+ * below a threshold T are sampled, so a fraction R = T / 2^24 of keys
+ * is tracked and every access to a sampled key is analyzed exactly.
+ * A stack distance d among sampled keys estimates a distance of d / R
+ * in the full trace, and each sampled access stands for 1 / R accesses.
+ *
+ * With a key limit, the analyzer keeps at most that many sampled keys:
+ * when a new key would exceed it, the threshold drops to the largest
+ * sampled hash and every key at or above it is forgotten, lowering R.
+ * The curve itself is kept at no more than MAX_POINTS capacities,
+ * doubling the step between them when needed, so memory is bounded
+ * however long the trace and however many distinct keys it holds.
+ *
+ * Standard errors treat the sampled accesses as independent draws,
+ * corrected for the fraction of keys sampled, so they are a guide
+ * rather than a guarantee.
+ * @see MissRatioCurve
+ */
+public class ShardsAnalyzer {
+
+    //the number of distinct hash values
+    public static final int MODULUS = 1 << 24;
+    //the most capacities the curve records
+    public static final int MAX_POINTS = 4096;
+
+    //keys hashing below threshold are sampled
+    private int threshold;
+    private int maxKeys;
+    private StackDistanceAnalyzer sampled;
+
+    //max-heap of sampled keys, each packed with its hash in the upper half
+    private long[] heap;
+    private int heapSize;
+
+    //hits[b] is the weight of sampled accesses whose estimated distance lies in [b * step, (b + 1) * step)
+    private double[] hits;
+    private int step;
+
+    private long accesses;
+    private long sampledAccesses;
+    private double sampledWeight;
+
+    /**
+     * Create an analyzer sampling a fixed fraction of keys, with no limit on their number.
+     * @param rate the fraction of keys to sample, in (0, 1]
+     */
+    public ShardsAnalyzer(double rate) {
+        this(rate, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create an analyzer sampling at most a fixed number of keys.
+     * @param rate the initial fraction of keys to sample, in (0, 1]
+     * @param maxKeys the most sampled keys to track at once
+     */
+    public ShardsAnalyzer(double rate, int maxKeys) {
+        if (!(rate > 0.0 && rate <= 1.0)) {
+            throw new IllegalArgumentException("Sampling rate must be in (0, 1].");
+        }
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Key limit must be positive.");
+        }
+        this.maxKeys = maxKeys;
+        threshold = Math.max(1, (int) Math.round(rate * MODULUS));
+        sampled = new StackDistanceAnalyzer(Math.min(maxKeys, 1 << 16));
+        heap = new long[16];
+        heapSize = 0;
+        hits = new double[16];
+        step = 1;
+    }
+
+    /**
+     * Record the next access of the trace.
+     * @param key the key accessed
+     */
+    public void access(int key) {
+        accesses++;
+        int hash = hash(key);
+        if (hash >= threshold) {
+            return;
+        }
+
+        double rate = getRate();
+        double weight = 1.0 / rate;
+        sampledAccesses++;
+        sampledWeight += weight;
+        int distance = sampled.access(key);
+        if (distance < 0) {
+            push(((long) hash << 32) | (key & 0xFFFFFFFFL));
+            if (heapSize > maxKeys) {
+                lowerThreshold();
+            }
+            return;
+        }
+
+        long bucket = (long) (distance / rate) / step;
+        while (bucket >= MAX_POINTS) {
+            coarsen();
+            bucket /= 2;
+        }
+        if (bucket >= hits.length) {
+            hits = Arrays.copyOf(hits, (int) Math.min(MAX_POINTS, Math.max(bucket + 1, 2L * hits.length)));
+        }
+        hits[(int) bucket] += weight;
+    }
+
+    /**
+     * Record every access of a trace, in order.
+     * @param keys the keys accessed, as passed to CacheSim.simulate()
+     */
+    public void analyze(int[] keys) {
+        for (int key : keys) {
+            access(key);
+        }
+    }
+
+    /**
+     * Get the estimated miss-ratio curve of the accesses recorded so far.
+     * @return the curve, with a standard error at each recorded capacity
+     */
+    public MissRatioCurve getCurve() {
+        int points = hits.length;
+        while (points > 0 && hits[points - 1] == 0.0) {
+            points--;
+        }
+        double[] misses = new double[points + 1];
+        double[] errors = new double[points + 1];
+        double correction = Math.sqrt(1.0 - getRate());
+        double missWeight = sampledWeight;
+        for (int i = 0; i <= points; i++) {
+            if (i > 0) {
+                missWeight -= hits[i - 1];
+            }
+            double ratio = sampledWeight == 0.0 ? 1.0 : Math.max(0.0, missWeight / sampledWeight);
+            misses[i] = ratio * accesses;
+            errors[i] = sampledAccesses == 0 ? 0.0 : correction * Math.sqrt(ratio * (1.0 - ratio) / sampledAccesses);
+        }
+        return new MissRatioCurve(misses, errors, step, accesses);
+    }
+
+    /**
+     * Get the fraction of keys currently sampled.
+     * @return the sampling rate, in (0, 1]
+     */
+    public double getRate() {
+        return (double) threshold / MODULUS;
+    }
+
+    /**
+     * Get the number of sampled keys currently tracked.
+     * @return the number of keys, at most the key limit
+     */
+    public int getSampledKeys() {
+        return heapSize;
+    }
+
+    /**
+     * Get the number of accesses recorded, sampled or not.
+     * @return the number of accesses
+     */
+    public long getAccesses() {
+        return accesses;
+    }
+
+    /**
+     * Get the number of accesses which were sampled and analyzed.
+     * @return the number of sampled accesses
+     */
+    public long getSampledAccesses() {
+        return sampledAccesses;
+    }
+
+    /**
+     * Hash a key uniformly into [0, MODULUS).
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h >>> 8;
+    }
+
+    /**
+     * Drop the threshold to the largest sampled hash,
+     * forgetting every key with that hash.
+     */
+    private void lowerThreshold() {
+        int largest = (int) (heap[0] >>> 32);
+        while (heapSize > 0 && (int) (heap[0] >>> 32) == largest) {
+            sampled.forget((int) pop());
+        }
+        threshold = largest;
+    }
+
+    /**
+     * Double the step between recorded capacities, merging pairs of buckets.
+     */
+    private void coarsen() {
+        for (int b = 0; b < hits.length; b++) {
+            double merged = hits[b];
+            hits[b] = 0.0;
+            hits[b / 2] += merged;
+        }
+        step *= 2;
+    }
+
+    private void push(long entry) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heap.length);
+        }
+        int at = heapSize++;
+        while (at > 0 && heap[(at - 1) / 2] < entry) {
+            heap[at] = heap[(at - 1) / 2];
+            at = (at - 1) / 2;
+        }
+        heap[at] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int at = 0;
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= last) {
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = last;
+        return top;
+    }
+}
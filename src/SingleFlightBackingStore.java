@@ -0,0 +1,141 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A backing store which coalesces concurrent fetches of the same key,
+ * so that a burst of misses on one key reads the wrapped store once.
+ *
+ * The first thread to fetch a key becomes its leader: it records a
+ * future for the key, reads the wrapped store, and completes the future.
+ * Any thread fetching the same key before the leader finishes waits on
+ * that future instead of reading the store itself. Once the leader
+ * finishes the future is dropped, so later fetches read the store
+ * again; nothing is cached here.
+ *
+ * The time a fetch took is charged to the leader alone, since only the
+ * leader's read happened. Followers get their own response with the
+ * same data and no time, so the times summed over every response still
+ * equal the time spent reading the store. If the key is not found, every
+ * waiting thread gets a NotFoundException.
+ *
+ * A push to a key drops any fetch of it in flight, so a fetch begun
+ * after a push has returned never waits on data read before it.
+ * The wrapped store must be safe for concurrent use, for example a
+ * LockedBackingStore.
+ * @see LockedBackingStore
+ */
+public class SingleFlightBackingStore extends BackingStore {
+
+    private BackingStore store;
+    //the fetch in flight for each key, if any
+    private ConcurrentHashMap<Integer, CompletableFuture<BackingStoreResponse>> inFlight;
+    private AtomicLong loads;
+    private AtomicLong coalesced;
+
+    /**
+     * Wrap a backing store to coalesce concurrent fetches.
+     * @param store the backing store to wrap, safe for concurrent use
+     */
+    public SingleFlightBackingStore(BackingStore store) {
+        super(store.getFileName());
+        this.store = store;
+        inFlight = new ConcurrentHashMap<>();
+        loads = new AtomicLong();
+        coalesced = new AtomicLong();
+    }
+
+    /**
+     * Get the backing store this one wraps.
+     * @return the wrapped store
+     */
+    public BackingStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the number of fetches which read the wrapped store.
+     * @return the number of leaders
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Get the number of fetches which waited on another's read instead.
+     * @return the number of followers
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+        BackingStoreResponse response = store.pushData(key, newData);
+        inFlight.remove(key);
+        return response;
+    }
+
+    @Override
+    public double acceptVictim(int key, int data) {
+        return store.acceptVictim(key, data);
+    }
+
+    @Override
+    public CacheLevel getCacheLevel() {
+        return store.getCacheLevel();
+    }
+
+    @Override
+    public BackingStoreResponse fetchData(int key) throws NotFoundException {
+        CompletableFuture<BackingStoreResponse> mine = new CompletableFuture<>();
+        CompletableFuture<BackingStoreResponse> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            return follow(leader);
+        }
+
+        loads.incrementAndGet();
+        try {
+            BackingStoreResponse response = store.fetchData(key);
+            mine.complete(new BackingStoreResponse(response.getData(), 0.0));
+            return response;
+        } catch (NotFoundException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Wait for a leader's fetch and share its data, but not its time.
+     */
+    private BackingStoreResponse follow(CompletableFuture<BackingStoreResponse> leader) throws NotFoundException {
+        BackingStoreResponse response;
+        try {
+            response = leader.join();
+        } catch (CompletionException ce) {
+            Throwable cause = ce.getCause();
+            if (cause instanceof NotFoundException) {
+                throw new NotFoundException();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+        return new BackingStoreResponse(response.getData(), 0.0);
+    }
+
+    /**
+     * Fetch several keys in one pass over the wrapped store.
+     * Batches are not coalesced with each other or with fetchData().
+     * @see BackingStore#fetchBatch
+     */
+    @Override
+    public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+        return store.fetchBatch(keys, count);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Receives every change to the contents of a Cache's indices (slots),
+ * whatever caused it: an installation, an eviction, a write or a reset.
+ * Ranks are not contents, so hits which only change ranks are not reported.
+ *
+ * A slot is always emptied before it is filled with another key, so
+ * each change either fills a slot with a key's data, by installing or
+ * writing it, or empties the slot. Any int may be a key, so whether
+ * the slot is occupied is reported apart from its key.
+ * @see Cache#setSlotListener
+ */
+public interface SlotListener {
+
+    /**
+     * Called after a slot's contents change.
+     * @param slot the index of the slot
+     * @param key the key the slot holds now, or held until it was emptied
+     * @param data the data the slot holds now, or 0 if it is empty
+     * @param occupied whether the slot holds key now
+     */
+    void slotChanged(int slot, int key, int data, boolean occupied);
+}
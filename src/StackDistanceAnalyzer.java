@@ -0,0 +1,185 @@
+import java.util.Arrays;
+
+/**
+ * Computes the miss-ratio curve of a fully associative LRU cache
+ * for every capacity in a single pass over a trace of keys.
+ *
+ * The stack distance of an access is the number of distinct other keys
+ * accessed since the previous access to the same key. An LRU cache
+ * hits on the access if and only if its capacity exceeds that distance,
+ * so a histogram of distances gives the misses for every capacity.
+ *
+ * Distances are counted with a Fenwick tree over access times in which
+ * only the latest access of each key is marked: the distance is the
+ * number of marks after the key's previous access. Each access takes
+ * logarithmic time. When the tree fills up, the marks are renumbered
+ * in order, so memory stays proportional to the number of distinct keys
+ * no matter how long the trace.
+ *
+ * The backing store is never read, so keys missing from it count
+ * like any other key.
+ */
+public class StackDistanceAnalyzer {
+
+    //marks the latest access time of each key
+    private FenwickTree marks;
+    //keyAt[t] is the key accessed at time t
+    private int[] keyAt;
+    //the time of the next access
+    private int now;
+    //maps each key seen to the time of its latest access
+    private IntIntHashMap lastAccess;
+
+    //distances[d] is the number of accesses with stack distance d
+    private long[] distances;
+    private long accesses;
+    private long coldMisses;
+
+    /**
+     * Create an analyzer with room for 1024 distinct keys before growing.
+     */
+    public StackDistanceAnalyzer() {
+        this(1024);
+    }
+
+    /**
+     * Create an analyzer.
+     * @param expectedKeys the number of distinct keys expected
+     */
+    public StackDistanceAnalyzer(int expectedKeys) {
+        int size = Math.max(16, 2 * expectedKeys);
+        marks = new FenwickTree(size);
+        keyAt = new int[size];
+        lastAccess = new IntIntHashMap(expectedKeys);
+        distances = new long[16];
+        reset();
+    }
+
+    /**
+     * Record the next access of the trace.
+     * @param key the key accessed
+     * @return the stack distance of the access, or -1 if the key was never accessed before
+     */
+    public int access(int key) {
+        if (now == keyAt.length) {
+            compact();
+        }
+
+        int distance = -1;
+        int last = lastAccess.get(key);
+        if (last >= 0) {
+            distance = (int) marks.rangeSum(last + 1, now);
+            marks.add(last, -1);
+            if (distance >= distances.length) {
+                distances = Arrays.copyOf(distances, Math.max(distance + 1, 2 * distances.length));
+            }
+            distances[distance]++;
+        } else {
+            coldMisses++;
+        }
+
+        marks.add(now, 1);
+        keyAt[now] = key;
+        lastAccess.put(key, now);
+        now++;
+        accesses++;
+        return distance;
+    }
+
+    /**
+     * Forget a key, as if it had never been accessed. Its next access
+     * will be a cold miss, and it no longer counts towards the distance
+     * of other keys. Distances already recorded are kept.
+     * @param key the key to forget
+     * @return true if the key had been accessed
+     */
+    public boolean forget(int key) {
+        int last = lastAccess.remove(key);
+        if (last < 0) {
+            return false;
+        }
+        marks.add(last, -1);
+        return true;
+    }
+
+    /**
+     * Record every access of a trace, in order.
+     * @param keys the keys accessed
+     */
+    public void analyze(int[] keys) {
+        for (int key : keys) {
+            access(key);
+        }
+    }
+
+    /**
+     * Get the miss-ratio curve of the accesses recorded so far,
+     * for capacities from 1 to the number of distinct keys.
+     * @return the curve
+     */
+    public MissRatioCurve getCurve() {
+        int maxCapacity = lastAccess.size();
+        double[] misses = new double[maxCapacity + 1];
+        misses[0] = accesses;
+        for (int c = 1; c <= maxCapacity; c++) {
+            //accesses at distance c-1 hit from capacity c upward
+            misses[c] = misses[c - 1] - (c - 1 < distances.length ? distances[c - 1] : 0);
+        }
+        return new MissRatioCurve(misses, accesses);
+    }
+
+    /**
+     * Get the number of accesses recorded.
+     * @return the number of accesses
+     */
+    public long getAccesses() {
+        return accesses;
+    }
+
+    /**
+     * Get the number of first accesses to a key, which miss at any capacity.
+     * @return the number of cold misses
+     */
+    public long getColdMisses() {
+        return coldMisses;
+    }
+
+    /**
+     * Forget every access recorded.
+     */
+    public void reset() {
+        marks.clear();
+        lastAccess.clear();
+        Arrays.fill(distances, 0L);
+        now = 0;
+        accesses = 0;
+        coldMisses = 0;
+    }
+
+    /**
+     * Renumber the latest accesses 0, 1, 2, ... keeping their order,
+     * growing the tree if more than half of it would still be in use.
+     */
+    private void compact() {
+        int live = lastAccess.size();
+        int size = keyAt.length;
+        if (2 * live > size) {
+            size *= 2;
+        }
+        int[] newKeyAt = new int[size];
+        FenwickTree newMarks = new FenwickTree(size);
+        int next = 0;
+        for (int t = 0; t < now; t++) {
+            int key = keyAt[t];
+            if (lastAccess.get(key) == t) {
+                newKeyAt[next] = key;
+                newMarks.add(next, 1);
+                lastAccess.put(key, next);
+                next++;
+            }
+        }
+        keyAt = newKeyAt;
+        marks = newMarks;
+        now = next;
+    }
+}
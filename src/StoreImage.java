@@ -0,0 +1,140 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An in-memory, read-only copy of a backing store file, read once
+ * and shared by any number of StoreViews.
+ *
+ * For each key the image keeps what BackingStore would find when
+ * scanning the file: the data on the first line for the key, and
+ * the number of that line, which is the time BackingStore reports
+ * for fetching or pushing the key. Lines are matched exactly as
+ * BackingStore matches them.
+ *
+ * The image never changes once read, so it may be shared freely
+ * between threads.
+ * @see StoreView
+ */
+public class StoreImage {
+
+    private String fileName;
+    //maps each key to the record for its first line
+    private IntIntHashMap index;
+    //per record: the data on the line, its 1-based line number, and whether the data parsed
+    private int[] data;
+    private int[] lineNumbers;
+    private boolean[] readable;
+    private int records;
+
+    /**
+     * Read the backing store file at fileName into memory.
+     * @param fileName the file path to the backing store file
+     * @throws IOException if the file cannot be read
+     */
+    public StoreImage(String fileName) throws IOException {
+        this.fileName = fileName;
+        index = new IntIntHashMap(1024);
+        data = new int[1024];
+        lineNumbers = new int[1024];
+        readable = new boolean[1024];
+        records = 0;
+
+        try (BufferedReader input = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = input.readLine()) != null) {
+                lineNumber++;
+                String[] vals = line.split(" ");
+                if (vals.length == 2) {
+                    addLine(vals[0], vals[1], lineNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the path of the file this image was read from.
+     * @return the file path
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Get the number of distinct keys in the image.
+     * @return the number of keys
+     */
+    public int size() {
+        return records;
+    }
+
+    /**
+     * Create a new view of this image for one cache to use as its
+     * backing store. Writes to the view are seen only by that view.
+     * @return a new view with no writes of its own
+     */
+    public StoreView newView() {
+        return new StoreView(this);
+    }
+
+    /**
+     * Find the record for a key.
+     * @param key the key
+     * @return its record, or -1 if no line holds the key
+     */
+    int findRecord(int key) {
+        return index.get(key);
+    }
+
+    /**
+     * Get the data on a record's line.
+     * @throws NotFoundException if BackingStore could not parse the data
+     */
+    int dataOf(int record) throws NotFoundException {
+        if (!readable[record]) {
+            throw new NotFoundException();
+        }
+        return data[record];
+    }
+
+    /**
+     * Get the 1-based line number of a record's line.
+     */
+    int lineOf(int record) {
+        return lineNumbers[record];
+    }
+
+    /**
+     * Record a key-data line unless an earlier line already holds the key.
+     * The key must be written exactly as Integer.toString would write it
+     * for BackingStore to match it.
+     */
+    private void addLine(String keyField, String dataField, int lineNumber) {
+        int key;
+        try {
+            key = Integer.parseInt(keyField);
+        } catch (NumberFormatException nfe) {
+            return;
+        }
+        if (!Integer.toString(key).equals(keyField) || index.containsKey(key)) {
+            return;
+        }
+
+        if (records == data.length) {
+            data = Arrays.copyOf(data, records * 2);
+            lineNumbers = Arrays.copyOf(lineNumbers, records * 2);
+            readable = Arrays.copyOf(readable, records * 2);
+        }
+        try {
+            data[records] = Integer.parseInt(dataField);
+            readable[records] = true;
+        } catch (NumberFormatException nfe) {
+            readable[records] = false;
+        }
+        lineNumbers[records] = lineNumber;
+        index.put(key, records);
+        records++;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * A backing store served from a shared StoreImage instead of its file.
+ *
+ * Fetches and pushes find keys and report times exactly as
+ * BackingStore would for the image's file. Pushed data is kept in
+ * the view's own copy-on-write overlay and never reaches the file or
+ * the image, so many views of one image can be written independently,
+ * each seeing only its own writes.
+ *
+ * A view is not safe for use by several threads at once; give each
+ * cache its own view instead.
+ * @see StoreImage#newView
+ */
+public class StoreView extends BackingStore {
+
+    private StoreImage image;
+    //the data pushed to this view, by key
+    private IntIntHashMap written;
+
+    /**
+     * Create a view of image with no writes of its own.
+     * @param image the image to read through
+     */
+    public StoreView(StoreImage image) {
+        super(image.getFileName());
+        this.image = image;
+        written = new IntIntHashMap(16);
+    }
+
+    /**
+     * Get the image this view reads through.
+     * @return the image
+     */
+    public StoreImage getImage() {
+        return image;
+    }
+
+    /**
+     * Discard every write made to this view, so that
+     * it sees the image's data again.
+     */
+    public void discardWrites() {
+        written.clear();
+    }
+
+    /**
+     * Write data to this view only. The time taken is
+     * counted as by BackingStore.pushData().
+     * @param key the key of the data item to update
+     * @param newData the new data to write
+     * @return the written data and the time taken to locate it
+     * @throws NotFoundException if the specified key is not found
+     */
+    @Override
+    public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+        int record = image.findRecord(key);
+        if (record < 0) {
+            throw new NotFoundException();
+        }
+        written.put(key, newData);
+        return new BackingStoreResponse(newData, image.lineOf(record));
+    }
+
+    /**
+     * Fetch data as last written to this view, or from the image
+     * if it has not been. The time taken is counted as by
+     * BackingStore.fetchData().
+     * @param key the key of the requested data item
+     * @return the data with requested key if found
+     * @throws NotFoundException if the requested key is not found
+     */
+    @Override
+    public BackingStoreResponse fetchData(int key) throws NotFoundException {
+        int record = image.findRecord(key);
+        if (record < 0) {
+            throw new NotFoundException();
+        }
+        int data = written.containsKey(key) ? written.get(key) : image.dataOf(record);
+        return new BackingStoreResponse(data, image.lineOf(record));
+    }
+
+    /**
+     * Fetch several keys with one lookup each, charging
+     * times as BackingStore.fetchBatch() does.
+     * @see BackingStore#fetchBatch
+     */
+    @Override
+    public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+        return fetchEach(keys, count);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Stride prefetching: detects requests stepping through keys by a
+ * constant stride, such as 3, 7, 11, 15, and predicts the next keys
+ * along it.
+ *
+ * The stride between each request and the one before it is compared
+ * with the previous stride. Once the same non-zero stride has been
+ * seen twice running, the next degree keys along it are predicted,
+ * until the stride changes.
+ */
+public class StridePrefetcher implements Prefetcher {
+
+    private int degree;
+    private boolean seen;
+    private int lastKey;
+    private long lastStride;
+
+    /**
+     * Create a stride prefetcher.
+     * @param degree how many keys along a stride to predict, at least 1
+     */
+    public StridePrefetcher(int degree) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("Must prefetch at least one key.");
+        }
+        this.degree = degree;
+        reset();
+    }
+
+    @Override
+    public int getDegree() {
+        return degree;
+    }
+
+    @Override
+    public int predict(int key, boolean miss, int[] out) {
+        long stride = seen ? (long) key - lastKey : 0;
+        boolean confirmed = stride != 0 && stride == lastStride;
+        seen = true;
+        lastKey = key;
+        lastStride = stride;
+        if (!confirmed) {
+            return 0;
+        }
+
+        int count = 0;
+        long next = key;
+        for (int i = 0; i < degree; i++) {
+            next += stride;
+            if (next < 0 || next > Integer.MAX_VALUE) {
+                break;
+            }
+            out[count++] = (int) next;
+        }
+        return count;
+    }
+
+    @Override
+    public void reset() {
+        seen = false;
+        lastKey = 0;
+        lastStride = 0;
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * One cache configuration of a parameter sweep:
+ * a capacity, an associativity and a replacement policy.
+ * @see SweepRunner
+ */
+public class SweepConfig {
+
+    /** Ways meaning the whole cache is a single set. */
+    public static final int FULLY_ASSOCIATIVE = 0;
+
+    private int capacity;
+    private int ways;
+    private ReplacementPolicyType policy;
+
+    /**
+     * Create a sweep configuration.
+     * @param capacity a positive integer capacity of the cache
+     * @param ways the number of items each set holds, which must divide
+     *             capacity, or FULLY_ASSOCIATIVE for a single set
+     * @param policy the replacement policy within each set
+     */
+    public SweepConfig(int capacity, int ways, ReplacementPolicyType policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        if (ways == FULLY_ASSOCIATIVE) {
+            ways = capacity;
+        }
+        if (ways < 1 || capacity % ways != 0) {
+            throw new IllegalArgumentException("Ways must be positive and evenly divide the capacity.");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("A policy is required.");
+        }
+        this.capacity = capacity;
+        this.ways = ways;
+        this.policy = policy;
+    }
+
+    /**
+     * Get the capacity of the cache.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of items each set holds.
+     * @return the associativity, equal to the capacity if fully associative
+     */
+    public int getWays() {
+        return ways;
+    }
+
+    /**
+     * Get the replacement policy.
+     * @return the policy
+     */
+    public ReplacementPolicyType getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Build an empty cache of this configuration. A single set is
+     * built as a plain Cache, which finds room in constant time
+     * however large it is.
+     * @param backingStore the backing store for the cache
+     * @return the new cache
+     */
+    public Cache newCache(BackingStore backingStore) {
+        Cache cache = ways == capacity
+                ? new Cache(capacity, backingStore)
+                : new SetAssociativeCache(capacity, ways, backingStore);
+        cache.setReplacementPolicy(policy);
+        return cache;
+    }
+
+    @Override
+    public String toString() {
+        return capacity + " " + ways + " " + policy;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The outcome of simulating a trace with one configuration of a sweep.
+ * @see SweepRunner
+ */
+public class SweepResult {
+
+    private SweepConfig config;
+    private long misses;
+    private long hits;
+    private long failures;
+    private double totalTime;
+    private double totalWriteTime;
+
+    /**
+     * Collect the metrics of a finished simulation.
+     * @param config the configuration simulated
+     * @param sim the simulation of that configuration
+     */
+    public SweepResult(SweepConfig config, CacheSim sim) {
+        this.config = config;
+        this.misses = sim.getCacheMisses();
+        this.hits = sim.getCacheHits();
+        this.failures = sim.getFailureCount();
+        this.totalTime = sim.getTotalSimulationTime();
+        this.totalWriteTime = sim.getTotalWriteTime();
+    }
+
+    /**
+     * Get the configuration simulated.
+     * @return the configuration
+     */
+    public SweepConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Get the number of cache misses.
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of cache hits.
+     * @return the hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of requests whose key was not found.
+     * @return the failures
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Get the fraction of successful requests which missed.
+     * @return the miss ratio, or 0 if no request succeeded
+     */
+    public double getMissRatio() {
+        long requests = misses + hits;
+        return requests == 0 ? 0.0 : (double) misses / requests;
+    }
+
+    /**
+     * Get the total simulated time of the simulation.
+     * @see CacheSim#getTotalSimulationTime
+     * @return the total time
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Get the simulated time spent writing back to the backing store.
+     * @see CacheSim#getTotalWriteTime
+     * @return the total write time
+     */
+    public double getTotalWriteTime() {
+        return totalWriteTime;
+    }
+
+    @Override
+    public String toString() {
+        return config + " " + misses + " " + hits + " " + getMissRatio() + " " + totalTime + " " + totalWriteTime;
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Simulates one trace against many cache configurations in parallel.
+ *
+ * The trace is held once, in primitive arrays which every simulation
+ * reads but none writes, and the backing store file is read once into
+ * a StoreImage. Each configuration is simulated on its own thread with
+ * its own cache and its own StoreView of the image, so writes in one
+ * simulation are never seen by another and the file itself is never
+ * touched. The results are exactly those of simulating each
+ * configuration alone, in sequence, against a fresh copy of the file.
+ *
+ * History is not recorded, since only the metrics are reported.
+ * @see SweepConfig
+ * @see SweepResult
+ */
+public class SweepRunner {
+
+    //the number of requests read from a trace at a time
+    private static final int CHUNK_SIZE = 4096;
+
+    private StoreImage store;
+    //the trace, shared read-only by every simulation
+    private int[] keys;
+    private int[] data;
+    private boolean[] writes;
+    private int count;
+
+    /**
+     * Create a sweep of a trace of reads.
+     * @param store the image of the backing store
+     * @param keys the sequence of keys to request
+     */
+    public SweepRunner(StoreImage store, int[] keys) {
+        this(store, keys, new int[keys.length], new boolean[keys.length], keys.length);
+    }
+
+    /**
+     * Create a sweep of a trace of reads and writes, as read by a
+     * TraceReader. The first count requests are copied, so the arrays
+     * may be reused afterwards.
+     * @param store the image of the backing store
+     * @param keys the keys of the requests
+     * @param data the data of the writes
+     * @param writes whether each request is a write
+     * @param count the number of requests
+     */
+    public SweepRunner(StoreImage store, int[] keys, int[] data, boolean[] writes, int count) {
+        if (count < 0 || count > keys.length || count > data.length || count > writes.length) {
+            throw new IllegalArgumentException("Count must be within every array.");
+        }
+        this.store = store;
+        this.keys = Arrays.copyOf(keys, count);
+        this.data = Arrays.copyOf(data, count);
+        this.writes = Arrays.copyOf(writes, count);
+        this.count = count;
+    }
+
+    /**
+     * Read every remaining request of a trace, and the backing
+     * store file it names, into a new sweep.
+     * @param trace the trace to sweep
+     * @return a sweep of the whole trace
+     * @throws IOException if the trace or backing store cannot be read
+     * @throws NumberFormatException if the trace is malformed
+     */
+    public static SweepRunner load(TraceSource trace) throws IOException {
+        int[] chunkKeys = new int[CHUNK_SIZE];
+        int[] chunkData = new int[CHUNK_SIZE];
+        boolean[] chunkWrites = new boolean[CHUNK_SIZE];
+        int[] keys = new int[CHUNK_SIZE];
+        int[] data = new int[CHUNK_SIZE];
+        boolean[] writes = new boolean[CHUNK_SIZE];
+        int count = 0;
+        int read;
+        while ((read = trace.read(chunkKeys, chunkData, chunkWrites)) > 0) {
+            if (count + read > keys.length) {
+                int length = Math.max(keys.length * 2, count + read);
+                keys = Arrays.copyOf(keys, length);
+                data = Arrays.copyOf(data, length);
+                writes = Arrays.copyOf(writes, length);
+            }
+            System.arraycopy(chunkKeys, 0, keys, count, read);
+            System.arraycopy(chunkData, 0, data, count, read);
+            System.arraycopy(chunkWrites, 0, writes, count, read);
+            count += read;
+        }
+        return new SweepRunner(new StoreImage(trace.getStoreFile()), keys, data, writes, count);
+    }
+
+    /**
+     * Build every configuration combining one of the capacities, one
+     * of the ways and one of the policies, in that order of nesting,
+     * skipping combinations whose ways do not divide the capacity.
+     * @param capacities the capacities to try
+     * @param ways the associativities to try, possibly including
+     *             SweepConfig.FULLY_ASSOCIATIVE
+     * @param policies the replacement policies to try
+     * @return the configurations
+     */
+    public static List<SweepConfig> grid(int[] capacities, int[] ways, ReplacementPolicyType... policies) {
+        List<SweepConfig> configs = new ArrayList<>();
+        for (int capacity : capacities) {
+            for (int w : ways) {
+                if (w != SweepConfig.FULLY_ASSOCIATIVE && (w < 1 || capacity % w != 0)) {
+                    continue;
+                }
+                for (ReplacementPolicyType policy : policies) {
+                    configs.add(new SweepConfig(capacity, w, policy));
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Get the number of requests in the trace.
+     * @return the trace length
+     */
+    public int getTraceLength() {
+        return count;
+    }
+
+    /**
+     * Simulate every configuration in parallel on the common fork-join pool.
+     * @param configs the configurations to simulate
+     * @return a result for each configuration, in the same order
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public List<SweepResult> run(List<SweepConfig> configs) throws InterruptedException {
+        return run(configs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Simulate every configuration in parallel, one task each, on the
+     * given executor, such as a fork-join pool or a virtual thread
+     * executor. The executor is not shut down.
+     * @param configs the configurations to simulate
+     * @param executor the executor to run the simulations on
+     * @return a result for each configuration, in the same order
+     * @throws InterruptedException if interrupted while waiting for results
+     */
+    public List<SweepResult> run(List<SweepConfig> configs, ExecutorService executor) throws InterruptedException {
+        List<Callable<SweepResult>> tasks = new ArrayList<>(configs.size());
+        for (SweepConfig config : configs) {
+            tasks.add(() -> runOne(config));
+        }
+
+        List<SweepResult> results = new ArrayList<>(configs.size());
+        for (Future<SweepResult> future : executor.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Simulate one configuration on the calling thread.
+     * @param config the configuration to simulate
+     * @return its result
+     */
+    public SweepResult runOne(SweepConfig config) {
+        CacheSim sim = new CacheSim(config.newCache(store.newView()));
+        sim.setHistoryEnabled(false);
+        sim.simulate(keys, data, writes, count);
+        return new SweepResult(config, sim);
+    }
+
+    /**
+     * Write results as a table with a header line, then one line per
+     * result giving its capacity, ways, policy, misses, hits, miss
+     * ratio, total time and total write time, separated by blank spaces.
+     * @param results the results to write
+     * @param out the stream to write to
+     */
+    public static void writeTable(List<SweepResult> results, PrintStream out) {
+        out.println("capacity ways policy misses hits missRatio time writeTime");
+        for (SweepResult result : results) {
+            out.println(result);
+        }
+    }
+}
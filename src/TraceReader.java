@@ -0,0 +1,164 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a text trace file in the format CacheSimMain accepts,
+ * a chunk of requests at a time, into primitive arrays.
+ *
+ * The first line holds the cache capacity and the path to the
+ * backing store file, separated by a blank space. Every following
+ * line is one request: a key on its own to read that key, or a key,
+ * a blank space and new data to write that data.
+ *
+ * Requests are parsed straight from the bytes of the file through a
+ * fixed buffer, without building a String per line, so memory stays
+ * constant however long the trace.
+ * @see MappedTraceReader for the faster binary format
+ */
+public class TraceReader implements TraceSource {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private InputStream input;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    private int capacity;
+    private String storeFile;
+
+    /**
+     * Open a trace file and read its first line.
+     * @param filePath the path to the trace file
+     * @throws IOException if the file cannot be read
+     * @throws NumberFormatException if the first line is malformed
+     */
+    public TraceReader(String filePath) throws IOException {
+        this(new FileInputStream(filePath));
+    }
+
+    /**
+     * Read a trace from a stream, starting with its first line.
+     * @param input the stream holding the trace
+     * @throws IOException if the stream cannot be read
+     * @throws NumberFormatException if the first line is malformed
+     */
+    public TraceReader(InputStream input) throws IOException {
+        this.input = input;
+        buffer = new byte[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = nextByte()) >= 0 && b != '\n') {
+            if (b != '\r') {
+                sb.append((char) b);
+            }
+        }
+        String[] vals = sb.toString().split(" ");
+        if (vals.length != 2) {
+            close();
+            throw new NumberFormatException("Bad trace header: " + sb);
+        }
+        capacity = Integer.parseInt(vals[0]);
+        storeFile = vals[1];
+    }
+
+    /**
+     * Get the cache capacity given on the trace's first line.
+     * @return the capacity
+     */
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the backing store path given on the trace's first line.
+     * @return the path to the backing store file
+     */
+    @Override
+    public String getStoreFile() {
+        return storeFile;
+    }
+
+    @Override
+    public int read(int[] keys, int[] data, boolean[] writes) throws IOException {
+        int count = 0;
+        while (count < keys.length) {
+            int b = nextByte();
+            if (b < 0) {
+                break;
+            }
+            keys[count] = parseInt(b);
+            b = nextByte();
+            if (b == ' ') {
+                data[count] = parseInt(nextByte());
+                writes[count] = true;
+                b = nextByte();
+            } else {
+                data[count] = 0;
+                writes[count] = false;
+            }
+            if (b == '\r') {
+                b = nextByte();
+            }
+            if (b != '\n' && b >= 0) {
+                throw new NumberFormatException("Unexpected character '" + (char) b + "' in trace");
+            }
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Parse a decimal integer following Integer.parseInt's rules,
+     * starting from its first byte. Leaves the byte after it unread.
+     */
+    private int parseInt(int b) throws IOException {
+        boolean negative = b == '-';
+        if (negative || b == '+') {
+            b = nextByte();
+        }
+        if (b < '0' || b > '9') {
+            throw new NumberFormatException("Expected a number in trace");
+        }
+        long value = 0;
+        while (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Number out of range in trace");
+            }
+            b = nextByte();
+        }
+        if (b >= 0) {
+            position--;
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number out of range in trace");
+        }
+        return (int) value;
+    }
+
+    private int nextByte() throws IOException {
+        if (position == limit) {
+            limit = input.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+}
@@ -0,0 +1,38 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A trace of cache requests for one cache configuration,
+ * read a chunk of requests at a time into primitive arrays.
+ * @see TraceReader
+ * @see MappedTraceReader
+ * @see CacheSim#simulate(TraceSource)
+ */
+public interface TraceSource extends Closeable {
+
+    /**
+     * Get the capacity of the cache the trace is meant for.
+     * @return the capacity
+     */
+    int getCapacity();
+
+    /**
+     * Get the path to the backing store file the trace is meant for.
+     * @return the path to the backing store file
+     */
+    String getStoreFile();
+
+    /**
+     * Read the next requests of the trace, as many as fit in keys.
+     * For each request i, keys[i] is its key; for a write, writes[i]
+     * is true and data[i] is the data to write, and for a read,
+     * writes[i] is false and data[i] is 0.
+     * @param keys receives the keys of the requests
+     * @param data receives the data of the writes
+     * @param writes receives whether each request is a write
+     * @return the number of requests read, 0 only at the end of the trace
+     * @throws IOException if the trace cannot be read
+     * @throws NumberFormatException if a request is malformed
+     */
+    int read(int[] keys, int[] data, boolean[] writes) throws IOException;
+}
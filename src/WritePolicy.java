@@ -0,0 +1,18 @@
+/**
+ * How a Cache propagates written data to its backing store.
+ */
+public enum WritePolicy {
+
+    /**
+     * Every write updates the backing store immediately,
+     * so the store always holds the latest data.
+     */
+    WRITE_THROUGH,
+
+    /**
+     * Writes only update the cache and mark the data dirty.
+     * Dirty data is written to the backing store when it is
+     * evicted or when the cache is explicitly flushed.
+     */
+    WRITE_BACK
+}
@@ -0,0 +1,323 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AsyncBackingStoreTest {
+
+    /**
+     * A store whose first batch waits until released,
+     * so that later keys queue up behind it.
+     */
+    static class GatedStore extends BackingStore {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BackingStore store;
+
+        GatedStore(BackingStore store) {
+            super(store.getFileName());
+            this.store = store;
+        }
+
+        @Override
+        public BackingStoreResponse[] fetchBatch(int[] keys, int count) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return store.fetchBatch(keys, count);
+        }
+
+        @Override
+        public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+            return store.pushData(key, newData);
+        }
+    }
+
+    /**
+     * fetchBatch() black box unit tests
+     * 1. a batch of one key costs what fetchData() does
+     * 2. each key is charged the lines after the previous key's, in file order
+     * 3. missing keys get null and repeated keys cost nothing after the first
+     * 4. indexed stores charge exactly as a pass over the file does
+     */
+
+    @Test
+    void fetchBatch_single() throws NotFoundException {
+        BackingStore store = new BackingStore(TestStores.prepareStore(10));
+        BackingStoreResponse[] responses = store.fetchBatch(new int[]{6}, 1);
+        assertEquals(6, responses[0].getData());
+        assertEquals(store.fetchData(6).getTimeTaken(), responses[0].getTimeTaken());
+    }
+
+    @Test
+    void fetchBatch_chargesInFileOrder() {
+        BackingStore store = new BackingStore(TestStores.prepareStore(10));
+        BackingStoreResponse[] responses = store.fetchBatch(new int[]{7, 2, 4, 99}, 3);
+        assertEquals(7, responses[0].getData());
+        assertEquals(3.0, responses[0].getTimeTaken(), "Key 7 is read 3 lines after key 4.");
+        assertEquals(3.0, responses[1].getTimeTaken(), "Key 2 is the third line.");
+        assertEquals(2.0, responses[2].getTimeTaken(), "Key 4 is read 2 lines after key 2.");
+        assertEquals(3, responses.length, "Only count keys should be fetched.");
+    }
+
+    @Test
+    void fetchBatch_missingAndRepeated() {
+        BackingStore store = new BackingStore(TestStores.prepareStore(10));
+        BackingStoreResponse[] responses = store.fetchBatch(new int[]{3, 42, 3}, 3);
+        assertEquals(4.0, responses[0].getTimeTaken());
+        assertNull(responses[1], "A missing key should have no response.");
+        assertEquals(3, responses[2].getData());
+        assertEquals(0.0, responses[2].getTimeTaken(), "A repeated key should cost nothing more.");
+    }
+
+    @Test
+    void fetchBatch_indexedStoresMatch() throws IOException {
+        String file = TestStores.prepareStore(50);
+        int[] keys = {40, 3, 17, 3, 77, 0, 49};
+        BackingStoreResponse[] expected = new BackingStore(file).fetchBatch(keys, keys.length);
+        BackingStore[] stores = {new MappedBackingStore(file), new StoreImage(file).newView(),
+                new LockedBackingStore(new BackingStore(file))};
+        for (BackingStore store : stores) {
+            BackingStoreResponse[] actual = store.fetchBatch(keys, keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                if (expected[i] == null) {
+                    assertNull(actual[i], store.getClass() + " key " + keys[i]);
+                } else {
+                    assertEquals(expected[i].getData(), actual[i].getData(), store.getClass() + " key " + keys[i]);
+                    assertEquals(expected[i].getTimeTaken(), actual[i].getTimeTaken(), store.getClass() + " key " + keys[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * AsyncBackingStore black box unit tests
+     * 1. fetchAsync() completes with the data, or fails for a missing key
+     * 2. keys queued while a batch loads are fetched together in the next batch
+     * 3. fetchData() takes a prefetched result once, then fetches again
+     * 4. a push discards a prefetched result, so the pushed data is fetched
+     * 5. closing fails fetches still queued
+     * 6. a batch queued whole is fetched alone, apart from keys queued around it
+     */
+
+    @Test
+    void fetchAsync_completes() throws NotFoundException {
+        try (AsyncBackingStore store = new AsyncBackingStore(new BackingStore(TestStores.prepareStore(10)))) {
+            assertEquals(5, store.fetchAsync(5).join().getData());
+            CompletableFuture<BackingStoreResponse> missing = store.fetchAsync(42);
+            CompletionException ce = assertThrows(CompletionException.class, missing::join);
+            assertTrue(ce.getCause() instanceof NotFoundException);
+            assertThrows(NotFoundException.class, () -> store.fetchData(42));
+        }
+    }
+
+    @Test
+    void fetchAsync_batchesQueuedKeys() throws InterruptedException {
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        try (AsyncBackingStore store = new AsyncBackingStore(gate)) {
+            CompletableFuture<BackingStoreResponse> first = store.fetchAsync(1);
+            assertTrue(gate.started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<BackingStoreResponse> a = store.fetchAsync(8);
+            CompletableFuture<BackingStoreResponse> b = store.fetchAsync(4);
+            gate.release.countDown();
+            assertEquals(2.0, first.join().getTimeTaken());
+            assertEquals(8, a.join().getData());
+            assertEquals(4.0, a.join().getTimeTaken(), "Key 8 is read 4 lines after key 4.");
+            assertEquals(5.0, b.join().getTimeTaken());
+            assertEquals(2, store.getBatchCount(), "Keys queued during a batch should share the next.");
+            assertEquals(3, store.getBatchedKeyCount());
+        }
+    }
+
+    @Test
+    void fetchData_takesPrefetched() throws NotFoundException {
+        try (AsyncBackingStore store = new AsyncBackingStore(new BackingStore(TestStores.prepareStore(10)))) {
+            store.prefetch(3);
+            store.prefetch(3);
+            assertEquals(3, store.fetchData(3).getData());
+            assertEquals(1, store.getBatchedKeyCount(), "A key already queued should not be queued again.");
+            assertEquals(4.0, store.fetchData(3).getTimeTaken());
+            assertEquals(2, store.getBatchedKeyCount(), "A taken result should not be served twice.");
+        }
+    }
+
+    @Test
+    void pushData_discardsPrefetched() throws IOException, NotFoundException {
+        StoreView view = new StoreImage(TestStores.prepareStore(10)).newView();
+        try (AsyncBackingStore store = new AsyncBackingStore(view)) {
+            store.prefetch(2);
+            store.fetchAsync(2).join();
+            assertEquals(3.0, store.pushData(2, 20).getTimeTaken());
+            assertEquals(20, store.fetchData(2).getData(), "Prefetched data should not outlive a push.");
+            assertEquals(20, view.fetchData(2).getData());
+        }
+    }
+
+    @Test
+    void close_failsQueued() throws InterruptedException {
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        AsyncBackingStore store = new AsyncBackingStore(gate);
+        store.fetchAsync(1);
+        assertTrue(gate.started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<BackingStoreResponse> queued = store.fetchAsync(2);
+        store.close();
+        gate.release.countDown();
+        CompletionException ce = assertThrows(CompletionException.class, queued::join);
+        assertTrue(ce.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> store.fetchAsync(3));
+    }
+
+    @Test
+    void prefetchBatch_fetchedAlone() throws InterruptedException, NotFoundException {
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        try (AsyncBackingStore store = new AsyncBackingStore(gate, 2)) {
+            CompletableFuture<BackingStoreResponse> first = store.fetchAsync(1);
+            assertTrue(gate.started.await(10, TimeUnit.SECONDS));
+            store.prefetchBatch(new int[] {8, 4, 8, 1, 2}, 5);
+            CompletableFuture<BackingStoreResponse> last = store.fetchAsync(6);
+            gate.release.countDown();
+            assertEquals(7.0, last.join().getTimeTaken(), "A key queued after a batch should not join it.");
+            assertEquals(2.0, first.join().getTimeTaken());
+            assertEquals(4.0, store.fetchData(8).getTimeTaken(), "Key 8 is read 4 lines after key 4.");
+            assertEquals(5.0, store.fetchData(4).getTimeTaken());
+            assertEquals(3.0, store.fetchData(2).getTimeTaken(), "Past the limit, keys go in the next batch.");
+            assertEquals(4, store.getBatchCount());
+            assertEquals(5, store.getBatchedKeyCount(), "Repeated and queued keys should be left out.");
+        }
+    }
+
+    /**
+     * CacheSim.setLookahead() black box unit tests
+     * 1. a store which is not asynchronous is rejected
+     * 2. prefetching leaves misses, hits and history unchanged but batches the misses
+     * 3. prefetching traces with writes leaves the store as it would be without
+     * 4. repeated runs charge the same times, whatever the loader thread does
+     * 5. the next window is queued before the requests of this one are served
+     */
+
+    @Test
+    void setLookahead_needsAsyncStore() {
+        CacheSim sim = new CacheSim(4, TestStores.prepareStore(10));
+        assertThrows(IllegalArgumentException.class, () -> sim.setLookahead(4));
+        assertThrows(IllegalArgumentException.class, () -> sim.setLookahead(-1));
+        sim.setLookahead(0);
+    }
+
+    @Test
+    void setLookahead_sameResults() {
+        String file = TestStores.prepareStore(64);
+        int[] keys = new int[400];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (i * 7 + i / 50) % 70;
+        }
+        CacheSim plain = new CacheSim(8, file);
+        plain.simulate(keys);
+
+        try (AsyncBackingStore store = new AsyncBackingStore(new BackingStore(file))) {
+            CacheSim prefetching = new CacheSim(new Cache(8, store));
+            prefetching.setLookahead(16);
+            prefetching.simulate(keys);
+
+            assertEquals(plain.getCacheMisses(), prefetching.getCacheMisses());
+            assertEquals(plain.getCacheHits(), prefetching.getCacheHits());
+            assertEquals(plain.getFailureCount(), prefetching.getFailureCount());
+            assertEquals(plain.getCacheHistory(), prefetching.getCacheHistory());
+            assertTrue(prefetching.getTotalSimulationTime() <= plain.getTotalSimulationTime(),
+                    "Batched misses should never cost more than one pass each.");
+            assertTrue(store.getBatchCount() < prefetching.getCacheMisses(), "Misses should be loaded in batches.");
+        }
+    }
+
+    @Test
+    void setLookahead_writes() throws IOException, NotFoundException {
+        String file = TestStores.prepareStore(32);
+        int count = 300;
+        int[] keys = new int[count];
+        int[] data = new int[count];
+        boolean[] writes = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (i * 5) % 32;
+            writes[i] = i % 3 == 0;
+            data[i] = 1000 + i;
+        }
+        StoreImage image = new StoreImage(file);
+        StoreView plainStore = image.newView();
+        CacheSim plain = new CacheSim(new Cache(4, plainStore, WritePolicy.WRITE_BACK));
+        plain.simulate(keys, data, writes, count);
+
+        StoreView asyncStore = image.newView();
+        try (AsyncBackingStore store = new AsyncBackingStore(asyncStore)) {
+            CacheSim prefetching = new CacheSim(new Cache(4, store, WritePolicy.WRITE_BACK));
+            prefetching.setLookahead(8);
+            prefetching.simulate(keys, data, writes, count);
+            assertEquals(plain.getCacheMisses(), prefetching.getCacheMisses());
+            assertEquals(plain.getCacheHistory(), prefetching.getCacheHistory());
+        }
+        for (int key = 0; key < 32; key++) {
+            assertEquals(plainStore.fetchData(key).getData(), asyncStore.fetchData(key).getData(), "Key " + key);
+        }
+    }
+
+    @Test
+    void setLookahead_deterministic() throws IOException {
+        StoreImage image = new StoreImage(TestStores.prepareStore(256));
+        int count = 2000;
+        int[] keys = new int[count];
+        int[] data = new int[count];
+        boolean[] writes = new boolean[count];
+        Random random = new Random(11);
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextInt(random.nextBoolean() ? 32 : 256);
+            writes[i] = random.nextInt(5) == 0;
+            data[i] = i;
+        }
+
+        double expected = -1.0;
+        for (int run = 0; run < 20; run++) {
+            try (AsyncBackingStore store = new AsyncBackingStore(image.newView(), 8)) {
+                CacheSim sim = new CacheSim(new Cache(16, store, WritePolicy.WRITE_BACK));
+                sim.setHistoryEnabled(false);
+                sim.setLookahead(24);
+                sim.simulate(keys, data, writes, count);
+                if (run == 0) {
+                    expected = sim.getTotalSimulationTime();
+                }
+                assertEquals(expected, sim.getTotalSimulationTime(), "Run " + run);
+            }
+        }
+    }
+
+    @Test
+    void setLookahead_loadsNextWindow() {
+        List<String> log = new ArrayList<>();
+        try (AsyncBackingStore store = new AsyncBackingStore(new BackingStore(TestStores.prepareStore(16))) {
+            @Override
+            public void prefetchBatch(int[] keys, int count) {
+                log.add("queue " + keys[0] + "-" + keys[count - 1]);
+                super.prefetchBatch(keys, count);
+            }
+
+            @Override
+            public BackingStoreResponse fetchData(int key) throws NotFoundException {
+                log.add("serve " + key);
+                return super.fetchData(key);
+            }
+        }) {
+            CacheSim sim = new CacheSim(new Cache(4, store));
+            sim.setLookahead(2);
+            sim.simulate(new int[] {0, 1, 2, 3, 4, 5, 6, 7});
+        }
+        assertEquals(List.of("queue 0-2", "queue 3-5", "serve 0", "serve 1", "serve 2",
+                "queue 6-7", "serve 3", "serve 4", "serve 5", "serve 6", "serve 7"), log);
+    }
+}
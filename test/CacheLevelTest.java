@@ -0,0 +1,243 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class CacheLevelTest {
+
+    /**
+     * Build a two-level hierarchy and return its top cache.
+     */
+    Cache twoLevels(String file, int upper, int lower, InclusionPolicy inclusion, WritePolicy writePolicy) {
+        Cache l2 = new Cache(lower, new BackingStore(file), writePolicy);
+        return new Cache(upper, new CacheLevel(l2, inclusion), writePolicy);
+    }
+
+    Cache lowerOf(Cache cache) {
+        return ((CacheLevel) cache.backingStore).getLower();
+    }
+
+    /**
+     * requestData() black box unit tests
+     * 1. a miss at every level is served by the backing store,
+     *    and the latency is reported at each level
+     * 2. a miss in the upper cache only is served by the lower one
+     * 3. three levels each serve requests, as counted by CacheSim
+     * 4. inclusive: keys evicted below are invalidated above
+     * 5. inclusive: dirty data invalidated above is written back
+     * 6. exclusive: victims move down and lower hits move up
+     * 7. every inclusion policy returns the latest data for random
+     *    reads and writes, and flushing leaves it in the store
+     * 8. a level serves only one cache
+     * 9. writes to a negative key reach the lower cache and the store
+     * 10. inclusive: evicting key -1 below invalidates it above
+     * 11. a level wrapped in another backing store still serves as one
+     * 12. a level cannot be loaded asynchronously
+     */
+
+    @Test
+    void requestData_servedByStore() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache l1 = twoLevels(file, 2, 4, InclusionPolicy.NINE, WritePolicy.WRITE_THROUGH);
+        CacheResponse r = l1.requestData(5);
+        assertTrue(r.getMiss());
+        assertEquals(5, r.getData().getData());
+        assertEquals(3, r.getLevel());
+        assertEquals(6.0, r.getTime());
+        assertEquals(6.0, r.getLevelTime(1));
+        assertEquals(6.0, r.getLevelTime(2));
+        assertEquals(6.0, r.getLevelTime(3));
+        assertThrows(IllegalArgumentException.class, () -> r.getLevelTime(4));
+        assertTrue(l1.findData(5) >= 0);
+        assertTrue(lowerOf(l1).findData(5) >= 0);
+
+        CacheResponse hit = l1.requestData(5);
+        assertFalse(hit.getMiss());
+        assertEquals(1, hit.getLevel());
+    }
+
+    @Test
+    void requestData_servedByLower() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache l1 = twoLevels(file, 2, 4, InclusionPolicy.NINE, WritePolicy.WRITE_THROUGH);
+        l1.requestData(5);
+        l1.requestData(1);
+        l1.requestData(2);
+        assertTrue(l1.findData(5) < 0);
+
+        CacheResponse r = l1.requestData(5);
+        assertTrue(r.getMiss());
+        assertEquals(5, r.getData().getData());
+        assertEquals(2, r.getLevel());
+        assertEquals(0.0, r.getTime());
+    }
+
+    @Test
+    void requestData_threeLevels() {
+        String file = TestStores.prepareStore(20);
+        Cache l3 = new Cache(8, file);
+        Cache l2 = new Cache(4, new CacheLevel(l3));
+        Cache l1 = new Cache(2, new CacheLevel(l2));
+        CacheSim sim = new CacheSim(l1);
+        //store, L1, then L2 after two more keys, then L3 after four more
+        sim.simulate(new int[] {0, 0, 1, 2, 0, 3, 4, 5, 6, 0});
+
+        assertEquals(1, sim.getServedCount(1));
+        assertEquals(1, sim.getServedCount(2));
+        assertEquals(1, sim.getServedCount(3));
+        assertEquals(7, sim.getServedCount(4));
+        assertEquals(0, sim.getServedCount(5));
+        assertEquals(9, sim.getCacheMisses());
+        assertEquals(1 + 2 + 3 + 4 + 5 + 6 + 7, sim.getTotalSimulationTime());
+    }
+
+    @Test
+    void requestData_inclusive() throws NotFoundException {
+        String file = TestStores.prepareStore(40);
+        Cache l1 = twoLevels(file, 4, 6, InclusionPolicy.INCLUSIVE, WritePolicy.WRITE_THROUGH);
+        Cache l2 = lowerOf(l1);
+        Random rand = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            int key = rand.nextInt(40);
+            assertEquals(key, l1.requestData(key).getData().getData());
+            for (CacheItem item : l1.getContents()) {
+                if (item != null) {
+                    assertTrue(l2.findData(item.getKey()) >= 0);
+                }
+            }
+        }
+        assertTrue(((CacheLevel) l1.backingStore).getBackInvalidationCount() > 0);
+    }
+
+    @Test
+    void requestData_inclusiveDirty() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache l1 = twoLevels(file, 2, 2, InclusionPolicy.INCLUSIVE, WritePolicy.WRITE_BACK);
+        l1.writeData(1, 100);
+        assertTrue(l1.isDirty(1));
+        l1.requestData(2);
+
+        //the lower cache evicts 1, so the upper must give it up
+        CacheResponse r = l1.requestData(3);
+        assertTrue(l1.findData(1) < 0);
+        assertTrue(r.getWriteTime() > 0);
+        assertEquals(100, new BackingStore(file).fetchData(1).getData());
+        assertEquals(100, l1.requestData(1).getData().getData());
+    }
+
+    @Test
+    void requestData_exclusive() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache l1 = twoLevels(file, 2, 2, InclusionPolicy.EXCLUSIVE, WritePolicy.WRITE_THROUGH);
+        Cache l2 = lowerOf(l1);
+        l1.requestData(1);
+        l1.requestData(2);
+        assertEquals(0, l2.getSize());
+
+        l1.requestData(3);
+        assertTrue(l1.findData(1) < 0);
+        assertTrue(l2.findData(1) >= 0);
+
+        CacheResponse r = l1.requestData(1);
+        assertEquals(2, r.getLevel());
+        assertEquals(1, r.getData().getData());
+        assertTrue(l2.findData(1) < 0);
+        assertTrue(l2.findData(2) >= 0);
+
+        Random rand = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            int key = rand.nextInt(20);
+            assertEquals(key, l1.requestData(key).getData().getData());
+            for (CacheItem item : l1.getContents()) {
+                if (item != null) {
+                    assertTrue(l2.findData(item.getKey()) < 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void requestData_randomWrites() throws NotFoundException {
+        for (InclusionPolicy inclusion : InclusionPolicy.values()) {
+            String file = TestStores.prepareStore(30);
+            Cache l3 = new Cache(10, new BackingStore(file), WritePolicy.WRITE_BACK);
+            Cache l2 = new Cache(6, new CacheLevel(l3, inclusion), WritePolicy.WRITE_BACK);
+            Cache l1 = new Cache(3, new CacheLevel(l2, inclusion), WritePolicy.WRITE_BACK);
+            int[] model = new int[30];
+            for (int i = 0; i < model.length; i++) {
+                model[i] = i;
+            }
+            Random rand = new Random(3);
+            for (int i = 0; i < 600; i++) {
+                int key = rand.nextInt(30);
+                if (rand.nextInt(3) == 0) {
+                    model[key] = rand.nextInt(1000);
+                    assertEquals(model[key], l1.writeData(key, model[key]).getData().getData());
+                } else {
+                    assertEquals(model[key], l1.requestData(key).getData().getData(), inclusion.toString());
+                }
+            }
+            l1.flush();
+            l2.flush();
+            l3.flush();
+            BackingStore store = new BackingStore(file);
+            for (int key = 0; key < model.length; key++) {
+                assertEquals(model[key], store.fetchData(key).getData(), inclusion.toString());
+            }
+        }
+    }
+
+    @Test
+    void requestData_oneUpperCache() {
+        String file = TestStores.prepareStore(5);
+        CacheLevel level = new CacheLevel(new Cache(2, file));
+        new Cache(1, level);
+        assertThrows(IllegalStateException.class, () -> new Cache(1, level));
+    }
+
+    @Test
+    void requestData_negativeKey() throws NotFoundException {
+        String file = TestStores.prepareStore("-1 5", "0 0", "1 1");
+        Cache l1 = twoLevels(file, 2, 2, InclusionPolicy.NINE, WritePolicy.WRITE_THROUGH);
+        Cache l2 = lowerOf(l1);
+        l1.writeData(-1, 77);
+        assertEquals(77, l2.requestData(-1).getData().getData());
+        assertEquals(77, new BackingStore(file).fetchData(-1).getData());
+    }
+
+    @Test
+    void requestData_inclusiveNegativeKey() throws NotFoundException {
+        String file = TestStores.prepareStore("-1 5", "0 0", "1 1");
+        Cache l1 = twoLevels(file, 2, 1, InclusionPolicy.INCLUSIVE, WritePolicy.WRITE_BACK);
+        l1.writeData(-1, 77);
+        l1.requestData(0);
+        assertTrue(l1.findData(-1) < 0, "Key -1 left the lower cache, so it must leave the upper one.");
+        assertEquals(1, ((CacheLevel) l1.backingStore).getBackInvalidationCount());
+        assertEquals(77, new BackingStore(file).fetchData(-1).getData());
+    }
+
+    @Test
+    void requestData_wrappedLevel() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache l2 = new Cache(2, file);
+        CacheLevel level = new CacheLevel(l2, InclusionPolicy.EXCLUSIVE);
+        Cache l1 = new Cache(2, new SingleFlightBackingStore(new LockedBackingStore(level)));
+        l1.requestData(1);
+        l1.requestData(2);
+        l1.requestData(3);
+        assertTrue(l2.findData(1) >= 0, "The victim should move down through the wrappers.");
+
+        CacheResponse r = l1.requestData(1);
+        assertEquals(2, r.getLevel());
+        assertTrue(l2.findData(1) < 0);
+        assertThrows(IllegalStateException.class, () -> new Cache(1, new LockedBackingStore(level)));
+    }
+
+    @Test
+    void asyncLevel_rejected() {
+        String file = TestStores.prepareStore(5);
+        CacheLevel level = new CacheLevel(new Cache(2, file));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncBackingStore(level));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncBackingStore(new LockedBackingStore(level)));
+    }
+}
@@ -37,4 +37,13 @@ class CacheResponseTest {
         assertEquals(test.getKey(), ci.getKey(), "Keys do not match for a CacheItem in CacheResponse.");
         assertEquals(test.getData(), ci.getData(), "Data does not match for a CacheItem in CacheResponse.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void constructor_empty() {
+        CacheResponse cr = new CacheResponse();
+        assertNull(cr.getData());
+        assertFalse(cr.getMiss());
+        assertEquals(0.0, cr.getTime());
+        assertEquals(0.0, cr.getWriteTime());
+    }
+}
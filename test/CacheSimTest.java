@@ -169,9 +169,254 @@ class CacheSimTest {
         assertEquals("(5,5) (6,6) (3,3) (4,4)", sim.cacheToString(), "Full cache should contain 4 entries.");
     }
 
+    /**
+     * simulateOptimal() black box unit tests
+     * 1. textbook reference string, where OPT beats LRU
+     * 2. history is recorded as by simulate()
+     * 3. OPT never misses more than LRU on random traces
+     * 4. OPT within the sets of a set-associative cache
+     * 5. the cache's own policy evicts again afterwards
+     */
+
+    @Test
+    void simulateOptimal_textbook() {
+        prepareExample1();
+        int[] keys = {7, 0, 1, 2, 0, 3, 0, 4, 2, 3, 0, 3, 2, 1, 2, 0, 1, 7, 0, 1};
+        CacheSim optimal = new CacheSim(3, ex1File);
+        optimal.simulateOptimal(keys);
+        CacheSim lru = new CacheSim(3, ex1File);
+        lru.simulate(keys);
+        assertEquals(9, optimal.getCacheMisses(), "OPT should miss 9 times with 3 slots.");
+        assertEquals(12, lru.getCacheMisses(), "LRU should miss 12 times with 3 slots.");
+    }
+
+    @Test
+    void simulateOptimal_history() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(2, ex1File);
+        sim.simulateOptimal(new int[]{1, 2, 3, 1, 12});
+        assertEquals(7, sim.getCacheHistory().size(), "A failure is recorded before the unchanged state.");
+        assertEquals("(1,1) (3,3)", sim.getCacheHistory().get(3), "Key 2 is never needed again.");
+        assertEquals("FAILURE", sim.getCacheHistory().get(5));
+        assertEquals(3, sim.getCacheMisses());
+    }
+
+    @Test
+    void simulateOptimal_neverWorseThanLru() {
+        prepareExample1();
+        java.util.Random random = new java.util.Random(11);
+        for (int trial = 0; trial < 20; trial++) {
+            int[] keys = new int[200];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(10);
+            }
+            CacheSim optimal = new CacheSim(4, ex1File);
+            optimal.simulateOptimal(keys);
+            CacheSim lru = new CacheSim(4, ex1File);
+            lru.simulate(keys);
+            assertTrue(optimal.getCacheMisses() <= lru.getCacheMisses());
+        }
+    }
+
+    @Test
+    void simulateOptimal_setAssociative() {
+        prepareExample1();
+        //keys 1, 3, 5 all map to set 1 of a 2-way cache of 4
+        CacheSim sim = new CacheSim(new SetAssociativeCache(4, 2, ex1File));
+        sim.simulateOptimal(new int[]{1, 3, 5, 1, 3});
+        assertEquals(4, sim.getCacheMisses(), "Only one of 1 and 3 can stay in set 1.");
+    }
+
+    @Test
+    void simulateOptimal_restoresPolicy() {
+        prepareExample1();
+        Cache cache = new Cache(2, ex1File);
+        cache.setReplacementPolicy(ReplacementPolicyType.FIFO);
+        CacheSim sim = new CacheSim(cache);
+        sim.simulateOptimal(new int[]{1, 2, 1});
+        assertTrue(cache.getReplacementPolicy() instanceof FifoPolicy);
+        assertEquals(ReplacementPolicyType.FIFO, cache.getReplacementPolicyFactory());
 
+        //FIFO evicts key 1, installed first, where OPT would keep it
+        sim.simulate(new int[]{3, 1});
+        assertEquals("(3,3) (1,1)", sim.cacheToString());
+        assertEquals(4, sim.getCacheMisses());
+    }
 
+    /**
+     * Chunked simulate() black box unit tests
+     * 1. chunks replay a mixed trace exactly like the list version
+     */
 
+    @Test
+    void simulateChunks_matchesList() {
+        prepareExample1();
+        int[] keys = {1, 2, 12, 3, 1, 4, 5, 2, 6, 3};
+        Integer[] written = {null, 20, null, null, 10, null, 50, null, null, 30};
+        java.util.ArrayList<Integer> keyList = new java.util.ArrayList<>();
+        java.util.ArrayList<Integer> dataList = new java.util.ArrayList<>();
+        int[] data = new int[keys.length];
+        boolean[] writes = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keyList.add(keys[i]);
+            dataList.add(written[i]);
+            writes[i] = written[i] != null;
+            data[i] = writes[i] ? written[i] : 0;
+        }
+        CacheSim listSim = new CacheSim(3, ex1File);
+        listSim.simulate(keyList, dataList);
+        prepareExample1();
+        CacheSim chunkSim = new CacheSim(3, ex1File);
+        for (int from = 0; from < keys.length; from += 4) {
+            int count = Math.min(4, keys.length - from);
+            chunkSim.simulate(java.util.Arrays.copyOfRange(keys, from, from + count),
+                    java.util.Arrays.copyOfRange(data, from, from + count),
+                    java.util.Arrays.copyOfRange(writes, from, from + count), count);
+        }
+        assertEquals(listSim.getCacheHistory(), chunkSim.getCacheHistory());
+        assertEquals(listSim.getCacheMisses(), chunkSim.getCacheMisses());
+        assertEquals(listSim.getTotalSimulationTime(), chunkSim.getTotalSimulationTime());
+        prepareExample1();
+    }
 
+    /**
+     * History log black box unit tests
+     * 1. history starts from the contents of an existing cache
+     * 2. writes and requests made directly on the cache are reflected
+     * 3. writeHistory() writes the same entries as getCacheHistory()
+     * 4. turning history off records nothing but keeps metrics
+     * 5. negative keys, including -1, are recorded as occupied slots
+     */
+
+    @Test
+    void history_existingContents() {
+        prepareExample1();
+        Cache cache = new Cache(3, ex1File);
+        try {
+            cache.requestData(4);
+        } catch (NotFoundException e) {
+            fail();
+        }
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(new int[]{5});
+        assertEquals("(4,4) () ()", sim.getCacheHistory().get(0));
+        assertEquals("(4,4) (5,5) ()", sim.getCacheHistory().get(1));
+    }
 
-}
\ No newline at end of file
+    @Test
+    void history_directChanges() {
+        prepareExample1();
+        Cache cache = new Cache(2, ex1File);
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(new int[]{1, 2});
+        try {
+            cache.writeData(1, 7);
+            cache.requestData(3);
+        } catch (NotFoundException e) {
+            fail();
+        }
+        sim.simulate(new int[]{1});
+        assertEquals("(1,7) (3,3)", sim.getCacheHistory().get(3), "Changes outside the simulation should be logged.");
+        assertEquals(sim.cacheToString(), sim.getCacheHistory().get(4));
+        prepareExample1();
+    }
+
+    @Test
+    void writeHistory_matches() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(2, ex1File);
+        sim.simulate(new int[]{1, 2, 12, 3, 1});
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        java.io.PrintStream out = new java.io.PrintStream(bytes);
+        sim.writeHistory(out);
+        out.flush();
+        assertEquals(String.join(System.lineSeparator(), sim.getCacheHistory()) + System.lineSeparator(), bytes.toString());
+    }
+
+    @Test
+    void history_negativeKeys() {
+        String file = TestStores.prepareStore("-1 10", "-2 20", "3 30");
+        Cache cache = new Cache(2, file);
+        try {
+            cache.requestData(-1);
+        } catch (NotFoundException e) {
+            fail();
+        }
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(new int[]{-2, 3, -1});
+        assertEquals("(-1,10) ()", sim.getCacheHistory().get(0), "The base snapshot should hold key -1.");
+        assertEquals("(-1,10) (-2,20)", sim.getCacheHistory().get(1));
+        assertEquals("(3,30) (-2,20)", sim.getCacheHistory().get(2), "Evicting key -1 should empty its slot.");
+        assertEquals("(3,30) (-1,10)", sim.getCacheHistory().get(3));
+        assertEquals("(3,30) (-1,10)", sim.cacheToString());
+    }
+
+    @Test
+    void history_disabled() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(2, ex1File);
+        sim.setHistoryEnabled(false);
+        sim.simulate(new int[]{1, 2, 3, 1});
+        assertEquals(0, sim.getCacheHistory().size());
+        assertEquals(4, sim.getCacheMisses());
+        sim.setHistoryEnabled(true);
+        sim.simulate(new int[]{1});
+        assertEquals(2, sim.getCacheHistory().size(), "History should restart from the current contents.");
+        assertEquals("(3,3) (1,1)", sim.getCacheHistory().get(0));
+    }
+
+    /**
+     * Running metrics black box unit tests
+     * 1. hits, misses, reads, writes and failures are counted
+     * 2. responses are only kept when asked for
+     * 3. reset() clears every metric
+     */
+
+    @Test
+    void metrics_counted() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(2, ex1File);
+        java.util.ArrayList<Integer> keys = new java.util.ArrayList<>(java.util.Arrays.asList(1, 2, 1, 12, 3, 2));
+        java.util.ArrayList<Integer> data = new java.util.ArrayList<>(java.util.Arrays.asList(null, 20, null, null, 30, null));
+        sim.simulate(keys, data);
+        assertEquals(4, sim.getCacheMisses());
+        assertEquals(1, sim.getCacheHits());
+        assertEquals(3, sim.getReadCount());
+        assertEquals(2, sim.getWriteCount());
+        assertEquals(1, sim.getFailureCount());
+        assertTrue(sim.getTotalWriteTime() > 0.0, "Write-through writes take time.");
+        prepareExample1();
+    }
+
+    @Test
+    void responses_retainedOnRequest() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(2, ex1File);
+        sim.simulate(new int[]{1, 2});
+        assertEquals(0, sim.getResponses().size(), "Responses are not kept by default.");
+        sim.setRetainResponses(true);
+        sim.simulate(new int[]{1, 3});
+        assertEquals(2, sim.getResponses().size());
+        assertFalse(sim.getResponses().get(0).getMiss());
+        assertEquals(3, sim.getResponses().get(1).getData().getKey());
+        double time = 0.0;
+        for (CacheResponse resp : sim.getResponses()) {
+            time += resp.getTime();
+        }
+        assertEquals(5.0, sim.getTotalSimulationTime() - time, "The first two misses took 2 and 3 lines to find.");
+    }
+
+    @Test
+    void reset_clearsMetrics() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(2, ex1File);
+        sim.setRetainResponses(true);
+        sim.simulate(new int[]{1, 1, 12});
+        sim.reset();
+        assertEquals(0, sim.getCacheHits());
+        assertEquals(0, sim.getReadCount());
+        assertEquals(0, sim.getFailureCount());
+        assertEquals(0.0, sim.getTotalSimulationTime());
+        assertEquals(0, sim.getResponses().size());
+    }
+}
@@ -138,6 +138,8 @@ class CacheTest {
      * 3. Get rank of key that was just accessed.
      * 4. Get rank of a previously accessed key
      * 5. Attempt to get rank of a CacheItem recently evicted.
+     * 6. Ranks of a full cache follow recency order after a re-access.
+     * 7. Each repeated access to another key raises a rank again.
      */
 
     @Test
@@ -190,6 +192,36 @@ class CacheTest {
         }
     }
 
+    @Test
+    void getRank_recencyOrder() {
+        Cache cache = getFullCache_Ex1();
+        try {
+            cache.requestData(2);
+            assertEquals(0, cache.getRank(2), "Re-accessed key should have rank 0.");
+            assertEquals(1, cache.getRank(4), "Key 4 was accessed second most recently.");
+            assertEquals(2, cache.getRank(3), "Key 3 was accessed third most recently.");
+            assertEquals(4, cache.getRank(1), "Four accesses followed the one to key 1.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void getRank_repeatedAccess() {
+        Cache cache = getEmptyCache_Ex1();
+        try {
+            cache.requestData(1);
+            cache.requestData(2);
+            cache.requestData(2);
+            assertEquals(2, cache.getRank(1), "Key 2 was accessed twice since key 1.");
+            cache.writeData(2, 20);
+            assertEquals(3, cache.getRank(1), "A write to key 2 is one more access.");
+            assertEquals(0, cache.getRank(2));
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
     /**
      * findData() black box unit tests.
      * 1. Try to find data in an empty cache.
@@ -363,6 +395,82 @@ class CacheTest {
     }
 
 
+    /**
+     * writeData() and flush() black box tests under write-back.
+     * 1. A write leaves the backing store unchanged and marks the key dirty.
+     * 2. Evicting a dirty item writes it back and reports the write time.
+     * 3. Flushing writes every dirty item back and marks it clean.
+     * 4. Under write-through, a write reaches the backing store immediately.
+     */
+
+    Cache getWriteBackCache_Ex1() {
+        prepareExample1();
+        return new Cache(4, new BackingStore(ex1File), WritePolicy.WRITE_BACK);
+    }
+
+    @Test
+    void writeData_writeBackDeferred() {
+        Cache cache = getWriteBackCache_Ex1();
+        try {
+            CacheResponse resp = cache.writeData(2, 200);
+            assertEquals(200, resp.getData().getData(), "Cache should hold the written data.");
+            assertEquals(0.0, resp.getWriteTime(), "No backing store write should happen yet.");
+            assertTrue(cache.isDirty(2), "Written key should be dirty.");
+            assertEquals(2, new BackingStore(ex1File).fetchData(2).getData(), "Backing store should be unchanged.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void writeData_writeBackOnEvict() {
+        Cache cache = getWriteBackCache_Ex1();
+        try {
+            cache.writeData(2, 200);
+            cache.requestData(3);
+            cache.requestData(4);
+            cache.requestData(5);
+            CacheResponse resp = cache.requestData(6);
+            assertEquals(3.0, resp.getWriteTime(), "Evicting key 2 should write back its line (line 3).");
+            assertFalse(cache.isDirty(2), "Evicted key should no longer be dirty.");
+            assertEquals(200, new BackingStore(ex1File).fetchData(2).getData(), "Evicted data should be written back.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void flush_writesDirty() {
+        Cache cache = getWriteBackCache_Ex1();
+        try {
+            cache.writeData(1, 100);
+            cache.writeData(9, 900);
+            cache.requestData(5);
+            assertEquals(12.0, cache.flush(), "Flush should write lines 2 and 10.");
+            assertFalse(cache.isDirty(1));
+            assertFalse(cache.isDirty(9));
+            BackingStore store = new BackingStore(ex1File);
+            assertEquals(100, store.fetchData(1).getData());
+            assertEquals(900, store.fetchData(9).getData());
+            assertEquals(0.0, cache.flush(), "Nothing should be left to flush.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void writeData_writeThrough() {
+        Cache cache = getEmptyCache_Ex1();
+        try {
+            CacheResponse resp = cache.writeData(2, 200);
+            assertEquals(3.0, resp.getWriteTime(), "Write-through should report the backing store write.");
+            assertFalse(cache.isDirty(2), "Write-through never leaves dirty data.");
+            assertEquals(200, new BackingStore(ex1File).fetchData(2).getData(), "Backing store should be updated.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
     /**
      * fetchData() black box tests.
      * 1. First entry from the backing store.
@@ -375,8 +483,8 @@ class CacheTest {
     void fetchData_firstEntry() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            int data = cache.fetchData(0);
+            BackingStore store = new BackingStore(ex1File);
+            int data = store.fetchData(0).getData();
             assertEquals(0, data, "Example 1 key 0 should have data 0.");
         } catch (NotFoundException e) {
             fail("Data was not found in the backing store but should be.");
@@ -387,8 +495,8 @@ class CacheTest {
     void fetchData_lastEntry() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            int data = cache.fetchData(9);
+            BackingStore store = new BackingStore(ex1File);
+            int data = store.fetchData(9).getData();
             assertEquals(9, data, "Example 1 key 9 should have data 9.");
         } catch (NotFoundException e) {
             fail("Data was not found in the backing store but should be.");
@@ -399,8 +507,8 @@ class CacheTest {
     void fetchData_notExist() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            int data = cache.fetchData(1243);
+            BackingStore store = new BackingStore(ex1File);
+            int data = store.fetchData(1243).getData();
             fail();
         } catch (NotFoundException e) {
             //Intended outcome! Pass!
@@ -411,8 +519,8 @@ class CacheTest {
     void fetchData_Exists() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            int data = cache.fetchData(5);
+            BackingStore store = new BackingStore(ex1File);
+            int data = store.fetchData(5).getData();
             assertEquals(5, data, "Example 1 key 5 should have data 5.");
         } catch (NotFoundException e) {
             fail("Data was not found in the backing store but should be.");
@@ -431,9 +539,9 @@ class CacheTest {
     void pushData_firstEntry() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            cache.pushData(0, 123);
-            assertEquals(123, cache.fetchData(0), "Data was updated in the backing store.");
+            BackingStore store = new BackingStore(ex1File);
+            store.pushData(0, 123);
+            assertEquals(123, store.fetchData(0).getData(), "Data was updated in the backing store.");
         } catch (NotFoundException e) {
             fail();
         }
@@ -443,9 +551,9 @@ class CacheTest {
     void pushData_lastEntry() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            cache.pushData(9, 123);
-            assertEquals(123, cache.fetchData(9), "Data was updated in the backing store.");
+            BackingStore store = new BackingStore(ex1File);
+            store.pushData(9, 123);
+            assertEquals(123, store.fetchData(9).getData(), "Data was updated in the backing store.");
         } catch (NotFoundException e) {
             fail();
         }
@@ -455,8 +563,8 @@ class CacheTest {
     void pushData_notExist() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            cache.pushData(1243, 789);
+            BackingStore store = new BackingStore(ex1File);
+            store.pushData(1243, 789);
             fail();
         } catch (NotFoundException e) {
             //Intended outcome! Pass!
@@ -467,12 +575,109 @@ class CacheTest {
     void pushData_Exists() {
         try {
             prepareExample1();
-            Cache cache = new Cache(4, ex1File);
-            cache.pushData(1, 123);
-            assertEquals(123, cache.fetchData(1), "Data was updated in the backing store.");
+            BackingStore store = new BackingStore(ex1File);
+            store.pushData(1, 123);
+            assertEquals(123, store.fetchData(1).getData(), "Data was updated in the backing store.");
         } catch (NotFoundException e) {
             fail();
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Reusable response black box tests.
+     * 1. A reused response is filled in place for hits and misses.
+     * 2. Writes fill a reused response.
+     * 3. Responses never alias the cache's own items.
+     */
+
+    @Test
+    void requestData_reusedResponse() {
+        prepareExample1();
+        Cache cache = new Cache(2, ex1File);
+        CacheResponse out = new CacheResponse();
+        try {
+            assertSame(out, cache.requestData(3, out));
+            assertTrue(out.getMiss());
+            CacheItem item = out.getData();
+            assertSame(out, cache.requestData(3, out));
+            assertFalse(out.getMiss());
+            assertEquals(0.0, out.getTime());
+            assertSame(item, out.getData(), "The response's item should be reused.");
+            assertEquals(3, item.getKey());
+            assertEquals(3, item.getData());
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void writeData_reusedResponse() {
+        prepareExample1();
+        Cache cache = new Cache(2, ex1File);
+        CacheResponse out = new CacheResponse();
+        try {
+            cache.writeData(4, 40, out);
+            assertTrue(out.getMiss());
+            assertEquals(40, out.getData().getData());
+            cache.writeData(4, 41, out);
+            assertFalse(out.getMiss());
+            assertEquals(41, out.getData().getData());
+            assertEquals(41, cache.requestData(4).getData().getData());
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+        prepareExample1();
+    }
+
+    @Test
+    void requestData_noAlias() {
+        prepareExample1();
+        Cache cache = new Cache(2, ex1File);
+        try {
+            cache.requestData(5).getData().setData(99);
+            CacheResponse out = new CacheResponse();
+            cache.requestData(5, out).getData().setData(98);
+            assertEquals(5, cache.requestData(5).getData().getData(), "Changing a response should not change the cache.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    /**
+     * Slot storage black box tests.
+     * 1. A cache larger than one bitmap word fills every index in order,
+     *    and refills the smallest freed index first.
+     */
+
+    @Test
+    void installData_acrossBitmapWords() {
+        File fp = new File("example300.txt");
+        try {
+            PrintWriter pw = new PrintWriter(fp);
+            for (int i = 0; i < 300; i++) {
+                pw.println(i + " " + (i * 2));
+            }
+            pw.close();
+            Cache cache = new Cache(130, fp.getPath());
+            for (int key = 0; key < 130; key++) {
+                cache.requestData(key);
+                assertEquals(key, cache.findData(key), "Keys should fill indices in order.");
+            }
+            //key 70 is least recently used once 0 to 69 are requested again
+            for (int key = 0; key < 70; key++) {
+                cache.requestData(key);
+            }
+            cache.requestData(200);
+            assertEquals(70, cache.findData(200));
+            assertEquals(400, cache.getContents().get(70).getData());
+            assertEquals(130, cache.getSize());
+            cache.reset();
+            cache.requestData(299);
+            assertEquals(0, cache.findData(299), "A reset cache should fill from index 0.");
+        } catch (IOException | NotFoundException e) {
+            fail(e);
+        } finally {
+            fp.delete();
+        }
+    }
+}
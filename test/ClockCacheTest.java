@@ -0,0 +1,379 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ClockCacheTest {
+
+    /**
+     * Build a trace of keys drawn from 0 to keys-1 with a Zipf-like skew,
+     * so that low keys are requested far more often than high ones.
+     */
+    int[] skewedTrace(int length, int keys, long seed) {
+        Random random = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = (int) Math.min(keys - 1, Math.floor(Math.pow(keys, random.nextDouble())) - 1);
+        }
+        return trace;
+    }
+
+    /**
+     * Count the hits of a ClockCache replaying keys in one thread,
+     * skipping keys the store does not hold.
+     */
+    long clockHits(int capacity, StoreImage store, int[] trace) {
+        ClockCache cache = new ClockCache(capacity, store.newView());
+        long hits = 0;
+        CacheResponse response = new CacheResponse();
+        for (int key : trace) {
+            try {
+                if (!cache.requestData(key, response).getMiss()) {
+                    hits++;
+                }
+            } catch (NotFoundException nfe) {
+                //missing keys count as neither hits nor misses
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Count the hits of an exact LRU Cache replaying keys,
+     * skipping keys the store does not hold.
+     */
+    long lruHits(int capacity, StoreImage store, int[] trace) {
+        Cache cache = new Cache(capacity, store.newView());
+        long hits = 0;
+        CacheResponse response = new CacheResponse();
+        for (int key : trace) {
+            try {
+                if (!cache.requestData(key, response).getMiss()) {
+                    hits++;
+                }
+            } catch (NotFoundException nfe) {
+                //missing keys count as neither hits nor misses
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Single-threaded black box unit tests
+     * 1. a request misses, then hits, returning the stored data
+     * 2. missing keys throw NotFoundException and install nothing
+     * 3. in one thread, hits, misses and data match a Cache using ClockPolicy
+     * 4. under write-back, writes reach the store only when flushed
+     * 5. reset empties the cache
+     * 6. under a cost model, times match a Cache using ClockPolicy and the same model
+     */
+
+    @Test
+    void requestData_missThenHit() throws NotFoundException {
+        ClockCache cache = new ClockCache(4, TestStores.prepareStore(10));
+        CacheResponse first = cache.requestData(3);
+        assertTrue(first.getMiss());
+        assertEquals(3, first.getData().getData());
+        assertEquals(4.0, first.getTime(), "Time should count lines up to the key's line.");
+        assertFalse(cache.requestData(3).getMiss());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void requestData_notFound() {
+        ClockCache cache = new ClockCache(4, TestStores.prepareStore(4));
+        assertThrows(NotFoundException.class, () -> cache.requestData(4));
+        assertThrows(NotFoundException.class, () -> cache.writeData(4, 1));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void singleThread_matchesClockPolicy() throws IOException, NotFoundException {
+        StoreImage store = new StoreImage(TestStores.prepareStore(64));
+        ClockCache clock = new ClockCache(8, store.newView());
+        Cache reference = new Cache(8, store.newView());
+        reference.setReplacementPolicy(ReplacementPolicyType.CLOCK);
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(random.nextBoolean() ? 12 : 64);
+            CacheResponse expected;
+            CacheResponse actual;
+            if (random.nextInt(4) == 0) {
+                expected = reference.writeData(key, i);
+                actual = clock.writeData(key, i);
+            } else {
+                expected = reference.requestData(key);
+                actual = clock.requestData(key);
+            }
+            assertEquals(expected.getMiss(), actual.getMiss(), "Request " + i + " for key " + key);
+            assertEquals(expected.getData().getData(), actual.getData().getData());
+            assertEquals(expected.getTime(), actual.getTime());
+        }
+        for (int key = 0; key < 64; key++) {
+            assertEquals(reference.findData(key) >= 0, clock.contains(key), "Key " + key);
+        }
+    }
+
+    @Test
+    void singleThread_costModel() throws IOException, NotFoundException {
+        StoreImage store = new StoreImage(TestStores.prepareStore(64));
+        CostModel model = new CostModel(1.0, 20.0, 0.5, 3.0, 4.0, 2.0);
+        for (WritePolicy policy : WritePolicy.values()) {
+            ClockCache clock = new ClockCache(8, store.newView(), policy);
+            clock.setCostModel(model);
+            Cache reference = new Cache(8, store.newView(), policy);
+            reference.setReplacementPolicy(ReplacementPolicyType.CLOCK);
+            reference.setCostModel(model);
+            Random random = new Random(9);
+            for (int i = 0; i < 3000; i++) {
+                int key = random.nextInt(random.nextBoolean() ? 12 : 64);
+                CacheResponse expected;
+                CacheResponse actual;
+                if (random.nextInt(4) == 0) {
+                    expected = reference.writeData(key, i);
+                    actual = clock.writeData(key, i);
+                } else {
+                    expected = reference.requestData(key);
+                    actual = clock.requestData(key);
+                }
+                assertEquals(expected.getTime(), actual.getTime(), policy + " request " + i);
+                assertEquals(expected.getWriteTime(), actual.getWriteTime(), policy + " request " + i);
+            }
+            assertEquals(reference.flush(), clock.flush());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ClockCache(1, store.newView()).setCostModel(null));
+    }
+
+    @Test
+    void writeData_writeBack() throws IOException, NotFoundException {
+        StoreView store = new StoreImage(TestStores.prepareStore(10)).newView();
+        ClockCache cache = new ClockCache(2, store, WritePolicy.WRITE_BACK);
+        cache.writeData(1, 100);
+        assertEquals(1, store.fetchData(1).getData(), "Write-back should not write immediately.");
+        assertEquals(100, cache.requestData(1).getData().getData());
+        assertEquals(2.0, cache.flush());
+        assertEquals(100, store.fetchData(1).getData());
+        assertEquals(0.0, cache.flush(), "Nothing should remain dirty after a flush.");
+    }
+
+    @Test
+    void reset() throws NotFoundException {
+        ClockCache cache = new ClockCache(2, TestStores.prepareStore(10));
+        cache.requestData(1);
+        cache.requestData(2);
+        cache.reset();
+        assertEquals(0, cache.getSize());
+        assertFalse(cache.contains(1));
+        assertTrue(cache.requestData(1).getMiss());
+    }
+
+    /**
+     * Hit ratio against exact LRU black box tests
+     * 1. on the sample traces in test_cases
+     * 2. on a skewed random trace, across capacities
+     * 3. on a loop larger than the cache, where both always miss
+     */
+
+    @Test
+    void hitRatio_sampleTraces() throws IOException {
+        for (int t = 1; t <= 5; t++) {
+            List<Integer> keys = new ArrayList<>();
+            int capacity;
+            String storeFile;
+            try (TraceReader trace = new TraceReader("test_cases/Test" + t + ".txt")) {
+                capacity = trace.getCapacity();
+                storeFile = trace.getStoreFile();
+                int[] k = new int[64];
+                int[] d = new int[64];
+                boolean[] w = new boolean[64];
+                int count;
+                while ((count = trace.read(k, d, w)) > 0) {
+                    for (int i = 0; i < count; i++) {
+                        keys.add(k[i]);
+                    }
+                }
+            }
+            int[] trace = keys.stream().mapToInt(Integer::intValue).toArray();
+            StoreImage store = new StoreImage(storeFile);
+            long lru = lruHits(capacity, store, trace);
+            long clock = clockHits(capacity, store, trace);
+            assertTrue(Math.abs(lru - clock) <= 2, "Test" + t + ": LRU hit " + lru + ", CLOCK hit " + clock);
+        }
+    }
+
+    @Test
+    void hitRatio_skewed() throws IOException {
+        StoreImage store = new StoreImage(TestStores.prepareStore(1000));
+        int[] trace = skewedTrace(50000, 1000, 1);
+        for (int capacity : new int[]{16, 64, 256}) {
+            double lru = (double) lruHits(capacity, store, trace) / trace.length;
+            double clock = (double) clockHits(capacity, store, trace) / trace.length;
+            assertEquals(lru, clock, 0.03, "Capacity " + capacity + ": LRU " + lru + ", CLOCK " + clock);
+        }
+    }
+
+    @Test
+    void hitRatio_loop() throws IOException {
+        StoreImage store = new StoreImage(TestStores.prepareStore(20));
+        int[] trace = new int[2000];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = i % 20;
+        }
+        assertEquals(0, lruHits(16, store, trace));
+        assertEquals(0, clockHits(16, store, trace));
+    }
+
+    /**
+     * Multi-threaded stress tests
+     * 1. concurrent reads always return the right data and never overfill the cache
+     * 2. concurrent writes to disjoint keys all reach the store
+     * 3. a miss whose key is written and evicted while it fetches installs the new data
+     */
+
+    @Test
+    void stress_reads() throws Exception {
+        int threads = 8;
+        int requestsPerThread = 50000;
+        ClockCache cache = new ClockCache(64, new StoreImage(TestStores.prepareStore(512)).newView());
+        int[] trace = skewedTrace(requestsPerThread, 512, 3);
+        AtomicLong hits = new AtomicLong();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 997;
+            Thread worker = new Thread(() -> {
+                CacheResponse response = new CacheResponse();
+                long myHits = 0;
+                try {
+                    start.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        int key = trace[(i + offset) % trace.length];
+                        cache.requestData(key, response);
+                        if (response.getData().getKey() != key || response.getData().getData() != key) {
+                            errors.add(new AssertionError("Wrong item for key " + key));
+                        }
+                        if (!response.getMiss()) {
+                            myHits++;
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+                hits.addAndGet(myHits);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(errors.isEmpty(), () -> "Worker failed: " + errors.peek());
+        assertEquals(64, cache.getSize());
+        assertTrue(hits.get() > 0);
+    }
+
+    @Test
+    void stress_writes() throws Exception {
+        int threads = 8;
+        int writesPerThread = 5000;
+        int keysPerThread = 16;
+        StoreView store = new StoreImage(TestStores.prepareStore(threads * keysPerThread)).newView();
+        ClockCache cache = new ClockCache(32, store, WritePolicy.WRITE_BACK);
+        int[][] lastWritten = new int[threads][keysPerThread];
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int owner = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(owner);
+                try {
+                    start.await();
+                    for (int i = 0; i < writesPerThread; i++) {
+                        int k = random.nextInt(keysPerThread);
+                        int key = owner * keysPerThread + k;
+                        int data = random.nextInt(1000000);
+                        cache.writeData(key, data);
+                        lastWritten[owner][k] = data;
+                        int read = cache.requestData(key).getData().getData();
+                        if (read != data) {
+                            errors.add(new AssertionError("Key " + key + " read " + read + " after writing " + data));
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(errors.isEmpty(), () -> "Worker failed: " + errors.peek());
+        cache.flush();
+        for (int t = 0; t < threads; t++) {
+            for (int k = 0; k < keysPerThread; k++) {
+                assertEquals(lastWritten[t][k], store.fetchData(t * keysPerThread + k).getData());
+            }
+        }
+    }
+
+    @Test
+    void load_overtakenByWrite() throws Exception {
+        StoreView store = new StoreImage(TestStores.prepareStore(4)).newView();
+        CountDownLatch fetched = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean gated = new AtomicBoolean(true);
+        //holds the first fetch of key 0 after it has read the store
+        SingleFlightBackingStore gate = new SingleFlightBackingStore(new LockedBackingStore(store)) {
+            @Override
+            public BackingStoreResponse fetchData(int key) throws NotFoundException {
+                BackingStoreResponse response = super.fetchData(key);
+                if (key == 0 && gated.compareAndSet(true, false)) {
+                    fetched.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return response;
+            }
+        };
+        ClockCache cache = new ClockCache(1, gate);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        Thread loader = new Thread(() -> {
+            try {
+                cache.requestData(0);
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        loader.start();
+        fetched.await();
+        cache.writeData(0, 99);
+        cache.requestData(1);
+        release.countDown();
+        loader.join();
+
+        assertTrue(errors.isEmpty(), () -> "Loader failed: " + errors.peek());
+        assertEquals(99, store.fetchData(0).getData());
+        assertEquals(99, cache.requestData(0).getData().getData(), "A stale fetch should not be installed.");
+    }
+}
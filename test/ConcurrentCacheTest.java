@@ -0,0 +1,209 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ConcurrentCacheTest {
+
+    /**
+     * Check that no key is cached twice and that the cache holds no more than its capacity.
+     */
+    void assertNoDuplicates(ConcurrentCache cache) {
+        Set<Integer> seen = new HashSet<>();
+        int size = 0;
+        List<CacheItem> contents = cache.getContents();
+        assertEquals(cache.getCapacity(), contents.size());
+        for (CacheItem item : contents) {
+            if (item != null) {
+                assertTrue(seen.add(item.getKey()), "Key " + item.getKey() + " is cached twice.");
+                size++;
+            }
+        }
+        assertEquals(size, cache.getSize());
+    }
+
+    /**
+     * Constructor black box unit tests
+     * 1. segments which do not divide the capacity are rejected
+     * 2. the capacity is split evenly between segments
+     */
+
+    @Test
+    void constructor_badSegments() {
+        String file = TestStores.prepareStore(4);
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentCache(6, 4, file));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentCache(4, 0, file));
+    }
+
+    @Test
+    void constructor_capacity() {
+        ConcurrentCache cache = new ConcurrentCache(8, 4, TestStores.prepareStore(4));
+        assertEquals(8, cache.getCapacity());
+        assertEquals(4, cache.getSegmentCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Single-threaded black box unit tests
+     * 1. requests miss then hit and return the stored data
+     * 2. writes are seen by later requests and reach the store under write-through
+     * 3. a key always maps to the same segment, which evicts only its own keys
+     * 4. missing keys throw NotFoundException
+     */
+
+    @Test
+    void requestData_missThenHit() throws NotFoundException {
+        ConcurrentCache cache = new ConcurrentCache(4, 2, TestStores.prepareStore(10));
+        CacheResponse first = cache.requestData(3);
+        assertTrue(first.getMiss());
+        assertEquals(3, first.getData().getData());
+        CacheResponse second = cache.requestData(3);
+        assertFalse(second.getMiss());
+        assertTrue(cache.contains(3));
+    }
+
+    @Test
+    void writeData_writeThrough() throws NotFoundException {
+        String file = TestStores.prepareStore(10);
+        ConcurrentCache cache = new ConcurrentCache(4, 2, file);
+        cache.writeData(5, 50);
+        assertEquals(50, cache.requestData(5).getData().getData());
+        assertEquals(50, new BackingStore(file).fetchData(5).getData());
+    }
+
+    @Test
+    void segments_evictOwnKeys() throws NotFoundException {
+        ConcurrentCache cache = new ConcurrentCache(4, 4, TestStores.prepareStore(100));
+        int segment = cache.segmentOf(0);
+        List<Integer> sameSegment = new ArrayList<>();
+        for (int key = 1; key < 100 && sameSegment.size() < 2; key++) {
+            if (cache.segmentOf(key) == segment) {
+                sameSegment.add(key);
+            }
+        }
+        cache.requestData(0);
+        cache.requestData(sameSegment.get(0));
+        assertFalse(cache.contains(0), "A one-slot segment should evict its only key.");
+        assertTrue(cache.contains(sameSegment.get(0)));
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void requestData_notFound() {
+        ConcurrentCache cache = new ConcurrentCache(4, 2, TestStores.prepareStore(4));
+        assertThrows(NotFoundException.class, () -> cache.requestData(4));
+        assertThrows(NotFoundException.class, () -> cache.writeData(4, 1));
+    }
+
+    /**
+     * Multi-threaded stress tests
+     * 1. concurrent reads and writes never lose or duplicate an entry,
+     *    and every request is answered as a hit or a miss
+     * 2. every thread reads back the data it last wrote, under write-back
+     */
+
+    @Test
+    void stress_noLostOrDuplicateEntries() throws Exception {
+        int threads = 8;
+        int requestsPerThread = 20000;
+        int keys = 256;
+        ConcurrentCache cache = new ConcurrentCache(64, 8, new StoreImage(TestStores.prepareStore(keys)).newView());
+        AtomicLong hits = new AtomicLong();
+        AtomicLong misses = new AtomicLong();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(seed);
+                CacheResponse response = new CacheResponse();
+                try {
+                    start.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        int key = random.nextInt(keys);
+                        cache.requestData(key, response);
+                        if (response.getData().getKey() != key || response.getData().getData() != key) {
+                            errors.add(new AssertionError("Wrong item for key " + key));
+                        }
+                        (response.getMiss() ? misses : hits).incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(errors.isEmpty(), () -> "Worker failed: " + errors.peek());
+        assertEquals((long) threads * requestsPerThread, hits.get() + misses.get());
+        assertNoDuplicates(cache);
+        assertEquals(cache.getCapacity(), cache.getSize(), "Enough distinct keys were requested to fill every segment.");
+    }
+
+    @Test
+    void stress_writesNotLost() throws Exception {
+        int threads = 8;
+        int writesPerThread = 5000;
+        int keysPerThread = 16;
+        String file = TestStores.prepareStore(threads * keysPerThread);
+        StoreView store = new StoreImage(file).newView();
+        ConcurrentCache cache = new ConcurrentCache(32, 4, store, WritePolicy.WRITE_BACK);
+        int[][] lastWritten = new int[threads][keysPerThread];
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int owner = t;
+            Thread worker = new Thread(() -> {
+                Random random = new Random(owner);
+                try {
+                    start.await();
+                    for (int i = 0; i < writesPerThread; i++) {
+                        int k = random.nextInt(keysPerThread);
+                        int key = owner * keysPerThread + k;
+                        int data = random.nextInt(1000000);
+                        cache.writeData(key, data);
+                        lastWritten[owner][k] = data;
+                        int read = cache.requestData(key).getData().getData();
+                        if (read != data) {
+                            errors.add(new AssertionError("Key " + key + " read " + read + " after writing " + data));
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(errors.isEmpty(), () -> "Worker failed: " + errors.peek());
+        cache.flush();
+        assertNoDuplicates(cache);
+        for (int t = 0; t < threads; t++) {
+            for (int k = 0; k < keysPerThread; k++) {
+                assertEquals(lastWritten[t][k], store.fetchData(t * keysPerThread + k).getData(),
+                        "The last write to every key should reach the store.");
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+class CostModelTest {
+
+    /**
+     * setCostModel() black box unit tests
+     * 1. the default model charges only the lines read, as before
+     * 2. hits cost the hit latency and misses add the penalty,
+     *    transfer and scaled line count
+     * 3. write-through and write-back costs are charged as write time
+     * 4. each level of a hierarchy charges its own model
+     * 5. the reference costs reproduce the sample traces' gold outputs
+     * 6. negative costs and null models are rejected
+     */
+
+    @Test
+    void setCostModel_default() throws NotFoundException {
+        Cache cache = new Cache(2, TestStores.prepareStore(10));
+        assertSame(CostModel.DEFAULT, cache.getCostModel());
+        assertEquals(4.0, cache.requestData(3).getTime());
+        assertEquals(0.0, cache.requestData(3).getTime());
+        assertEquals(4.0, cache.writeData(3, 30).getWriteTime());
+    }
+
+    @Test
+    void setCostModel_readCosts() throws NotFoundException {
+        Cache cache = new Cache(2, TestStores.prepareStore(10));
+        cache.setCostModel(new CostModel(2.0, 10.0, 0.5, 0.0, 0.0, 3.0));
+        //hit 2, penalty 10, 4 bytes at 0.5, line 4 at 3 each
+        assertEquals(2.0 + 10.0 + 2.0 + 12.0, cache.requestData(3).getTime());
+        assertEquals(2.0, cache.requestData(3).getTime());
+    }
+
+    @Test
+    void setCostModel_writeCosts() throws NotFoundException {
+        String file = TestStores.prepareStore(10);
+        Cache through = new Cache(1, new BackingStore(file));
+        through.setCostModel(new CostModel(1.0, 0.0, 0.25, 7.0, 100.0, 1.0));
+        through.requestData(2);
+        CacheResponse r = through.writeData(2, 20);
+        assertEquals(1.0, r.getTime());
+        assertEquals(7.0 + 1.0 + 3.0, r.getWriteTime());
+
+        Cache back = new Cache(1, new BackingStore(file), WritePolicy.WRITE_BACK);
+        back.setCostModel(new CostModel(1.0, 0.0, 0.25, 7.0, 100.0, 1.0));
+        back.requestData(2);
+        assertEquals(0.0, back.writeData(2, 21).getWriteTime());
+        //evicting the dirty 2 costs its write back
+        r = back.requestData(5);
+        assertEquals(1.0 + 1.0 + 6.0, r.getTime());
+        assertEquals(100.0 + 1.0 + 3.0, r.getWriteTime());
+        assertEquals(100.0 + 1.0 + 6.0, back.writeData(5, 50).getWriteTime() + back.flush());
+    }
+
+    @Test
+    void setCostModel_perLevel() throws NotFoundException {
+        Cache l2 = new Cache(4, TestStores.prepareStore(10));
+        l2.setCostModel(new CostModel(10.0, 0.0, 0.0, 0.0, 0.0, 100.0));
+        Cache l1 = new Cache(1, new CacheLevel(l2));
+        l1.setCostModel(new CostModel(1.0, 2.0));
+
+        CacheResponse r = l1.requestData(0);
+        assertEquals(3, r.getLevel());
+        assertEquals(1.0 + 2.0 + 10.0 + 100.0, r.getLevelTime(1));
+        assertEquals(10.0 + 100.0, r.getLevelTime(2));
+        assertEquals(100.0, r.getLevelTime(3));
+
+        l1.requestData(1);
+        r = l1.requestData(0);
+        assertEquals(2, r.getLevel());
+        assertEquals(1.0 + 2.0 + 10.0, r.getTime());
+        assertEquals(1.0, l1.requestData(0).getTime());
+    }
+
+    @Test
+    void setCostModel_referenceOutputs() throws IOException {
+        StoreImage image = new StoreImage(TestStores.prepareStore(16));
+        for (int t = 1; t <= 5; t++) {
+            int[] keys = new int[64];
+            int[] data = new int[64];
+            boolean[] writes = new boolean[64];
+            int count;
+            int capacity;
+            try (TraceReader trace = new TraceReader("test_cases/Test" + t + ".txt")) {
+                capacity = trace.getCapacity();
+                count = trace.read(keys, data, writes);
+            }
+            Cache cache = new Cache(capacity, image.newView());
+            cache.setCostModel(CacheSimMain.REFERENCE_COSTS);
+            CacheSim sim = new CacheSim(cache);
+            sim.simulate(keys, data, writes, count);
+
+            List<String> gold = Files.readAllLines(Paths.get("test_cases/Gold" + t + ".txt"));
+            assertEquals(gold.get(0), "Cache Misses: " + sim.getCacheMisses());
+            assertEquals(gold.get(1), "Total Time: " + sim.getTotalSimulationTime());
+            assertEquals(gold.subList(2, gold.size()), sim.getCacheHistory());
+        }
+    }
+
+    @Test
+    void setCostModel_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> new CostModel(-1.0, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new CostModel(0.0, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new CostModel(0, 0, 0, 0, -0.5, 1));
+        Cache cache = new Cache(1, TestStores.prepareStore(2));
+        assertThrows(IllegalArgumentException.class, () -> cache.setCostModel(null));
+    }
+
+    /**
+     * getLatencyPercentile() black box unit tests
+     * 1. percentiles of a simulation's response times
+     * 2. reset() forgets the recorded times
+     */
+
+    @Test
+    void getLatencyPercentile_simulation() {
+        Cache cache = new Cache(1, TestStores.prepareStore(100));
+        cache.setCostModel(new CostModel(1.0, 0.0));
+        CacheSim sim = new CacheSim(cache);
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++) {
+            //every 100 requests: a miss on 99 costing 101,
+            //a miss on 0 costing 2, then 98 hits costing 1
+            keys[i] = i % 100 == 0 ? 99 : 0;
+        }
+        sim.simulate(keys);
+        assertEquals(1000, sim.getLatencyHistogram().getCount());
+        assertEquals(sim.getTotalSimulationTime(), sim.getLatencyHistogram().getSum(), 1e-9);
+        assertEquals(1.0, sim.getLatencyPercentile(50));
+        assertEquals(2.0, sim.getLatencyPercentile(99));
+        assertEquals(101.0, sim.getLatencyPercentile(99.9));
+        assertEquals(101.0, sim.getLatencyHistogram().getMax());
+
+        sim.reset();
+        assertEquals(0, sim.getLatencyHistogram().getCount());
+        assertEquals(0.0, sim.getLatencyPercentile(99));
+    }
+}
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+class FenwickTreeTest {
+
+    /**
+     * FenwickTree black box unit tests.
+     * 1. A new tree sums to 0.
+     * 2. Prefix and range sums match a plain array.
+     * 3. clear() resets every count.
+     */
+
+    @Test
+    void new_empty() {
+        FenwickTree tree = new FenwickTree(8);
+        assertEquals(8, tree.size());
+        assertEquals(0, tree.prefixSum(8));
+    }
+
+    @Test
+    void sums_matchArray() {
+        FenwickTree tree = new FenwickTree(37);
+        long[] counts = new long[37];
+        java.util.Random random = new java.util.Random(3);
+        for (int i = 0; i < 500; i++) {
+            int position = random.nextInt(37);
+            int delta = random.nextInt(11) - 5;
+            tree.add(position, delta);
+            counts[position] += delta;
+        }
+        for (int from = 0; from <= 37; from++) {
+            long sum = 0;
+            for (int end = from; end <= 37; end++) {
+                assertEquals(sum, tree.rangeSum(from, end));
+                if (end < 37) {
+                    sum += counts[end];
+                }
+            }
+        }
+    }
+
+    @Test
+    void clear_resets() {
+        FenwickTree tree = new FenwickTree(4);
+        tree.add(2, 5);
+        tree.clear();
+        assertEquals(0, tree.prefixSum(4));
+    }
+}
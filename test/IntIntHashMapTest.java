@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntHashMapTest {
+
+    /**
+     * get() and put() black box unit tests.
+     * 1. Get from an empty map.
+     * 2. Get a key after putting it.
+     * 3. Put an existing key replaces its value.
+     * 4. Negative and extreme keys are supported.
+     * 5. Putting more keys than the expected size grows the map.
+     */
+
+    @Test
+    void get_empty() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        assertEquals(IntIntHashMap.NO_VALUE, map.get(1), "Empty map should not contain any key.");
+        assertFalse(map.containsKey(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void put_thenGet() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        assertEquals(IntIntHashMap.NO_VALUE, map.put(7, 70), "No previous value expected.");
+        assertEquals(70, map.get(7), "Key 7 should map to 70.");
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void put_replaces() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(7, 70);
+        assertEquals(70, map.put(7, 71), "Previous value should be returned.");
+        assertEquals(71, map.get(7), "Key 7 should map to 71 after replacement.");
+        assertEquals(1, map.size(), "Replacing a value should not change size.");
+    }
+
+    @Test
+    void put_extremeKeys() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(-5, 1);
+        map.put(Integer.MIN_VALUE, 2);
+        map.put(Integer.MAX_VALUE, 3);
+        assertEquals(1, map.get(-5));
+        assertEquals(2, map.get(Integer.MIN_VALUE));
+        assertEquals(3, map.get(Integer.MAX_VALUE));
+        assertEquals(3, map.size());
+        assertEquals(2, map.remove(Integer.MIN_VALUE));
+        assertFalse(map.containsKey(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void put_grows() {
+        IntIntHashMap map = new IntIntHashMap(2);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i * 2);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 2, map.get(i), "Every key should survive growing the map.");
+        }
+    }
+
+    /**
+     * remove() black box unit tests.
+     * 1. Remove a key that does not exist.
+     * 2. Remove keys while others remain reachable.
+     * 3. Clear the map.
+     */
+
+    @Test
+    void remove_notExists() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(1, 10);
+        assertEquals(IntIntHashMap.NO_VALUE, map.remove(2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void remove_othersReachable() {
+        IntIntHashMap map = new IntIntHashMap(64);
+        for (int i = 0; i < 64; i++) {
+            map.put(i * 1024, i);
+        }
+        for (int i = 0; i < 64; i += 2) {
+            assertEquals(i, map.remove(i * 1024), "Removed key should return its value.");
+        }
+        assertEquals(32, map.size());
+        for (int i = 0; i < 64; i++) {
+            if (i % 2 == 0) {
+                assertFalse(map.containsKey(i * 1024), "Removed key should be absent.");
+            } else {
+                assertEquals(i, map.get(i * 1024), "Remaining key should still be found.");
+            }
+        }
+    }
+
+    @Test
+    void clear_empties() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(1, 10);
+        map.put(2, 20);
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1));
+        map.put(1, 11);
+        assertEquals(11, map.get(1), "Map should be usable after clear.");
+    }
+}
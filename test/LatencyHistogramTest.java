@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+class LatencyHistogramTest {
+
+    /**
+     * getValueAtPercentile() black box unit tests
+     * 1. an empty histogram reports 0
+     * 2. small integral latencies are reported exactly
+     * 3. p50, p99 and p999 of a known distribution
+     * 4. large and fractional latencies are within the precision
+     * 5. count, sum, mean, min and max are exact
+     * 6. reset() forgets every latency
+     * 7. invalid percentiles and parameters are rejected
+     */
+
+    @Test
+    void getValueAtPercentile_empty() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0.0, h.getP50());
+        assertEquals(0.0, h.getMin());
+        assertEquals(0.0, h.getMean());
+    }
+
+    @Test
+    void getValueAtPercentile_exact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 100; v++) {
+            h.record(v);
+        }
+        assertEquals(50.0, h.getP50());
+        assertEquals(99.0, h.getP99());
+        assertEquals(100.0, h.getP999());
+        assertEquals(1.0, h.getValueAtPercentile(0));
+        assertEquals(100.0, h.getValueAtPercentile(100));
+    }
+
+    @Test
+    void getValueAtPercentile_tail() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 100000; i++) {
+            if (i % 1000 == 0) {
+                h.record(500);
+            } else if (i % 100 == 0) {
+                h.record(50);
+            } else {
+                h.record(5);
+            }
+        }
+        assertEquals(5.0, h.getP50());
+        assertEquals(5.0, h.getValueAtPercentile(98.9));
+        assertEquals(5.0, h.getP99());
+        assertEquals(50.0, h.getValueAtPercentile(99.5));
+        assertEquals(500.0, h.getValueAtPercentile(99.95));
+        assertEquals(50.0, h.getP999());
+    }
+
+    @Test
+    void getValueAtPercentile_precision() {
+        LatencyHistogram h = new LatencyHistogram();
+        Random rand = new Random(5);
+        double[] values = new double[20000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(rand.nextDouble() * 25) * rand.nextDouble();
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double p : new double[] {1, 10, 50, 90, 99, 99.9}) {
+            double exact = values[(int) Math.round(p / 100 * values.length) - 1];
+            double reported = h.getValueAtPercentile(p);
+            assertTrue(reported <= exact + LatencyHistogram.DEFAULT_RESOLUTION, "p" + p);
+            assertTrue(reported >= exact * 0.999 - LatencyHistogram.DEFAULT_RESOLUTION, "p" + p);
+        }
+    }
+
+    @Test
+    void getValueAtPercentile_exactStatistics() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(0.3);
+        h.record(12345.678);
+        h.record(7.5);
+        assertEquals(3, h.getCount());
+        assertEquals(0.3 + 12345.678 + 7.5, h.getSum(), 1e-9);
+        assertEquals((0.3 + 12345.678 + 7.5) / 3, h.getMean(), 1e-9);
+        assertEquals(0.3, h.getMin());
+        assertEquals(12345.678, h.getMax());
+        assertEquals(7.5, h.getP50());
+    }
+
+    @Test
+    void getValueAtPercentile_reset() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1e9);
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0.0, h.getMax());
+        h.record(3);
+        assertEquals(3.0, h.getP999());
+    }
+
+    @Test
+    void getValueAtPercentile_invalid() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> h.getValueAtPercentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> h.getValueAtPercentile(100.5));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(0.0, 3));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(1.0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(1.0, 6));
+    }
+}
@@ -0,0 +1,245 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+class MappedBackingStoreTest {
+
+    /**
+     * fetchData() black box tests.
+     * 1. First entry from the backing store.
+     * 2. Last entry from the backing store.
+     * 3. Try to fetch data that does not exist.
+     * 4. Try to fetch from a file that does not exist.
+     * 5. Time taken matches BackingStore for every key.
+     * 6. Lines BackingStore would not match are skipped but still counted.
+     */
+
+    @Test
+    void fetchData_firstEntry() {
+        MappedBackingStore store = new MappedBackingStore(TestStores.prepareStore(10));
+        try {
+            assertEquals(0, store.fetchData(0).getData(), "Key 0 should have data 0.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void fetchData_lastEntry() {
+        MappedBackingStore store = new MappedBackingStore(TestStores.prepareStore(10));
+        try {
+            assertEquals(9, store.fetchData(9).getData(), "Key 9 should have data 9.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void fetchData_notExist() {
+        MappedBackingStore store = new MappedBackingStore(TestStores.prepareStore(10));
+        assertThrows(NotFoundException.class, () -> store.fetchData(1243));
+    }
+
+    @Test
+    void fetchData_noFile() {
+        MappedBackingStore store = new MappedBackingStore("no_such_store.txt");
+        assertThrows(NotFoundException.class, () -> store.fetchData(1));
+    }
+
+    @Test
+    void fetchData_sameTimeAsBackingStore() {
+        String file = TestStores.prepareStore(32);
+        BackingStore plain = new BackingStore(file);
+        MappedBackingStore mapped = new MappedBackingStore(file);
+        try {
+            for (int key = 0; key < 32; key++) {
+                assertEquals(plain.fetchData(key).getTimeTaken(), mapped.fetchData(key).getTimeTaken(),
+                        "Time taken should match BackingStore for key " + key);
+            }
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void fetchData_irregularLines() {
+        try {
+            File fp = File.createTempFile("store", ".txt");
+            fp.deleteOnExit();
+            PrintWriter pw = new PrintWriter(fp);
+            pw.print("garbage\n01 5\n1 7 8\n\n1 10  \r\n-2 -20\n1 11\n");
+            pw.close();
+
+            MappedBackingStore store = new MappedBackingStore(fp.getPath());
+            BackingStoreResponse resp = store.fetchData(1);
+            assertEquals(10, resp.getData(), "First well-formed line for key 1 should be used.");
+            assertEquals(5.0, resp.getTimeTaken(), "Every line up to key 1's line should be counted.");
+            assertEquals(-20, store.fetchData(-2).getData(), "Negative keys and data should be supported.");
+        } catch (IOException | NotFoundException e) {
+            fail(e.toString());
+        }
+    }
+
+    /**
+     * pushData() black box tests.
+     * 1. Update an entry and fetch it again.
+     * 2. Try to update data that does not exist.
+     * 3. A narrower value is written in place without moving other lines.
+     * 4. A wider value compacts the file and keeps every other entry.
+     * 5. After compaction, even the widest value is written in place.
+     * 6. One compaction widens every key, so later writes to any key are in place.
+     * 7. Concurrent fetches through a LockedBackingStore find every key,
+     *    before and after a compaction.
+     * 8. A compaction which cannot write its file throws, rather than
+     *    reporting the key missing.
+     */
+
+    @Test
+    void pushData_thenFetch() {
+        String file = TestStores.prepareStore(10);
+        MappedBackingStore store = new MappedBackingStore(file);
+        try {
+            store.fetchData(3);
+            store.pushData(3, 123);
+            assertEquals(123, store.fetchData(3).getData(), "Data was updated in the backing store.");
+            assertEquals(123, new BackingStore(file).fetchData(3).getData(), "Update should reach the file.");
+            assertEquals(4, store.fetchData(4).getData(), "Other data should be unchanged.");
+        } catch (NotFoundException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void pushData_notExist() {
+        MappedBackingStore store = new MappedBackingStore(TestStores.prepareStore(10));
+        assertThrows(NotFoundException.class, () -> store.pushData(1243, 789));
+    }
+
+    @Test
+    void pushData_inPlace() {
+        String file = TestStores.prepareStore(20);
+        MappedBackingStore store = new MappedBackingStore(file);
+        try {
+            long length = new File(file).length();
+            store.pushData(15, 7);
+            assertEquals(length, new File(file).length(), "In-place write should not change file length.");
+            assertEquals(7, store.fetchData(15).getData());
+            assertEquals(7, new BackingStore(file).fetchData(15).getData(), "BackingStore should read the padded value.");
+            assertEquals(16.0, store.fetchData(15).getTimeTaken(), "Line numbers should be unchanged.");
+        } catch (NotFoundException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void pushData_compacts() {
+        String file = TestStores.prepareStore(20);
+        MappedBackingStore store = new MappedBackingStore(file);
+        try {
+            store.pushData(5, 123456);
+            assertEquals(123456, store.fetchData(5).getData(), "Wider data should be written.");
+            BackingStore plain = new BackingStore(file);
+            for (int key = 0; key < 20; key++) {
+                int expected = key == 5 ? 123456 : key;
+                assertEquals(expected, plain.fetchData(key).getData(), "Key " + key + " should survive compaction.");
+                assertEquals(key + 1.0, store.fetchData(key).getTimeTaken(), "Line numbers should be unchanged.");
+            }
+        } catch (NotFoundException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void pushData_inPlaceAfterCompaction() {
+        String file = TestStores.prepareStore(20);
+        MappedBackingStore store = new MappedBackingStore(file);
+        try {
+            store.pushData(5, 10);
+            long length = new File(file).length();
+            store.pushData(5, Integer.MIN_VALUE);
+            assertEquals(length, new File(file).length(), "A compacted field should fit any int.");
+            assertEquals(Integer.MIN_VALUE, store.fetchData(5).getData());
+        } catch (NotFoundException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void pushData_compactsOnce() {
+        String file = TestStores.prepareStore(200);
+        MappedBackingStore store = new MappedBackingStore(file);
+        try {
+            store.pushData(5, 123456);
+            long length = new File(file).length();
+            for (int key = 0; key < 200; key++) {
+                store.pushData(key, Integer.MIN_VALUE + key);
+                assertEquals(length, new File(file).length(), "Key " + key + " should be written in place.");
+            }
+            BackingStore plain = new BackingStore(file);
+            for (int key = 0; key < 200; key += 7) {
+                assertEquals(Integer.MIN_VALUE + key, plain.fetchData(key).getData());
+                assertEquals(key + 1.0, store.fetchData(key).getTimeTaken(), "Line numbers should be unchanged.");
+            }
+        } catch (NotFoundException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void pushData_concurrentFetches() throws Exception {
+        int keys = 2000;
+        LockedBackingStore store = new LockedBackingStore(new MappedBackingStore(TestStores.prepareStore(keys)));
+        for (int round = 0; round < 2; round++) {
+            int expectedOffset = round == 0 ? 0 : 1000000;
+            if (round == 1) {
+                store.pushData(0, 1000000);
+                for (int key = 1; key < keys; key++) {
+                    store.pushData(key, key + 1000000);
+                }
+            }
+            ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int first = t;
+                Thread reader = new Thread(() -> {
+                    try {
+                        for (int key = first; key < keys; key += 3) {
+                            if (store.fetchData(key).getData() != key + expectedOffset) {
+                                errors.add(new AssertionError("Wrong data for key " + key));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                });
+                readers.add(reader);
+                reader.start();
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertTrue(errors.isEmpty(), () -> "Reader failed: " + errors.peek());
+        }
+    }
+
+    @Test
+    void pushData_compactionFails() throws IOException, NotFoundException {
+        File dir = Files.createTempDirectory("mapped").toFile();
+        File file = new File(dir, "store.txt");
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.println("1 1");
+        }
+        MappedBackingStore store = new MappedBackingStore(file.getPath());
+        assertEquals(1, store.fetchData(1).getData());
+        assertTrue(file.delete() && dir.delete());
+        assertThrows(UncheckedIOException.class, () -> store.pushData(1, 123456));
+    }
+}
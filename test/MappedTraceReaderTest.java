@@ -0,0 +1,200 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+class MappedTraceReaderTest {
+
+    static String ex1File = "example1.txt";
+
+    /**
+     * Prepare the backing store file for example1.
+     */
+    void prepareExample1() {
+        File fp = new File(ex1File);
+        try {
+            if (!fp.exists()) {
+                fp.createNewFile();
+            }
+            PrintWriter pw = new PrintWriter(fp);
+            for (int i = 0; i < 10; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+            pw.close();
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("trace", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Format black box unit tests.
+     * 1. The header survives a round trip.
+     * 2. Extreme keys, key jumps and data survive a round trip.
+     * 3. Files which are not binary traces are rejected.
+     * 4. A truncated request is rejected.
+     */
+
+    @Test
+    void roundTrip_header() {
+        try {
+            File file = tempFile(".trc");
+            new BinaryTraceWriter(file.getPath(), 12, "some store.txt").close();
+            try (MappedTraceReader reader = new MappedTraceReader(file.getPath())) {
+                assertEquals(12, reader.getCapacity());
+                assertEquals("some store.txt", reader.getStoreFile());
+                assertEquals(0, reader.read(new int[4], new int[4], new boolean[4]));
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    void roundTrip_extremes() {
+        int[] keys = {0, Integer.MAX_VALUE, Integer.MIN_VALUE, -1, 5, 5, Integer.MAX_VALUE};
+        int[] data = {7, Integer.MIN_VALUE, 0, Integer.MAX_VALUE, -9, 0, 0};
+        boolean[] writes = {false, true, false, true, true, false, false};
+        try {
+            File file = tempFile(".trc");
+            try (BinaryTraceWriter writer = new BinaryTraceWriter(file.getPath(), 1, "s")) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (writes[i]) {
+                        writer.writeWrite(keys[i], data[i]);
+                    } else {
+                        writer.writeRead(keys[i]);
+                    }
+                }
+            }
+            int[] readKeys = new int[10];
+            int[] readData = new int[10];
+            boolean[] readWrites = new boolean[10];
+            try (MappedTraceReader reader = new MappedTraceReader(file.getPath())) {
+                assertEquals(keys.length, reader.read(readKeys, readData, readWrites));
+            }
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(keys[i], readKeys[i]);
+                assertEquals(writes[i], readWrites[i]);
+                assertEquals(writes[i] ? data[i] : 0, readData[i]);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    void open_notBinary() {
+        assertThrows(NumberFormatException.class, () -> new MappedTraceReader("test_cases/Test1.txt"));
+    }
+
+    @Test
+    void read_truncated() {
+        try {
+            File file = tempFile(".trc");
+            try (BinaryTraceWriter writer = new BinaryTraceWriter(file.getPath(), 1, "s")) {
+                writer.writeRead(1000000);
+            }
+            //drop the last byte of the key's varint
+            java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw");
+            raf.setLength(raf.length() - 1);
+            raf.close();
+            try (MappedTraceReader reader = new MappedTraceReader(file.getPath())) {
+                assertThrows(NumberFormatException.class, () -> reader.read(new int[4], new int[4], new boolean[4]));
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Replay black box unit tests.
+     * 1. Every sample trace converts and reads back as the text reader reads it.
+     * 2. A converted trace replays in CacheSim exactly like the text trace.
+     * 3. A rewound trace replays identically.
+     */
+
+    @Test
+    void convert_sampleTraces() {
+        for (int t = 1; t <= 5; t++) {
+            String text = "test_cases/Test" + t + ".txt";
+            try {
+                File file = tempFile(".trc");
+                long total = BinaryTraceWriter.convert(text, file.getPath());
+                int[] textKeys = new int[64], textData = new int[64];
+                boolean[] textWrites = new boolean[64];
+                int[] keys = new int[64], data = new int[64];
+                boolean[] writes = new boolean[64];
+                try (TraceReader textReader = new TraceReader(text);
+                     MappedTraceReader reader = new MappedTraceReader(file.getPath())) {
+                    assertEquals(textReader.getCapacity(), reader.getCapacity());
+                    assertEquals(textReader.getStoreFile(), reader.getStoreFile());
+                    int count = textReader.read(textKeys, textData, textWrites);
+                    assertEquals(total, count);
+                    assertEquals(count, reader.read(keys, data, writes));
+                    assertArrayEquals(textKeys, keys, text);
+                    assertArrayEquals(textData, data, text);
+                    assertArrayEquals(textWrites, writes, text);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    @Test
+    void simulate_matchesText() {
+        prepareExample1();
+        try {
+            File text = tempFile(".txt");
+            PrintWriter pw = new PrintWriter(text);
+            pw.println("3 " + ex1File);
+            int[] keys = {1, 2, 12, 3, 1, 4, 5, 2, 6, 3};
+            for (int i = 0; i < keys.length; i++) {
+                pw.println(i % 3 == 1 ? keys[i] + " " + (10 * i) : Integer.toString(keys[i]));
+            }
+            pw.close();
+            File binary = tempFile(".trc");
+            BinaryTraceWriter.convert(text.getPath(), binary.getPath());
+
+            CacheSim textSim = new CacheSim(3, ex1File);
+            try (TraceSource trace = new TraceReader(text.getPath())) {
+                textSim.simulate(trace);
+            }
+            prepareExample1();
+            CacheSim binarySim = new CacheSim(3, ex1File);
+            try (TraceSource trace = new MappedTraceReader(binary.getPath())) {
+                binarySim.simulate(trace);
+            }
+            assertEquals(textSim.getCacheHistory(), binarySim.getCacheHistory());
+            assertEquals(textSim.getCacheMisses(), binarySim.getCacheMisses());
+        } catch (IOException e) {
+            fail(e);
+        }
+        prepareExample1();
+    }
+
+    @Test
+    void rewind_replays() {
+        try {
+            File binary = tempFile(".trc");
+            BinaryTraceWriter.convert("test_cases/Test3.txt", binary.getPath());
+            int[] first = new int[64], second = new int[64], data = new int[64];
+            boolean[] writes = new boolean[64];
+            try (MappedTraceReader reader = new MappedTraceReader(binary.getPath())) {
+                int count = reader.read(first, data, writes);
+                reader.rewind();
+                assertEquals(count, reader.read(second, data, writes));
+                assertArrayEquals(first, second);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+}
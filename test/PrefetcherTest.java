@@ -0,0 +1,313 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class PrefetcherTest {
+
+    /**
+     * Run a trace through a prefetcher alone, returning
+     * the number of keys predicted after the last request.
+     */
+    int observe(Prefetcher prefetcher, int[] out, int... keys) {
+        int count = 0;
+        for (int key : keys) {
+            count = prefetcher.predict(key, true, out);
+        }
+        return count;
+    }
+
+    /**
+     * predict() black box unit tests
+     * 1. next-N predicts the n keys after every key
+     * 2. next-N stops short of overflowing
+     * 3. stride predicts nothing until a stride repeats
+     * 4. stride predicts along a confirmed stride, including negative ones
+     * 5. stride stops predicting when the stride changes
+     * 6. Markov predicts the successor seen last time, following the chain
+     * 7. Markov forgets its table once full, and on reset()
+     * 8. degrees below one are rejected
+     */
+
+    @Test
+    void predict_nextN() {
+        Prefetcher p = new NextNPrefetcher(3);
+        int[] out = new int[p.getDegree()];
+        assertEquals(3, p.predict(10, true, out));
+        assertArrayEquals(new int[] {11, 12, 13}, out);
+    }
+
+    @Test
+    void predict_nextNOverflow() {
+        Prefetcher p = new NextNPrefetcher(3);
+        int[] out = new int[p.getDegree()];
+        assertEquals(1, p.predict(Integer.MAX_VALUE - 1, false, out));
+        assertEquals(Integer.MAX_VALUE, out[0]);
+        assertEquals(0, p.predict(Integer.MAX_VALUE, false, out));
+    }
+
+    @Test
+    void predict_strideUnconfirmed() {
+        Prefetcher p = new StridePrefetcher(2);
+        int[] out = new int[p.getDegree()];
+        assertEquals(0, observe(p, out, 3));
+        assertEquals(0, observe(p, out, 7));
+        assertEquals(0, observe(p, out, 7));
+    }
+
+    @Test
+    void predict_strideConfirmed() {
+        Prefetcher p = new StridePrefetcher(2);
+        int[] out = new int[p.getDegree()];
+        assertEquals(2, observe(p, out, 3, 7, 11));
+        assertArrayEquals(new int[] {15, 19}, out);
+
+        p.reset();
+        assertEquals(1, observe(p, out, 20, 15, 10, 5));
+        assertEquals(0, out[0]);
+    }
+
+    @Test
+    void predict_strideChanged() {
+        Prefetcher p = new StridePrefetcher(1);
+        int[] out = new int[p.getDegree()];
+        assertEquals(1, observe(p, out, 1, 2, 3));
+        assertEquals(0, observe(p, out, 5));
+        assertEquals(1, observe(p, out, 7));
+        assertEquals(9, out[0]);
+    }
+
+    @Test
+    void predict_markov() {
+        Prefetcher p = new MarkovPrefetcher(3, 100);
+        int[] out = new int[p.getDegree()];
+        assertEquals(0, observe(p, out, 5, 9, 2, 40));
+        assertEquals(3, observe(p, out, 5));
+        assertArrayEquals(new int[] {9, 2, 40}, out);
+
+        //the latest successor replaces the earlier one
+        assertEquals(1, observe(p, out, 2, 7, 2));
+        assertEquals(7, out[0]);
+    }
+
+    @Test
+    void predict_markovForgets() {
+        Prefetcher p = new MarkovPrefetcher(1, 2);
+        int[] out = new int[p.getDegree()];
+        observe(p, out, 1, 2);
+        assertEquals(1, observe(p, out, 1));
+        observe(p, out, 4, 5);
+        assertEquals(0, observe(p, out, 1));
+
+        p.reset();
+        observe(p, out, 8);
+        assertEquals(0, observe(p, out, 9));
+    }
+
+    @Test
+    void predict_invalidDegree() {
+        assertThrows(IllegalArgumentException.class, () -> new NextNPrefetcher(0));
+        assertThrows(IllegalArgumentException.class, () -> new StridePrefetcher(0));
+        assertThrows(IllegalArgumentException.class, () -> new MarkovPrefetcher(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new MarkovPrefetcher(1, 0));
+    }
+
+    /**
+     * setPrefetcher() black box unit tests
+     * 1. next-N turns a sequential scan's misses into prefetch hits
+     * 2. data and misses are unchanged for keys not prefetched
+     * 3. a prefetch never evicts the data of its own request, nor is charged for it
+     * 4. a prefetch evicting dirty data writes it back, and the
+     *    following miss on it is reported as pollution
+     * 5. keys missing from the backing store are not prefetched, nor disturb replacement
+     * 6. a set-associative cache prefetches within each set
+     * 7. reset() clears prefetch state
+     * 8. the same trace without a prefetcher is simulated as before
+     */
+
+    @Test
+    void setPrefetcher_sequential() {
+        String file = TestStores.prepareStore(200);
+        Cache cache = new Cache(8, file);
+        cache.setPrefetcher(new NextNPrefetcher(2));
+        CacheSim sim = new CacheSim(cache);
+        int[] keys = new int[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        sim.simulate(keys);
+
+        assertEquals(1, sim.getCacheMisses());
+        assertEquals(99, sim.getCacheHits());
+        assertEquals(101, sim.getPrefetchCount());
+        assertEquals(99, sim.getUsefulPrefetchCount());
+        assertEquals(0, sim.getPollutionCount());
+        assertEquals(99.0 / 101.0, sim.getPrefetchAccuracy(), 1e-9);
+        assertEquals(0.99, sim.getPrefetchCoverage(), 1e-9);
+        assertTrue(sim.getTotalPrefetchTime() > 0);
+        //prefetch time is not charged to the requests
+        assertEquals(1.0, sim.getTotalSimulationTime(), 1e-9);
+
+        CacheSim plain = new CacheSim(8, file);
+        plain.simulate(keys);
+        assertEquals(100, plain.getCacheMisses());
+        assertEquals(0, plain.getPrefetchCount());
+        assertEquals(0.0, plain.getPrefetchAccuracy());
+        assertEquals(0.0, plain.getPrefetchCoverage());
+    }
+
+    @Test
+    void setPrefetcher_dataUnchanged() throws NotFoundException {
+        String file = TestStores.prepareStore(50);
+        Cache cache = new Cache(4, file);
+        Cache plain = new Cache(4, file);
+        cache.setPrefetcher(new MarkovPrefetcher());
+        int[] keys = {3, 9, 3, 9, 17, 3, 9, 17, 40, 3};
+        for (int key : keys) {
+            CacheResponse r = cache.requestData(key);
+            assertEquals(key, r.getData().getKey());
+            assertEquals(key, r.getData().getData());
+        }
+        for (int key : keys) {
+            assertEquals(key, plain.requestData(key).getData().getData());
+        }
+        assertEquals(900, cache.writeData(9, 900).getData().getData());
+        assertEquals(900, cache.requestData(9).getData().getData());
+    }
+
+    @Test
+    void setPrefetcher_demandKept() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache cache = new Cache(1, file);
+        cache.setPrefetcher(new NextNPrefetcher(1));
+        CacheResponse r = cache.requestData(5);
+        assertTrue(r.getMiss());
+        assertEquals(0, r.getPrefetches());
+        assertEquals(0.0, r.getPrefetchTime(), "A prefetch dropped for want of room should not be fetched.");
+        assertTrue(cache.findData(5) >= 0);
+        assertFalse(cache.requestData(5).getMiss());
+    }
+
+    @Test
+    void setPrefetcher_pollution() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache cache = new Cache(2, new BackingStore(file), WritePolicy.WRITE_BACK);
+        cache.setPrefetcher(new NextNPrefetcher(1));
+
+        CacheResponse r = cache.writeData(3, 99);
+        assertTrue(r.getMiss());
+        assertEquals(1, r.getPrefetches());
+        assertEquals(0.0, r.getWriteTime());
+
+        //4 was prefetched; prefetching 5 evicts the dirty 3
+        r = cache.requestData(4);
+        assertFalse(r.getMiss());
+        assertTrue(r.getPrefetchHit());
+        assertEquals(1, r.getPrefetches());
+        assertTrue(r.getWriteTime() > 0);
+        assertTrue(cache.findData(3) < 0);
+
+        r = cache.requestData(3);
+        assertTrue(r.getMiss());
+        assertTrue(r.getPollution());
+        assertFalse(r.getPrefetchHit());
+        assertEquals(99, r.getData().getData());
+
+        //4 was prefetched again; a second hit on it is not counted again
+        assertTrue(cache.requestData(4).getPrefetchHit());
+        r = cache.requestData(4);
+        assertFalse(r.getMiss());
+        assertFalse(r.getPrefetchHit());
+    }
+
+    @Test
+    void setPrefetcher_missingKeys() throws NotFoundException {
+        String file = TestStores.prepareStore(10);
+        Cache cache = new Cache(4, file);
+        cache.setPrefetcher(new NextNPrefetcher(3));
+        CacheResponse r = cache.requestData(8);
+        assertEquals(1, r.getPrefetches());
+        assertEquals(2, cache.getSize());
+
+        //predictions missing from the store leave replacement untouched
+        int[] keys = new int[300];
+        Random random = new Random(5);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(10);
+        }
+        for (ReplacementPolicyType type : ReplacementPolicyType.values()) {
+            Cache plain = new Cache(3, file);
+            plain.setReplacementPolicy(type);
+            Cache predicting = new Cache(3, file);
+            predicting.setReplacementPolicy(type);
+            predicting.setPrefetcher(new Prefetcher() {
+                public int getDegree() {
+                    return 1;
+                }
+
+                public int predict(int key, boolean miss, int[] out) {
+                    out[0] = key + 100;
+                    return 1;
+                }
+
+                public void reset() {
+                }
+            });
+            CacheSim expected = new CacheSim(plain);
+            expected.simulate(keys);
+            CacheSim actual = new CacheSim(predicting);
+            actual.simulate(keys);
+            assertEquals(expected.getCacheHistory(), actual.getCacheHistory(), type.toString());
+        }
+    }
+
+    @Test
+    void setPrefetcher_setAssociative() throws NotFoundException {
+        String file = TestStores.prepareStore(40);
+        SetAssociativeCache cache = new SetAssociativeCache(8, 2, file);
+        cache.setPrefetcher(new NextNPrefetcher(4));
+        CacheSim sim = new CacheSim(cache);
+        int[] keys = new int[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        sim.simulate(keys);
+        assertEquals(0, sim.getFailureCount());
+        assertTrue(sim.getCacheMisses() < 8);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, cache.requestData(i).getData().getData());
+        }
+    }
+
+    @Test
+    void setPrefetcher_reset() throws NotFoundException {
+        String file = TestStores.prepareStore(20);
+        Cache cache = new Cache(4, file);
+        cache.setPrefetcher(new StridePrefetcher(1));
+        cache.requestData(1);
+        cache.requestData(3);
+        assertEquals(1, cache.requestData(5).getPrefetches());
+        cache.reset();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.requestData(7).getPrefetches());
+        assertTrue(cache.requestData(9).getMiss());
+    }
+
+    @Test
+    void setPrefetcher_removed() {
+        String file = TestStores.prepareStore(20);
+        int[] keys = {1, 2, 3, 1, 2, 3, 4, 5, 1};
+        CacheSim plain = new CacheSim(3, file);
+        plain.simulate(keys);
+
+        Cache cache = new Cache(3, file);
+        cache.setPrefetcher(new NextNPrefetcher(2));
+        cache.setPrefetcher(null);
+        assertNull(cache.getPrefetcher());
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(keys);
+        assertEquals(plain.getCacheMisses(), sim.getCacheMisses());
+        assertEquals(plain.getCacheHistory(), sim.getCacheHistory());
+        assertEquals(plain.getTotalSimulationTime(), sim.getTotalSimulationTime());
+    }
+}
@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+
+class ReplacementPolicyTest {
+
+    static String ex1File = "example1.txt";
+
+    /**
+     * Prepare the backing store file for example1.
+     */
+    void prepareExample1() {
+        File fp = new File(ex1File);
+        try {
+            if (!fp.exists()) {
+                fp.createNewFile();
+            }
+            PrintWriter pw = new PrintWriter(fp);
+            for (int i = 0; i < 10; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+            pw.close();
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    Cache cacheWith(int capacity, ReplacementPolicyType type) {
+        Cache cache = new Cache(capacity, ex1File);
+        cache.setReplacementPolicy(type);
+        return cache;
+    }
+
+    CacheSim simulate(Cache cache, int[] keys) {
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(keys);
+        return sim;
+    }
+
+    /**
+     * Eviction black box unit tests, one per policy.
+     * 1. FIFO evicts the first item installed, even if recently accessed.
+     * 2. LFU evicts the least frequently used item.
+     * 3. LFU breaks ties by evicting the least recently used.
+     * 4. CLOCK gives referenced items a second chance.
+     * 5. ARC keeps an item requested twice through a scan.
+     * 6. ARC grows its recency target when a scanned key returns.
+     * 7. Random eviction is repeatable for a fixed seed.
+     */
+
+    @Test
+    void fifo_ignoresAccess() {
+        prepareExample1();
+        CacheSim sim = simulate(cacheWith(2, ReplacementPolicyType.FIFO), new int[]{1, 2, 1, 3});
+        assertEquals("(3,3) (2,2)", sim.cacheToString(), "Key 1 was installed first.");
+    }
+
+    @Test
+    void lfu_evictsLeastFrequent() {
+        prepareExample1();
+        Cache cache = cacheWith(2, ReplacementPolicyType.LFU);
+        CacheSim sim = simulate(cache, new int[]{1, 1, 2, 3});
+        assertEquals("(1,1) (3,3)", sim.cacheToString(), "Key 2 was requested least often.");
+        assertEquals(1, cache.getRank(3), "Key 3 would be evicted next.");
+        assertEquals(0, cache.getRank(1));
+    }
+
+    @Test
+    void lfu_tiesLeastRecent() {
+        prepareExample1();
+        CacheSim sim = simulate(cacheWith(2, ReplacementPolicyType.LFU), new int[]{1, 2, 2, 1, 3});
+        assertEquals("(1,1) (3,3)", sim.cacheToString(), "Keys 1 and 2 tie, and key 2 was used less recently.");
+    }
+
+    @Test
+    void clock_secondChance() {
+        prepareExample1();
+        CacheSim sim = simulate(cacheWith(3, ReplacementPolicyType.CLOCK), new int[]{1, 2, 3, 4, 2, 5});
+        assertEquals("(4,4) (2,2) (5,5)", sim.cacheToString(), "Key 2 was referenced again and should survive.");
+    }
+
+    @Test
+    void arc_scanResistant() {
+        prepareExample1();
+        CacheSim arc = simulate(cacheWith(2, ReplacementPolicyType.ARC), new int[]{1, 1, 2, 3, 4, 5, 1});
+        CacheSim lru = simulate(cacheWith(2, ReplacementPolicyType.LRU), new int[]{1, 1, 2, 3, 4, 5, 1});
+        assertEquals(5, arc.getCacheMisses(), "Key 1 should survive the scan under ARC.");
+        assertEquals(6, lru.getCacheMisses(), "Key 1 should not survive the scan under LRU.");
+    }
+
+    @Test
+    void arc_adaptsTarget() {
+        prepareExample1();
+        Cache cache = cacheWith(2, ReplacementPolicyType.ARC);
+        CacheSim sim = simulate(cache, new int[]{1, 1, 2, 3, 4, 5});
+        ArcPolicy policy = (ArcPolicy) cache.getReplacementPolicy();
+        assertEquals(0, policy.getTarget(0));
+        sim.simulate(new int[]{4});
+        assertEquals(1, policy.getTarget(0), "Key 4 was remembered as recently evicted from T1.");
+        assertEquals(-1, cache.findData(1), "With T1 at its target, T2 gives up its item.");
+    }
+
+    @Test
+    void random_repeatable() {
+        prepareExample1();
+        int[] keys = {1, 2, 3, 4, 5, 6, 1, 2, 7, 8, 9, 0, 3, 5};
+        Cache cache = cacheWith(3, ReplacementPolicyType.RANDOM);
+        CacheSim first = simulate(cache, keys);
+        CacheSim second = simulate(cacheWith(3, ReplacementPolicyType.RANDOM), keys);
+        assertEquals(first.getCacheHistory(), second.getCacheHistory());
+        assertEquals(0, cache.getRank(cache.getContents().get(0).getKey()));
+    }
+
+    /**
+     * Cache integration black box unit tests.
+     * 1. Policies choose victims within a set of a set-associative cache.
+     * 2. Switching policies keeps the cached items.
+     * 3. Resetting the cache resets the policy.
+     * 4. Every policy keeps the cache consistent over a long random trace.
+     */
+
+    @Test
+    void setAssociative_fifo() {
+        prepareExample1();
+        SetAssociativeCache cache = new SetAssociativeCache(4, 2, ex1File);
+        cache.setReplacementPolicy(ReplacementPolicyType.FIFO);
+        CacheSim sim = new CacheSim(cache);
+        //keys 1, 3, 5 all map to set 1 (indices 2 and 3)
+        sim.simulate(new int[]{1, 3, 1, 5});
+        assertEquals("() () (5,5) (3,3)", sim.cacheToString(), "Key 1 was installed first in set 1.");
+    }
+
+    @Test
+    void setReplacementPolicy_keepsContents() {
+        prepareExample1();
+        Cache cache = new Cache(3, ex1File);
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(new int[]{1, 2, 3});
+        cache.setReplacementPolicy(ReplacementPolicyType.LFU);
+        assertEquals(3, cache.getSize());
+        sim.simulate(new int[]{1, 2, 3});
+        assertEquals(3, sim.getCacheMisses(), "Cached items should still hit after switching policy.");
+    }
+
+    @Test
+    void reset_clearsPolicy() {
+        prepareExample1();
+        Cache cache = new Cache(2, ex1File);
+        cache.setReplacementPolicy(ReplacementPolicyType.LFU);
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(new int[]{1, 1, 1});
+        cache.reset();
+        sim.simulate(new int[]{2, 1, 3});
+        assertEquals("(3,3) (1,1)", sim.cacheToString(), "Key 1's old requests should be forgotten.");
+    }
+
+    @Test
+    void allPolicies_consistent() {
+        prepareExample1();
+        Random random = new Random(7);
+        int[] keys = new int[5000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(10);
+        }
+        for (ReplacementPolicyType type : ReplacementPolicyType.values()) {
+            for (int ways : new int[]{1, 2, 6}) {
+                SetAssociativeCache cache = new SetAssociativeCache(6, ways, ex1File);
+                cache.setReplacementPolicy(type);
+                try {
+                    for (int key : keys) {
+                        assertEquals(key, cache.requestData(key).getData().getKey());
+                    }
+                } catch (NotFoundException e) {
+                    fail("Data was not found in the backing store but should be.");
+                }
+                ArrayList<CacheItem> contents = cache.getContents();
+                for (int i = 0; i < contents.size(); i++) {
+                    CacheItem item = contents.get(i);
+                    if (item != null) {
+                        assertEquals(i, cache.findData(item.getKey()), type + " lost track of key " + item.getKey());
+                        assertTrue(cache.getRank(item.getKey()) >= 0);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+class SetAssociativeCacheTest {
+
+    static String ex1File = "example1.txt";
+
+    /**
+     * Prepare the backing store file for example1.
+     */
+    void prepareExample1() {
+        File fp = new File(ex1File);
+        try {
+            if (!fp.exists()) {
+                fp.createNewFile();
+            }
+            PrintWriter pw = new PrintWriter(fp);
+            for (int i = 0; i < 10; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+            pw.close();
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Constructor black box unit tests.
+     * 1. Ways that do not divide the capacity are rejected.
+     * 2. Sets are derived from capacity and ways.
+     */
+
+    @Test
+    void constructor_badWays() {
+        prepareExample1();
+        assertThrows(IllegalArgumentException.class, () -> new SetAssociativeCache(6, 4, ex1File));
+        assertThrows(IllegalArgumentException.class, () -> new SetAssociativeCache(4, 0, ex1File));
+    }
+
+    @Test
+    void constructor_sets() {
+        prepareExample1();
+        SetAssociativeCache cache = new SetAssociativeCache(8, 2, ex1File);
+        assertEquals(2, cache.getWays());
+        assertEquals(4, cache.getSets());
+        assertEquals(8, cache.getCapacity());
+    }
+
+    /**
+     * Direct-mapped (1-way) black box unit tests.
+     * 1. Keys are installed at their value modulo the capacity.
+     * 2. A conflicting key evicts the only item in its set, even when other sets are empty.
+     * 3. The sample traces reproduce their direct-mapped gold outputs.
+     */
+
+    @Test
+    void directMapped_placement() {
+        prepareExample1();
+        CacheSim sim = new CacheSim(new SetAssociativeCache(4, 1, ex1File));
+        sim.simulate(new int[]{1, 2, 7});
+        assertEquals("() (1,1) (2,2) (7,7)", sim.cacheToString(), "Keys should sit at key mod 4.");
+    }
+
+    @Test
+    void directMapped_conflict() {
+        prepareExample1();
+        SetAssociativeCache cache = new SetAssociativeCache(4, 1, ex1File);
+        CacheSim sim = new CacheSim(cache);
+        sim.simulate(new int[]{1, 5, 1});
+        assertEquals(3, sim.getCacheMisses(), "Keys 1 and 5 conflict in a direct-mapped cache of 4.");
+        assertEquals(1, cache.getSize(), "Only one set should be in use.");
+        assertEquals("() (1,1) () ()", sim.cacheToString());
+    }
+
+    @Test
+    void directMapped_goldOutputs() throws IOException {
+        StoreImage image = new StoreImage(TestStores.prepareStore(16));
+        for (int t = 1; t <= 5; t++) {
+            int[] keys = new int[64];
+            int[] data = new int[64];
+            boolean[] writes = new boolean[64];
+            int count;
+            int capacity;
+            try (TraceReader trace = new TraceReader("test_cases/Test" + t + ".txt")) {
+                capacity = trace.getCapacity();
+                count = trace.read(keys, data, writes);
+            }
+            SetAssociativeCache cache = new SetAssociativeCache(capacity, 1, image.newView());
+            cache.setCostModel(CacheSimMain.REFERENCE_COSTS);
+            CacheSim sim = new CacheSim(cache);
+            sim.simulate(keys, data, writes, count);
+
+            List<String> gold = Files.readAllLines(Paths.get("test_cases/Gold" + t + "-DM.txt"));
+            assertEquals(gold.get(0), "Cache Misses: " + sim.getCacheMisses(), "Test" + t);
+            assertEquals(gold.get(1), "Total Time: " + sim.getTotalSimulationTime(), "Test" + t);
+            assertEquals(gold.subList(2, gold.size()), sim.getCacheHistory(), "Test" + t);
+        }
+    }
+
+    /**
+     * 2-way black box unit tests.
+     * 1. The least recently used item of the full set is evicted.
+     * 2. Ranks are relative to the set.
+     * 3. A fully associative configuration matches Cache.
+     * 4. Invalidating an item frees its way without evicting another.
+     * 5. Wide sets that span several words of the index bitmap behave
+     *    as a separate LRU cache per set, before and after a reset.
+     */
+
+    @Test
+    void twoWay_evictsSetLru() {
+        prepareExample1();
+        SetAssociativeCache cache = new SetAssociativeCache(4, 2, ex1File);
+        CacheSim sim = new CacheSim(cache);
+        //keys 1, 3, 5 all map to set 1 (indices 2 and 3)
+        sim.simulate(new int[]{1, 3, 1, 5});
+        assertEquals("() () (1,1) (5,5)", sim.cacheToString(), "Key 3 was least recently used in set 1.");
+        assertEquals(0, cache.getRank(5));
+        assertEquals(1, cache.getRank(1));
+        assertEquals(-1, cache.getRank(3));
+    }
+
+    @Test
+    void twoWay_writeData() {
+        prepareExample1();
+        SetAssociativeCache cache = new SetAssociativeCache(4, 2, new BackingStore(ex1File), WritePolicy.WRITE_BACK);
+        try {
+            cache.writeData(1, 100);
+            cache.requestData(3);
+            cache.requestData(5);
+            assertEquals(100, new BackingStore(ex1File).fetchData(1).getData(), "Evicted dirty data should be written back.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+        prepareExample1();
+    }
+
+    @Test
+    void fullyAssociative_matchesCache() {
+        prepareExample1();
+        int[] keys = {1, 2, 3, 4, 1, 5, 2, 6, 7, 1, 8, 9, 3};
+        CacheSim setSim = new CacheSim(new SetAssociativeCache(4, 4, ex1File));
+        CacheSim sim = new CacheSim(4, ex1File);
+        setSim.simulate(keys);
+        sim.simulate(keys);
+        assertEquals(sim.getCacheMisses(), setSim.getCacheMisses());
+        assertEquals(sim.getCacheHistory(), setSim.getCacheHistory());
+    }
+
+    @Test
+    void twoWay_invalidateFreesWay() {
+        prepareExample1();
+        SetAssociativeCache cache = new SetAssociativeCache(4, 2, ex1File);
+        try {
+            cache.requestData(1);
+            cache.requestData(3);
+            assertTrue(cache.invalidate(1));
+            cache.requestData(5);
+            assertEquals(2, cache.findData(5), "Key 5 should take the way key 1 left.");
+            assertEquals(3, cache.findData(3), "Key 3 should not be evicted.");
+        } catch (NotFoundException e) {
+            fail("Data was not found in the backing store but should be.");
+        }
+    }
+
+    @Test
+    void wideSets_matchCachePerSet() throws NotFoundException {
+        String file = TestStores.prepareStore(400);
+        SetAssociativeCache cache = new SetAssociativeCache(130, 65, new BackingStore(file));
+        for (int round = 0; round < 2; round++) {
+            Cache[] perSet = {new Cache(65, file), new Cache(65, file)};
+            Random rand = new Random(round);
+            for (int i = 0; i < 3000; i++) {
+                int key = rand.nextInt(400);
+                boolean miss = cache.requestData(key).getMiss();
+                assertEquals(perSet[key % 2].requestData(key).getMiss(), miss, "Request " + i);
+                int idx = cache.findData(key);
+                assertTrue(idx >= 65 * (key % 2) && idx < 65 * (key % 2 + 1), "Key " + key + " should be in its set.");
+            }
+            assertEquals(130, cache.getSize());
+            cache.reset();
+        }
+    }
+}
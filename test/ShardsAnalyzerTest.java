@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class ShardsAnalyzerTest {
+
+    /**
+     * Build a skewed trace: most accesses go to a small set of hot keys.
+     */
+    int[] skewedTrace(int length, int keys, long seed) {
+        Random random = new Random(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = random.nextInt(4) == 0 ? random.nextInt(keys) : random.nextInt(keys / 20);
+        }
+        return trace;
+    }
+
+    /**
+     * Constructor black box unit tests.
+     * 1. Rates outside (0, 1] are rejected.
+     * 2. Key limits below 1 are rejected.
+     */
+
+    @Test
+    void constructor_badRate() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardsAnalyzer(0.0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardsAnalyzer(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new ShardsAnalyzer(Double.NaN));
+    }
+
+    @Test
+    void constructor_badLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardsAnalyzer(0.5, 0));
+    }
+
+    /**
+     * getCurve() black box unit tests.
+     * 1. Sampling every key reproduces the exact curve with no error.
+     * 2. A 10% sample estimates the exact curve closely.
+     * 3. A key limit bounds the keys tracked and lowers the rate.
+     * 4. Many distinct keys coarsen the curve instead of growing it without bound.
+     */
+
+    @Test
+    void getCurve_fullRateExact() {
+        int[] keys = skewedTrace(20000, 2000, 1);
+        ShardsAnalyzer shards = new ShardsAnalyzer(1.0);
+        shards.analyze(keys);
+        StackDistanceAnalyzer exact = new StackDistanceAnalyzer();
+        exact.analyze(keys);
+        MissRatioCurve estimate = shards.getCurve();
+        MissRatioCurve curve = exact.getCurve();
+        for (int capacity = 0; capacity <= 2000; capacity += 50) {
+            assertEquals(curve.getMisses(capacity), estimate.getMisses(capacity), 1e-6, "Capacity " + capacity);
+            assertEquals(0.0, estimate.getStandardError(capacity));
+        }
+    }
+
+    @Test
+    void getCurve_sampledClose() {
+        int[] keys = skewedTrace(400000, 40000, 2);
+        ShardsAnalyzer shards = new ShardsAnalyzer(0.1);
+        shards.analyze(keys);
+        StackDistanceAnalyzer exact = new StackDistanceAnalyzer();
+        exact.analyze(keys);
+        MissRatioCurve estimate = shards.getCurve();
+        MissRatioCurve curve = exact.getCurve();
+        assertEquals(keys.length, estimate.getAccesses());
+        for (int capacity = 500; capacity <= 40000; capacity += 500) {
+            assertEquals(curve.getMissRatio(capacity), estimate.getMissRatio(capacity), 0.03, "Capacity " + capacity);
+            assertTrue(estimate.getStandardError(capacity) > 0.0);
+        }
+    }
+
+    @Test
+    void getCurve_keyLimit() {
+        int[] keys = skewedTrace(400000, 40000, 3);
+        ShardsAnalyzer shards = new ShardsAnalyzer(1.0, 1000);
+        shards.analyze(keys);
+        assertTrue(shards.getSampledKeys() <= 1000);
+        assertTrue(shards.getRate() < 0.05, "Keeping 1000 of 40000 keys needs a rate near 2.5%.");
+        StackDistanceAnalyzer exact = new StackDistanceAnalyzer();
+        exact.analyze(keys);
+        MissRatioCurve estimate = shards.getCurve();
+        MissRatioCurve curve = exact.getCurve();
+        for (int capacity = 2000; capacity <= 40000; capacity += 2000) {
+            assertEquals(curve.getMissRatio(capacity), estimate.getMissRatio(capacity), 0.05, "Capacity " + capacity);
+        }
+    }
+
+    @Test
+    void getCurve_coarsens() {
+        int[] keys = new int[60000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i % 20000;
+        }
+        ShardsAnalyzer shards = new ShardsAnalyzer(1.0);
+        shards.analyze(keys);
+        MissRatioCurve estimate = shards.getCurve();
+        assertTrue(estimate.getStep() > 1);
+        assertTrue(estimate.getMaxCapacity() / estimate.getStep() <= ShardsAnalyzer.MAX_POINTS);
+        assertEquals(1.0, estimate.getMissRatio(19000), 1e-9, "A loop of 20000 keys always misses below 20000.");
+        assertEquals(20000.0 / 60000, estimate.getMissRatio(estimate.getMaxCapacity()), 1e-9);
+    }
+}
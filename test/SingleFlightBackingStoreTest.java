@@ -0,0 +1,247 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightBackingStoreTest {
+
+    /**
+     * A store which counts its fetches and holds each one
+     * until released, so that fetches can be made to overlap.
+     */
+    static class GatedStore extends BackingStore {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BackingStore store;
+
+        GatedStore(BackingStore store) {
+            super(store.getFileName());
+            this.store = store;
+        }
+
+        @Override
+        public BackingStoreResponse fetchData(int key) throws NotFoundException {
+            fetches.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return store.fetchData(key);
+        }
+
+        @Override
+        public BackingStoreResponse pushData(int key, int newData) throws NotFoundException {
+            return store.pushData(key, newData);
+        }
+    }
+
+    /**
+     * Start threads which each run fetch once, and return them once
+     * the first fetch is being held by the gated store.
+     */
+    List<Thread> startFetches(int threads, GatedStore gate, Runnable fetch) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(fetch);
+            workers.add(worker);
+            worker.start();
+        }
+        assertTrue(gate.started.await(10, TimeUnit.SECONDS));
+        return workers;
+    }
+
+    /**
+     * Wait for the followers to join the leader's fetch, then release it.
+     */
+    void releaseWhenCoalesced(SingleFlightBackingStore store, GatedStore gate, int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (store.getCoalescedCount() < followers && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        gate.release.countDown();
+    }
+
+    /**
+     * fetchData() black box unit tests
+     * 1. sequential fetches each read the store and are charged its time
+     * 2. concurrent fetches of one key read the store once; only the leader is charged
+     * 3. a missing key fails the leader and every follower
+     * 4. fetches of different keys do not coalesce
+     */
+
+    @Test
+    void fetchData_sequential() throws NotFoundException {
+        SingleFlightBackingStore store = new SingleFlightBackingStore(new BackingStore(TestStores.prepareStore(10)));
+        assertEquals(4.0, store.fetchData(3).getTimeTaken());
+        assertEquals(4.0, store.fetchData(3).getTimeTaken(), "Nothing should be cached between fetches.");
+        assertEquals(2, store.getLoadCount());
+        assertEquals(0, store.getCoalescedCount());
+    }
+
+    @Test
+    void fetchData_coalesced() throws InterruptedException {
+        int threads = 8;
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        SingleFlightBackingStore store = new SingleFlightBackingStore(gate);
+        ConcurrentLinkedQueue<BackingStoreResponse> responses = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        List<Thread> workers = startFetches(threads, gate, () -> {
+            try {
+                responses.add(store.fetchData(7));
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        releaseWhenCoalesced(store, gate, threads - 1);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(errors.isEmpty(), () -> "Fetch failed: " + errors.peek());
+        assertEquals(1, gate.fetches.get(), "The store should be read once.");
+        assertEquals(1, store.getLoadCount());
+        assertEquals(threads - 1, store.getCoalescedCount());
+        double total = 0.0;
+        for (BackingStoreResponse response : responses) {
+            assertEquals(7, response.getData());
+            total += response.getTimeTaken();
+        }
+        assertEquals(threads, responses.size());
+        assertEquals(8.0, total, "Only the leader should be charged the scan.");
+    }
+
+    @Test
+    void fetchData_notFound() throws InterruptedException {
+        int threads = 4;
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        SingleFlightBackingStore store = new SingleFlightBackingStore(gate);
+        AtomicInteger notFound = new AtomicInteger();
+
+        List<Thread> workers = startFetches(threads, gate, () -> {
+            try {
+                store.fetchData(42);
+            } catch (NotFoundException e) {
+                notFound.incrementAndGet();
+            }
+        });
+        releaseWhenCoalesced(store, gate, threads - 1);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads, notFound.get(), "Every waiting thread should see the key is missing.");
+        assertEquals(1, gate.fetches.get());
+    }
+
+    @Test
+    void fetchData_differentKeys() throws InterruptedException {
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        SingleFlightBackingStore store = new SingleFlightBackingStore(gate);
+        AtomicInteger next = new AtomicInteger();
+
+        List<Thread> workers = startFetches(3, gate, () -> {
+            try {
+                store.fetchData(next.getAndIncrement());
+            } catch (NotFoundException e) {
+                fail();
+            }
+        });
+        gate.release.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(3, gate.fetches.get());
+        assertEquals(0, store.getCoalescedCount());
+    }
+
+    /**
+     * pushData() black box unit tests
+     * 1. pushes reach the wrapped store
+     * 2. a fetch after a push reads the store again rather than joining an older fetch
+     */
+
+    @Test
+    void pushData_passesThrough() throws IOException, NotFoundException {
+        StoreView view = new StoreImage(TestStores.prepareStore(10)).newView();
+        SingleFlightBackingStore store = new SingleFlightBackingStore(view);
+        assertEquals(3.0, store.pushData(2, 20).getTimeTaken());
+        assertEquals(20, view.fetchData(2).getData());
+    }
+
+    @Test
+    void pushData_dropsFetchInFlight() throws Exception {
+        StoreView view = new StoreImage(TestStores.prepareStore(10)).newView();
+        GatedStore gate = new GatedStore(new LockedBackingStore(view));
+        SingleFlightBackingStore store = new SingleFlightBackingStore(gate);
+
+        List<Thread> workers = startFetches(1, gate, () -> {
+            try {
+                store.fetchData(5);
+            } catch (NotFoundException e) {
+                fail();
+            }
+        });
+        store.pushData(5, 50);
+        AtomicInteger lateData = new AtomicInteger();
+        Thread late = new Thread(() -> {
+            try {
+                lateData.set(store.fetchData(5).getData());
+            } catch (NotFoundException e) {
+                lateData.set(-1);
+            }
+        });
+        late.start();
+        gate.release.countDown();
+        late.join();
+        workers.get(0).join();
+        assertEquals(50, lateData.get(), "A fetch after a push should see the pushed data.");
+        assertEquals(2, gate.fetches.get(), "A fetch after a push should not join an older fetch.");
+        assertEquals(0, store.getCoalescedCount());
+    }
+
+    /**
+     * ClockCache black box unit tests
+     * 1. a burst of concurrent misses on one hot key reads the store once
+     */
+
+    @Test
+    void clockCache_hotKeyBurst() throws InterruptedException {
+        int threads = 8;
+        GatedStore gate = new GatedStore(new BackingStore(TestStores.prepareStore(10)));
+        ClockCache cache = new ClockCache(4, gate);
+        ConcurrentLinkedQueue<CacheResponse> responses = new ConcurrentLinkedQueue<>();
+
+        List<Thread> workers = startFetches(threads, gate, () -> {
+            try {
+                responses.add(cache.requestData(9));
+            } catch (NotFoundException e) {
+                fail();
+            }
+        });
+        releaseWhenCoalesced(cache.getBackingStore(), gate, threads - 1);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(1, gate.fetches.get(), "The hot key should be read from the store once.");
+        assertEquals(threads, responses.size());
+        double total = 0.0;
+        for (CacheResponse response : responses) {
+            assertTrue(response.getMiss());
+            assertEquals(9, response.getData().getData());
+            total += response.getTime();
+        }
+        assertEquals(10.0, total, "The scan should be charged once.");
+        assertEquals(1, cache.getSize());
+    }
+}
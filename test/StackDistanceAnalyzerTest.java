@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+class StackDistanceAnalyzerTest {
+
+    static String ex1File = "example1.txt";
+
+    /**
+     * Prepare the backing store file for example1.
+     */
+    void prepareExample1() {
+        File fp = new File(ex1File);
+        try {
+            if (!fp.exists()) {
+                fp.createNewFile();
+            }
+            PrintWriter pw = new PrintWriter(fp);
+            for (int i = 0; i < 10; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+            pw.close();
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * access() black box unit tests.
+     * 1. First accesses have no distance.
+     * 2. Distance counts distinct keys, not accesses, in between.
+     */
+
+    @Test
+    void access_cold() {
+        StackDistanceAnalyzer analyzer = new StackDistanceAnalyzer();
+        assertEquals(-1, analyzer.access(1));
+        assertEquals(-1, analyzer.access(2));
+        assertEquals(2, analyzer.getColdMisses());
+    }
+
+    @Test
+    void access_distinctKeys() {
+        StackDistanceAnalyzer analyzer = new StackDistanceAnalyzer();
+        analyzer.analyze(new int[]{1, 2, 3, 2, 2});
+        assertEquals(2, analyzer.access(1), "Keys 2 and 3 were accessed since key 1.");
+        assertEquals(0, analyzer.access(1));
+    }
+
+    /**
+     * getCurve() black box unit tests.
+     * 1. An empty trace has a flat curve.
+     * 2. The curve matches a CacheSim run for every capacity.
+     * 3. The curve stays exact when the analyzer compacts over a long trace.
+     */
+
+    @Test
+    void getCurve_empty() {
+        MissRatioCurve curve = new StackDistanceAnalyzer().getCurve();
+        assertEquals(0, curve.getMaxCapacity());
+        assertEquals(0.0, curve.getMisses(5));
+        assertEquals(0.0, curve.getMissRatio(5));
+    }
+
+    @Test
+    void getCurve_matchesCacheSim() {
+        prepareExample1();
+        Random random = new Random(5);
+        int[] keys = new int[300];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(10);
+        }
+        StackDistanceAnalyzer analyzer = new StackDistanceAnalyzer();
+        analyzer.analyze(keys);
+        MissRatioCurve curve = analyzer.getCurve();
+        assertEquals(10, curve.getMaxCapacity());
+        for (int capacity = 1; capacity <= 11; capacity++) {
+            CacheSim sim = new CacheSim(capacity, ex1File);
+            sim.simulate(keys);
+            assertEquals(sim.getCacheMisses(), curve.getMisses(capacity), "Capacity " + capacity);
+        }
+    }
+
+    @Test
+    void getCurve_compacts() {
+        Random random = new Random(9);
+        int[] keys = new int[20000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(50);
+        }
+        StackDistanceAnalyzer small = new StackDistanceAnalyzer(1);
+        small.analyze(keys);
+        StackDistanceAnalyzer large = new StackDistanceAnalyzer(keys.length);
+        large.analyze(keys);
+        for (int capacity = 0; capacity <= 50; capacity++) {
+            assertEquals(large.getCurve().getMisses(capacity), small.getCurve().getMisses(capacity));
+        }
+        assertEquals(50.0, small.getCurve().getMisses(50), "Only cold misses remain once every key fits.");
+    }
+}
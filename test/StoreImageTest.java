@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+class StoreImageTest {
+
+    /**
+     * StoreView.fetchData() black box unit tests
+     * 1. data and time match BackingStore for every key
+     * 2. missing keys, malformed lines and unparsable data are not found, as in BackingStore
+     * 3. only the first line for a duplicated key counts
+     */
+
+    @Test
+    void fetchData_matchesBackingStore() throws IOException, NotFoundException {
+        String storeFile = TestStores.prepareStore("0 10", "1 11", "2 12", "3 13");
+        BackingStore file = new BackingStore(storeFile);
+        StoreView view = new StoreImage(storeFile).newView();
+        for (int key = 0; key < 4; key++) {
+            BackingStoreResponse expected = file.fetchData(key);
+            BackingStoreResponse actual = view.fetchData(key);
+            assertEquals(expected.getData(), actual.getData(), "Data for key " + key + " should match BackingStore.");
+            assertEquals(expected.getTimeTaken(), actual.getTimeTaken(), "Time for key " + key + " should match BackingStore.");
+        }
+    }
+
+    @Test
+    void fetchData_notFound() throws IOException {
+        String storeFile = TestStores.prepareStore("0 10", "1 2 3", "01 11", "2 x", "", "4 14");
+        StoreImage image = new StoreImage(storeFile);
+        StoreView view = image.newView();
+        assertEquals(3, image.size(), "Keys 0, 2 and 4 should be indexed.");
+        assertThrows(NotFoundException.class, () -> view.fetchData(1), "A line with three fields should not match.");
+        assertThrows(NotFoundException.class, () -> view.fetchData(2), "Unparsable data should not be found.");
+        assertThrows(NotFoundException.class, () -> view.fetchData(5), "A missing key should not be found.");
+        assertThrows(NotFoundException.class, () -> new BackingStore(storeFile).fetchData(2));
+    }
+
+    @Test
+    void fetchData_duplicateKey() throws IOException, NotFoundException {
+        String storeFile = TestStores.prepareStore("0 10", "1 11", "0 20");
+        BackingStoreResponse response = new StoreImage(storeFile).newView().fetchData(0);
+        assertEquals(10, response.getData(), "The first line for a key should be fetched.");
+        assertEquals(1.0, response.getTimeTaken(), "The scan should stop at the first line for a key.");
+    }
+
+    /**
+     * StoreView.pushData() black box unit tests
+     * 1. pushes report BackingStore's time and are fetched back
+     * 2. pushes never reach the file or other views
+     * 3. pushing a missing key is not found
+     * 4. discardWrites() restores the image's data
+     */
+
+    @Test
+    void pushData_fetchedBack() throws IOException, NotFoundException {
+        String storeFile = TestStores.prepareStore("0 10", "1 11", "2 12");
+        StoreView view = new StoreImage(storeFile).newView();
+        assertEquals(3.0, view.pushData(2, -1).getTimeTaken(), "Time should count lines up to the key's line.");
+        assertEquals(-1, view.fetchData(2).getData(), "The view should see its own write.");
+        assertEquals(3.0, view.fetchData(2).getTimeTaken());
+    }
+
+    @Test
+    void pushData_isolated() throws IOException, NotFoundException {
+        String storeFile = TestStores.prepareStore("0 10", "1 11", "2 12");
+        StoreImage image = new StoreImage(storeFile);
+        StoreView first = image.newView();
+        StoreView second = image.newView();
+        first.pushData(1, 99);
+        assertEquals(11, second.fetchData(1).getData(), "Another view should not see the write.");
+        assertEquals(11, new BackingStore(storeFile).fetchData(1).getData(), "The file should not change.");
+        assertEquals(11, new StoreImage(storeFile).newView().fetchData(1).getData());
+    }
+
+    @Test
+    void pushData_notFound() throws IOException {
+        String storeFile = TestStores.prepareStore("0 10");
+        StoreView view = new StoreImage(storeFile).newView();
+        assertThrows(NotFoundException.class, () -> view.pushData(7, 1));
+    }
+
+    @Test
+    void discardWrites() throws IOException, NotFoundException {
+        String storeFile = TestStores.prepareStore("0 10", "1 11");
+        StoreView view = new StoreImage(storeFile).newView();
+        view.pushData(0, 5);
+        view.discardWrites();
+        assertEquals(10, view.fetchData(0).getData(), "Discarded writes should no longer be seen.");
+    }
+}
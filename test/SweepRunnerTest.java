@@ -0,0 +1,194 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class SweepRunnerTest {
+
+    static String ex1File = "example1.txt";
+
+    /**
+     * Prepare backing store for example 1.
+     */
+    void prepareExample1() {
+        File fp = new File(ex1File);
+        try {
+            PrintWriter pw = new PrintWriter(fp);
+            for (int i = 0; i < 10; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+            pw.close();
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * Simulate a trace alone with a configuration, against the file.
+     */
+    CacheSim simulateAlone(SweepConfig config, int[] keys, int[] data, boolean[] writes) {
+        prepareExample1();
+        CacheSim sim = new CacheSim(config.newCache(new BackingStore(ex1File)));
+        sim.simulate(keys, data, writes, keys.length);
+        return sim;
+    }
+
+    /**
+     * grid() black box unit tests
+     * 1. every combination is built, capacities outermost
+     * 2. ways which do not divide a capacity are skipped
+     * 3. FULLY_ASSOCIATIVE takes the capacity as its ways,
+     *    and is built as a plain Cache
+     */
+
+    @Test
+    void grid_combinations() {
+        List<SweepConfig> configs = SweepRunner.grid(new int[]{2, 4}, new int[]{1, 2},
+                ReplacementPolicyType.LRU, ReplacementPolicyType.FIFO);
+        assertEquals(8, configs.size());
+        assertEquals("2 1 LRU", configs.get(0).toString());
+        assertEquals("2 1 FIFO", configs.get(1).toString());
+        assertEquals("4 2 FIFO", configs.get(7).toString());
+    }
+
+    @Test
+    void grid_skipsBadWays() {
+        List<SweepConfig> configs = SweepRunner.grid(new int[]{2, 6}, new int[]{4, 3}, ReplacementPolicyType.LRU);
+        assertEquals(1, configs.size(), "Only 6 with 3 ways should remain.");
+        assertEquals("6 3 LRU", configs.get(0).toString());
+    }
+
+    @Test
+    void grid_fullyAssociative() {
+        List<SweepConfig> configs = SweepRunner.grid(new int[]{3, 5},
+                new int[]{SweepConfig.FULLY_ASSOCIATIVE}, ReplacementPolicyType.ARC);
+        assertEquals(3, configs.get(0).getWays());
+        assertEquals(5, configs.get(1).getWays());
+        assertEquals(Cache.class, configs.get(0).newCache(new BackingStore("unused.txt")).getClass());
+        assertEquals(SetAssociativeCache.class,
+                new SweepConfig(4, 2, ReplacementPolicyType.LRU).newCache(new BackingStore("unused.txt")).getClass());
+    }
+
+    /**
+     * run() black box unit tests
+     * 1. parallel results equal each configuration simulated alone
+     * 2. writes in one configuration neither reach the file nor other configurations
+     * 3. results come back in the order of the configurations on any executor
+     * 4. failed requests are counted, not thrown
+     */
+
+    @Test
+    void run_matchesSequential() throws IOException, InterruptedException {
+        prepareExample1();
+        int[] keys = {1, 2, 3, 1, 4, 5, 2, 6, 1, 7, 8, 3, 9, 1, 2};
+        SweepRunner runner = new SweepRunner(new StoreImage(ex1File), keys);
+        List<SweepConfig> configs = SweepRunner.grid(new int[]{1, 2, 4, 8}, new int[]{1, 2, SweepConfig.FULLY_ASSOCIATIVE},
+                ReplacementPolicyType.values());
+        List<SweepResult> results = runner.run(configs);
+
+        assertEquals(configs.size(), results.size());
+        for (int i = 0; i < configs.size(); i++) {
+            CacheSim alone = simulateAlone(configs.get(i), keys, new int[keys.length], new boolean[keys.length]);
+            SweepResult result = results.get(i);
+            assertSame(configs.get(i), result.getConfig());
+            assertEquals(alone.getCacheMisses(), result.getMisses(), "Misses differ for " + configs.get(i));
+            assertEquals(alone.getCacheHits(), result.getHits(), "Hits differ for " + configs.get(i));
+            assertEquals(alone.getTotalSimulationTime(), result.getTotalTime(), "Time differs for " + configs.get(i));
+        }
+    }
+
+    @Test
+    void run_writesIsolated() throws IOException, InterruptedException, NotFoundException {
+        prepareExample1();
+        int[] keys = {9, 9, 8, 9, 7, 9};
+        int[] data = {100, 0, 200, 0, 300, 0};
+        boolean[] writes = {true, false, true, false, true, false};
+        SweepRunner runner = new SweepRunner(new StoreImage(ex1File), keys, data, writes, keys.length);
+        List<SweepConfig> configs = SweepRunner.grid(new int[]{1, 2}, new int[]{1}, ReplacementPolicyType.LRU);
+        List<SweepResult> results = runner.run(configs);
+
+        assertEquals(9, new BackingStore(ex1File).fetchData(9).getData(), "The file should not be written.");
+        for (int i = 0; i < configs.size(); i++) {
+            CacheSim alone = simulateAlone(configs.get(i), keys, data, writes);
+            assertEquals(alone.getCacheMisses(), results.get(i).getMisses(), "Misses differ for " + configs.get(i));
+            assertEquals(alone.getTotalSimulationTime(), results.get(i).getTotalTime());
+            assertEquals(alone.getTotalWriteTime(), results.get(i).getTotalWriteTime());
+        }
+    }
+
+    @Test
+    void run_onExecutor() throws IOException, InterruptedException {
+        prepareExample1();
+        int[] keys = {0, 1, 2, 3, 0, 1, 4, 0};
+        SweepRunner runner = new SweepRunner(new StoreImage(ex1File), keys);
+        List<SweepConfig> configs = SweepRunner.grid(new int[]{1, 2, 3, 4, 5, 6}, new int[]{SweepConfig.FULLY_ASSOCIATIVE},
+                ReplacementPolicyType.LRU);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<SweepResult> results = runner.run(configs, executor);
+            for (int i = 0; i < configs.size(); i++) {
+                assertEquals(runner.runOne(configs.get(i)).getMisses(), results.get(i).getMisses());
+            }
+            assertEquals(8, results.get(0).getMisses(), "A single slot should miss every time.");
+            assertEquals(5, results.get(5).getMisses(), "Six slots should only miss cold.");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void run_failures() throws IOException, InterruptedException {
+        prepareExample1();
+        SweepRunner runner = new SweepRunner(new StoreImage(ex1File), new int[]{1, 42, 1});
+        SweepResult result = runner.run(List.of(new SweepConfig(2, 1, ReplacementPolicyType.LRU))).get(0);
+        assertEquals(1, result.getFailures());
+        assertEquals(1, result.getMisses());
+        assertEquals(0.5, result.getMissRatio());
+    }
+
+    /**
+     * load() and writeTable() black box unit tests
+     * 1. a loaded trace sweeps like the trace simulated directly
+     * 2. the table has a header and a line per result
+     */
+
+    @Test
+    void load_matchesTrace() throws IOException, InterruptedException {
+        prepareExample1();
+        String trace = "2 " + ex1File + "\n1\n2\n3 30\n1\n3\n";
+        SweepRunner runner;
+        try (TraceSource source = new TraceReader(new ByteArrayInputStream(trace.getBytes()))) {
+            runner = SweepRunner.load(source);
+        }
+        assertEquals(5, runner.getTraceLength());
+
+        CacheSim sim = new CacheSim(2, ex1File);
+        try (TraceSource source = new TraceReader(new ByteArrayInputStream(trace.getBytes()))) {
+            sim.simulate(source);
+        }
+        SweepResult result = runner.run(List.of(new SweepConfig(2, SweepConfig.FULLY_ASSOCIATIVE, ReplacementPolicyType.LRU))).get(0);
+        assertEquals(sim.getCacheMisses(), result.getMisses());
+        assertEquals(sim.getTotalSimulationTime(), result.getTotalTime());
+    }
+
+    @Test
+    void writeTable() throws IOException, InterruptedException {
+        prepareExample1();
+        SweepRunner runner = new SweepRunner(new StoreImage(ex1File), new int[]{1, 2, 1});
+        List<SweepResult> results = runner.run(SweepRunner.grid(new int[]{1, 2}, new int[]{1}, ReplacementPolicyType.LRU));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SweepRunner.writeTable(results, new PrintStream(bytes));
+        String[] lines = bytes.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("capacity ways policy misses hits missRatio time writeTime", lines[0]);
+        assertTrue(lines[2].startsWith("2 1 LRU 2 1 "), lines[2]);
+    }
+}
@@ -0,0 +1,62 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Backing store files for the tests, written to temporary files
+ * which are deleted when the JVM exits. A file that cannot be
+ * written throws, failing the test which asked for it.
+ */
+class TestStores {
+
+    private TestStores() {
+    }
+
+    /**
+     * Prepare a backing store file holding keys 0 to lines-1,
+     * where each key's data equals the key.
+     * @param lines the number of lines
+     * @return the path of the file
+     */
+    static String prepareStore(int lines) {
+        File fp = newStoreFile();
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(fp)))) {
+            for (int i = 0; i < lines; i++) {
+                pw.println(Integer.toString(i) + " " + Integer.toString(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fp.getPath();
+    }
+
+    /**
+     * Prepare a backing store file holding the given lines.
+     * @param lines the lines of the file, in order
+     * @return the path of the file
+     */
+    static String prepareStore(String... lines) {
+        File fp = newStoreFile();
+        try (PrintWriter pw = new PrintWriter(fp)) {
+            for (String line : lines) {
+                pw.println(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fp.getPath();
+    }
+
+    private static File newStoreFile() {
+        try {
+            File fp = File.createTempFile("store", ".txt");
+            fp.deleteOnExit();
+            return fp;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
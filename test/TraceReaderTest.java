@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class TraceReaderTest {
+
+    InputStream trace(String text) {
+        return new ByteArrayInputStream(text.getBytes());
+    }
+
+    /**
+     * Header black box unit tests.
+     * 1. Capacity and backing store are read from the first line.
+     * 2. A first line without exactly two fields is rejected.
+     */
+
+    @Test
+    void header_parsed() {
+        try (TraceReader reader = new TraceReader(trace("8 test_cases/storeA.txt\n1\n"))) {
+            assertEquals(8, reader.getCapacity());
+            assertEquals("test_cases/storeA.txt", reader.getStoreFile());
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void header_malformed() {
+        assertThrows(NumberFormatException.class, () -> new TraceReader(trace("8\n1\n")));
+        assertThrows(NumberFormatException.class, () -> new TraceReader(trace("x store.txt\n1\n")));
+    }
+
+    /**
+     * read() black box unit tests.
+     * 1. Reads and writes are told apart, with and without a final newline and with CRLF.
+     * 2. Requests are split across chunks without loss.
+     * 3. Requests spanning the internal buffer are parsed whole.
+     * 4. Malformed and out-of-range requests are rejected.
+     */
+
+    @Test
+    void read_readsAndWrites() {
+        int[] keys = new int[8];
+        int[] data = new int[8];
+        boolean[] writes = new boolean[8];
+        try (TraceReader reader = new TraceReader(trace("2 s.txt\r\n5\r\n-3 70\r\n12"))) {
+            assertEquals(3, reader.read(keys, data, writes));
+            assertArrayEquals(new int[]{5, -3, 12}, java.util.Arrays.copyOf(keys, 3));
+            assertEquals(70, data[1]);
+            assertFalse(writes[0]);
+            assertTrue(writes[1]);
+            assertFalse(writes[2]);
+            assertEquals(0, reader.read(keys, data, writes));
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void read_chunks() {
+        int[] keys = new int[2];
+        int[] data = new int[2];
+        boolean[] writes = new boolean[2];
+        try (TraceReader reader = new TraceReader(trace("2 s.txt\n1\n2\n3 4\n5\n6\n"))) {
+            int total = 0;
+            int sum = 0;
+            int count;
+            while ((count = reader.read(keys, data, writes)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    sum += keys[i];
+                }
+                total += count;
+            }
+            assertEquals(5, total);
+            assertEquals(17, sum);
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void read_spansBuffer() {
+        StringBuilder sb = new StringBuilder("4 s.txt\n");
+        for (int i = 0; i < 30000; i++) {
+            sb.append(1000000 + i).append(i % 3 == 0 ? " 7\n" : "\n");
+        }
+        int[] keys = new int[1000];
+        int[] data = new int[1000];
+        boolean[] writes = new boolean[1000];
+        try (TraceReader reader = new TraceReader(trace(sb.toString()))) {
+            int next = 0;
+            int count;
+            while ((count = reader.read(keys, data, writes)) > 0) {
+                for (int i = 0; i < count; i++, next++) {
+                    assertEquals(1000000 + next, keys[i]);
+                    assertEquals(next % 3 == 0, writes[i]);
+                }
+            }
+            assertEquals(30000, next);
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void read_malformed() {
+        int[] keys = new int[4];
+        int[] data = new int[4];
+        boolean[] writes = new boolean[4];
+        assertThrows(NumberFormatException.class, () -> new TraceReader(trace("2 s.txt\n1 2 3\n")).read(keys, data, writes));
+        assertThrows(NumberFormatException.class, () -> new TraceReader(trace("2 s.txt\nabc\n")).read(keys, data, writes));
+        assertThrows(NumberFormatException.class, () -> new TraceReader(trace("2 s.txt\n1\n\n2\n")).read(keys, data, writes));
+        assertThrows(NumberFormatException.class, () -> new TraceReader(trace("2 s.txt\n2147483648\n")).read(keys, data, writes));
+        try {
+            new TraceReader(trace("2 s.txt\n-2147483648\n")).read(keys, data, writes);
+            assertEquals(Integer.MIN_VALUE, keys[0]);
+        } catch (IOException e) {
+            fail();
+        }
+    }
+}